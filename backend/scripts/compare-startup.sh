@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Starts each build variant in turn and reports time to the first successful
+# request and resident memory right after it. Build the variants first:
+#
+#   mvn -Pfast-startup package        # fat jar (with AOT classes), target/exploded, application.jsa
+#   mvn -Pnative native:compile       # optional, target/expense-tracker-backend
+#
+# The database from application.properties must be running.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+PORT=${PORT:-8080}
+export SERVER_PORT=$PORT
+URL="http://localhost:${PORT}/api/auth/check-username/startup-probe"
+JAR=$(ls target/expense-tracker-backend-*.jar 2>/dev/null | grep -v '\.original$' | head -n 1 || true)
+MAIN_CLASS=com.expensetracker.ExpenseTrackerApplication
+
+if [ -z "$JAR" ]; then
+    echo "No jar in target/, run: mvn -Pfast-startup package" >&2
+    exit 1
+fi
+
+run_exploded() {
+    cd target/exploded && exec java "$@" @classpath.args "$MAIN_CLASS"
+}
+
+measure() {
+    local name=$1
+    shift
+    local start end pid rss
+    start=$(date +%s%N)
+    "$@" > "target/startup-${name}.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            printf "%-24s failed, see target/startup-%s.log\n" "$name" "$name"
+            return
+        fi
+        sleep 0.02
+    done
+    end=$(date +%s%N)
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    printf "%-24s %8d ms %8d MB\n" "$name" $(((end - start) / 1000000)) $((rss / 1024))
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+}
+
+printf "%-24s %11s %11s\n" "variant" "first req" "RSS"
+measure "fat-jar" java -jar "$JAR"
+if [ -f target/exploded/classpath.args ]; then
+    # Same working directory and classpath as the training run, or the JVM ignores the archive
+    measure "exploded" run_exploded
+    if [ -f target/exploded/application.jsa ]; then
+        measure "exploded+cds" run_exploded -XX:SharedArchiveFile=application.jsa
+        measure "exploded+cds+aot" run_exploded -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true
+    fi
+fi
+if [ -x target/expense-tracker-backend ]; then
+    measure "native" target/expense-tracker-backend
+fi
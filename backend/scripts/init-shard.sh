@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Runs after schema.sql when a shard container is first initialised (see
+# docker-compose.shards.yml): interleaves the id sequences and, on shard 0,
+# creates the user directory.
+set -euo pipefail
+
+export PGPASSWORD="$POSTGRESQL_PASSWORD"
+PSQL=(psql -v ON_ERROR_STOP=1 -U "$POSTGRESQL_USERNAME" -d "$POSTGRESQL_DATABASE")
+
+"${PSQL[@]}" -v shard_index="$SHARD_INDEX" -f /sharding/shard_sequences.sql
+if [ "$SHARD_INDEX" = "0" ]; then
+    "${PSQL[@]}" -f /sharding/catalog.sql
+fi
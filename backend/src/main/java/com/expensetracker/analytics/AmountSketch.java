@@ -0,0 +1,92 @@
+package com.expensetracker.analytics;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Log-bucketed histogram of expense amounts. Bucket b > 0 holds amounts of
+ * (GAMMA^(b-2), GAMMA^(b-1)] cents, so every quantile is within about 1% of the
+ * true value and a sketch never has more than ~1200 buckets, however many
+ * expenses it counts. Counts can go down as well as up, and sketches merge by
+ * adding counts.
+ *
+ * Buckets are assigned by the expense_amount_bucket SQL function; bucketOf
+ * mirrors it for ranking amounts that are not stored.
+ */
+public class AmountSketch {
+    
+    static final double GAMMA = 1.02;
+    
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long total;
+    
+    public static int bucketOf(BigDecimal amount) {
+        double cents = amount.movePointRight(2).doubleValue();
+        if (cents < 1) {
+            return 0;
+        }
+        return (int) Math.ceil(Math.log(cents) / LOG_GAMMA) + 1;
+    }
+    
+    public void add(int bucket, long count) {
+        long updated = counts.getOrDefault(bucket, 0L) + count;
+        if (updated <= 0) {
+            counts.remove(bucket);
+        } else {
+            counts.put(bucket, updated);
+        }
+        total += count;
+    }
+    
+    public void merge(AmountSketch other) {
+        other.counts.forEach(this::add);
+    }
+    
+    public long count(int bucket) {
+        return counts.getOrDefault(bucket, 0L);
+    }
+    
+    public long getCount() {
+        return total;
+    }
+    
+    /** The amount at quantile q (0..1), or null if the sketch is empty. */
+    public BigDecimal quantile(double q) {
+        if (total <= 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (total - 1));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                return valueOf(entry.getKey());
+            }
+        }
+        return valueOf(counts.lastKey());
+    }
+    
+    /** Fraction of counted amounts that are less than or equal to the given one. */
+    public double percentileRank(BigDecimal amount) {
+        if (total <= 0) {
+            return 0;
+        }
+        long atOrBelow = 0;
+        for (long count : counts.headMap(bucketOf(amount), true).values()) {
+            atOrBelow += count;
+        }
+        return (double) atOrBelow / total;
+    }
+    
+    // Midpoint (in log space) of the bucket, which bounds the relative error by (GAMMA - 1) / (GAMMA + 1)
+    private static BigDecimal valueOf(int bucket) {
+        if (bucket <= 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        double upperCents = Math.pow(GAMMA, bucket - 1);
+        return BigDecimal.valueOf(Math.round(2 * upperCents / (1 + GAMMA)), 2);
+    }
+}
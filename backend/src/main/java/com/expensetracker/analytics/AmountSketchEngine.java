@@ -0,0 +1,286 @@
+package com.expensetracker.analytics;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.dto.AmountPercentiles;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Distribution of expense amounts per user and category, for percentiles and
+ * outlier flags without sorting a user's history.
+ *
+ * The sketches live in amount_sketch_buckets as one count per (user, category,
+ * bucket) and are updated in the same transaction as the expenses they count. A
+ * user's sketches are read once and kept in memory; the user-wide sketch is the
+ * merge of the category sketches. Only this instance's writes reach the memory
+ * copy, so it is read again app.sketches.ttl-ms after it was loaded.
+ */
+@Component
+public class AmountSketchEngine {
+    
+    // Buckets are computed by the database so Java and the migration backfill can never disagree
+    private static final String UPSERT_SQL =
+            "WITH changes AS (" +
+            "  SELECT t.user_id, t.category_id, expense_amount_bucket(t.amount) AS bucket, sum(t.delta) AS delta " +
+            "  FROM unnest(?::bigint[], ?::int[], ?::numeric[], ?::int[]) AS t(user_id, category_id, amount, delta) " +
+            "  GROUP BY 1, 2, 3" +
+            "), upserted AS (" +
+            "  INSERT INTO amount_sketch_buckets (user_id, category_id, bucket, count) " +
+            "  SELECT user_id, category_id, bucket, delta FROM changes " +
+            "  ON CONFLICT (user_id, category_id, bucket) " +
+            "  DO UPDATE SET count = amount_sketch_buckets.count + EXCLUDED.count " +
+            "  RETURNING user_id, category_id, bucket, count" +
+            ") " +
+            "SELECT u.user_id, u.category_id, u.bucket, c.delta, u.count " +
+            "FROM upserted u JOIN changes c USING (user_id, category_id, bucket)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Value("${app.sketches.cache-max-users:10000}")
+    private int maxCachedUsers;
+    
+    // Fewer expenses than this are not enough to call any of them an outlier
+    @Value("${app.sketches.outlier-min-count:20}")
+    private int outlierMinCount;
+    
+    @Value("${app.sketches.ttl-ms:30000}")
+    private long ttlMs;
+    
+    private final Map<Long, UserSketches> resident = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserSketches> eldest) {
+            return size() > maxCachedUsers;
+        }
+    };
+    
+    // Bucket counts committed while a user is being loaded, applied on install
+    private final Map<Long, LoadState> loading = new HashMap<>();
+    
+    /** Counts one expense amount in (delta 1) or out of (delta -1) its category's sketch. */
+    public void recordAmount(Long userId, Integer categoryId, BigDecimal amount, int delta) {
+        Map<List<Object>, Integer> deltas = new HashMap<>();
+        deltas.put(List.of(userId, categoryId, amount), delta);
+        recordAmounts(deltas);
+    }
+    
+    /**
+     * Writes count changes keyed by [userId, categoryId, amount] to the sketch table,
+     * and to the in-memory sketches once the surrounding transaction commits.
+     */
+    public void recordAmounts(Map<List<Object>, Integer> deltas) {
+        List<Object> userIds = new ArrayList<>();
+        List<Object> categoryIds = new ArrayList<>();
+        List<Object> amounts = new ArrayList<>();
+        List<Object> counts = new ArrayList<>();
+        deltas.forEach((key, delta) -> {
+            if (delta != 0) {
+                userIds.add(key.get(0));
+                categoryIds.add(key.get(1));
+                amounts.add(key.get(2));
+                counts.add(delta);
+            }
+        });
+        if (userIds.isEmpty()) {
+            return;
+        }
+        
+        List<long[]> changes = new ArrayList<>();
+        jdbcTemplate.query(UPSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8", userIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("int4", categoryIds.toArray()));
+            ps.setArray(3, connection.createArrayOf("numeric", amounts.toArray()));
+            ps.setArray(4, connection.createArrayOf("int4", counts.toArray()));
+        }, (RowCallbackHandler) rs -> changes.add(new long[] {
+                rs.getLong("user_id"), rs.getInt("category_id"), rs.getInt("bucket"),
+                rs.getLong("delta"), rs.getLong("count")}));
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(changes);
+                }
+            });
+        } else {
+            apply(changes);
+        }
+    }
+    
+    public AmountPercentiles getPercentiles(Long userId) {
+        UserSketches sketches = sketchesFor(userId);
+        synchronized (sketches) {
+            return toPercentiles(sketches.total);
+        }
+    }
+    
+    public Map<String, AmountPercentiles> getCategoryPercentiles(Long userId) {
+        UserSketches sketches = sketchesFor(userId);
+        Map<String, AmountPercentiles> percentiles = new TreeMap<>();
+        synchronized (sketches) {
+            sketches.byCategory.forEach((categoryId, sketch) -> {
+                if (sketch.getCount() > 0) {
+                    percentiles.put(categoryDictionary.nameOf(userId, categoryId), toPercentiles(sketch));
+                }
+            });
+        }
+        return percentiles;
+    }
+    
+    /** Where an amount falls among the user's expenses, overall and within its category. */
+    public Map<String, Object> rank(Long userId, Integer categoryId, BigDecimal amount) {
+        UserSketches sketches = sketchesFor(userId);
+        Map<String, Object> rank = new LinkedHashMap<>();
+        synchronized (sketches) {
+            AmountSketch category = sketches.byCategory.getOrDefault(categoryId, new AmountSketch());
+            AmountPercentiles categoryPercentiles = toPercentiles(category);
+            rank.put("percentile", percentOf(sketches.total.percentileRank(amount)));
+            rank.put("categoryPercentile", percentOf(category.percentileRank(amount)));
+            rank.put("outlier", categoryPercentiles.getOutlierThreshold() != null
+                    && amount.compareTo(categoryPercentiles.getOutlierThreshold()) > 0);
+        }
+        return rank;
+    }
+    
+    public synchronized void evict(Long userId) {
+        resident.remove(userId);
+    }
+    
+    private UserSketches sketchesFor(Long userId) {
+        synchronized (this) {
+            UserSketches sketches = resident.get(userId);
+            if (sketches != null) {
+                if (System.nanoTime() - sketches.loadedAt < ttlMs * 1_000_000) {
+                    return sketches;
+                }
+                resident.remove(userId);
+            }
+            loading.computeIfAbsent(userId, id -> new LoadState()).loaders++;
+        }
+        
+        UserSketches loaded;
+        try {
+            loaded = load(userId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                finishLoad(userId);
+            }
+            throw e;
+        }
+        
+        synchronized (this) {
+            // Counts rather than deltas, so a change the load already saw is not applied twice
+            for (long[] pending : loading.get(userId).pending) {
+                AmountSketch sketch = loaded.sketch((int) pending[0]);
+                long change = pending[2] - sketch.count((int) pending[1]);
+                sketch.add((int) pending[1], change);
+                loaded.total.add((int) pending[1], change);
+            }
+            finishLoad(userId);
+            
+            UserSketches existing = resident.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            resident.put(userId, loaded);
+            return loaded;
+        }
+    }
+    
+    private UserSketches load(Long userId) {
+        UserSketches sketches = new UserSketches(System.nanoTime());
+        jdbcTemplate.query("SELECT category_id, bucket, count FROM amount_sketch_buckets " +
+                        "WHERE user_id = ? AND count > 0",
+                (RowCallbackHandler) rs -> {
+                    sketches.sketch(rs.getInt(1)).add(rs.getInt(2), rs.getLong(3));
+                    sketches.total.add(rs.getInt(2), rs.getLong(3));
+                }, userId);
+        return sketches;
+    }
+    
+    // Each change is {userId, categoryId, bucket, delta, count after}
+    private synchronized void apply(List<long[]> changes) {
+        for (long[] change : changes) {
+            UserSketches sketches = resident.get(change[0]);
+            if (sketches != null) {
+                synchronized (sketches) {
+                    sketches.sketch((int) change[1]).add((int) change[2], change[3]);
+                    sketches.total.add((int) change[2], change[3]);
+                }
+                continue;
+            }
+            
+            LoadState state = loading.get(change[0]);
+            if (state != null) {
+                state.pending.add(new long[] {change[1], change[2], change[4]});
+            }
+        }
+    }
+    
+    private void finishLoad(Long userId) {
+        LoadState state = loading.get(userId);
+        if (--state.loaders == 0) {
+            loading.remove(userId);
+        }
+    }
+    
+    private AmountPercentiles toPercentiles(AmountSketch sketch) {
+        AmountPercentiles percentiles = new AmountPercentiles();
+        percentiles.setCount(sketch.getCount());
+        percentiles.setMedian(sketch.quantile(0.5));
+        percentiles.setP90(sketch.quantile(0.9));
+        percentiles.setP99(sketch.quantile(0.99));
+        if (sketch.getCount() >= outlierMinCount) {
+            // Tukey's fence: 1.5 interquartile ranges above the upper quartile
+            BigDecimal upperQuartile = sketch.quantile(0.75);
+            BigDecimal range = upperQuartile.subtract(sketch.quantile(0.25));
+            percentiles.setOutlierThreshold(upperQuartile.add(range.multiply(BigDecimal.valueOf(1.5)))
+                    .setScale(2, RoundingMode.HALF_UP));
+        }
+        return percentiles;
+    }
+    
+    private static BigDecimal percentOf(double fraction) {
+        return BigDecimal.valueOf(fraction * 100).setScale(1, RoundingMode.HALF_UP);
+    }
+    
+    private static class UserSketches {
+        // System.nanoTime() from just before the rows were read
+        final long loadedAt;
+        final Map<Integer, AmountSketch> byCategory = new HashMap<>();
+        final AmountSketch total = new AmountSketch();
+        
+        UserSketches(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+        
+        AmountSketch sketch(int categoryId) {
+            return byCategory.computeIfAbsent(categoryId, id -> new AmountSketch());
+        }
+    }
+    
+    private static class LoadState {
+        int loaders;
+        // {categoryId, bucket, count}
+        final List<long[]> pending = new ArrayList<>();
+    }
+}
@@ -0,0 +1,11 @@
+package com.expensetracker.analytics;
+
+public enum AnalyticsGroupBy {
+    DAY,
+    ISO_WEEK,
+    MONTH,
+    QUARTER,
+    CATEGORY,
+    CATEGORY_MONTH,
+    DAY_OF_WEEK
+}
@@ -0,0 +1,92 @@
+package com.expensetracker.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from a long bucket key to a running sum and count,
+ * so a scan aggregates without boxing or allocating per row.
+ */
+class BucketAccumulator {
+    
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private long[] keys;
+    private long[] sums;
+    private long[] counts;
+    private int size;
+    
+    BucketAccumulator(int expectedBuckets) {
+        int capacity = Integer.highestOneBit(Math.max(expectedBuckets, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+    
+    void add(long key, long amount) {
+        int slot = slotFor(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                grow();
+                slot = slotFor(keys, key);
+            }
+        }
+        sums[slot] += amount;
+        counts[slot]++;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /** Keys of all non-empty buckets in ascending order. */
+    long[] sortedKeys() {
+        long[] result = new long[size];
+        int n = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                result[n++] = key;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+    
+    long sum(long key) {
+        return sums[slotFor(keys, key)];
+    }
+    
+    long count(long key) {
+        return counts[slotFor(keys, key)];
+    }
+    
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldSums = sums;
+        long[] oldCounts = counts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                sums[slot] = oldSums[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        sums = new long[capacity];
+        counts = new long[capacity];
+    }
+    
+    private static int slotFor(long[] table, long key) {
+        int mask = table.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
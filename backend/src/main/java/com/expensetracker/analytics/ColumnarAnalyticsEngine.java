@@ -0,0 +1,319 @@
+package com.expensetracker.analytics;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.dto.AnalyticsBucket;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Keeps recently queried users' expenses in memory as primitive columns and
+ * answers group-by queries by scanning them. Users are evicted least recently
+ * used first once the configured memory budget is exceeded, and reloaded from
+ * the database on their next query.
+ *
+ * Writes are applied to the columns once they commit, but only on the instance
+ * that made them. Columns are therefore reloaded app.analytics.ttl-ms after they
+ * were read, so writes made through other instances or by another node's
+ * scheduled jobs show up within that time.
+ */
+@Component
+public class ColumnarAnalyticsEngine {
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Value("${app.analytics.memory-budget-bytes:67108864}")
+    private long memoryBudgetBytes;
+    
+    @Value("${app.analytics.ttl-ms:30000}")
+    private long ttlMs;
+    
+    // Access-ordered, so iteration starts at the least recently used user
+    private final LinkedHashMap<Long, UserExpenseColumns> resident = new LinkedHashMap<>(16, 0.75f, true);
+    
+    // Mutations committed while a user's columns are being loaded, replayed on install
+    private final Map<Long, LoadState> loading = new HashMap<>();
+    
+    private long residentBytes;
+    
+    public List<AnalyticsBucket> query(Long userId, AnalyticsGroupBy groupBy,
+                                       LocalDate startDate, LocalDate endDate, String category) {
+        UserExpenseColumns columns = columnsFor(userId);
+        int from = startDate != null ? (int) startDate.toEpochDay() : Integer.MIN_VALUE;
+        int to = endDate != null ? (int) endDate.toEpochDay() : Integer.MAX_VALUE;
+        
+        synchronized (columns) {
+            int categoryFilter = -1;
+            if (category != null) {
+                categoryFilter = columns.codeOf(category);
+                if (categoryFilter < 0) {
+                    return new ArrayList<>();
+                }
+            }
+            
+            BucketAccumulator accumulator = new BucketAccumulator(64);
+            long[] amounts = columns.amountCents();
+            int[] days = columns.epochDays();
+            int[] codes = columns.categoryCodes();
+            
+            for (int i = 0, n = columns.size(); i < n; i++) {
+                int day = days[i];
+                if (day < from || day > to || (categoryFilter >= 0 && codes[i] != categoryFilter)) {
+                    continue;
+                }
+                accumulator.add(bucketKey(groupBy, day, codes[i]), amounts[i]);
+            }
+            
+            return toBuckets(groupBy, accumulator, columns);
+        }
+    }
+    
+    /** Applies a created or updated expense once the surrounding transaction commits. */
+    public void recordSaved(Expense expense) {
+        long id = expense.getId();
+        long cents = toCents(expense.getBaseAmount());
+        int epochDay = (int) expense.getExpenseDate().toEpochDay();
+        String category = expense.getCategory();
+        afterCommit(expense.getUserId(), columns -> columns.upsert(id, cents, epochDay, category));
+    }
+    
+    /** Applies a deleted expense once the surrounding transaction commits. */
+    public void recordDeleted(Long userId, Long expenseId) {
+        afterCommit(userId, columns -> columns.remove(expenseId));
+    }
+    
+    public synchronized void evict(Long userId) {
+        UserExpenseColumns columns = resident.remove(userId);
+        if (columns != null) {
+            residentBytes -= columns.estimatedBytes();
+        }
+    }
+    
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+    
+    public synchronized int getResidentUsers() {
+        return resident.size();
+    }
+    
+    private UserExpenseColumns columnsFor(Long userId) {
+        synchronized (this) {
+            UserExpenseColumns columns = resident.get(userId);
+            if (columns != null) {
+                if (System.nanoTime() - columns.loadedAt() < ttlMs * 1_000_000) {
+                    return columns;
+                }
+                resident.remove(userId);
+                residentBytes -= columns.estimatedBytes();
+            }
+            loading.computeIfAbsent(userId, id -> new LoadState()).loaders++;
+        }
+        
+        UserExpenseColumns loaded;
+        try {
+            loaded = load(userId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                finishLoad(userId);
+            }
+            throw e;
+        }
+        
+        synchronized (this) {
+            LoadState state = loading.get(userId);
+            for (Consumer<UserExpenseColumns> mutation : state.pending) {
+                mutation.accept(loaded);
+            }
+            finishLoad(userId);
+            
+            UserExpenseColumns existing = resident.get(userId);
+            if (existing != null) {
+                // A concurrent query installed the same user first
+                return existing;
+            }
+            resident.put(userId, loaded);
+            residentBytes += loaded.estimatedBytes();
+            evictOverBudget();
+            return loaded;
+        }
+    }
+    
+    private UserExpenseColumns load(Long userId) {
+        long loadedAt = System.nanoTime();
+        List<Object[]> rows = expenseRepository.findColumnarRowsByUserId(userId);
+        UserExpenseColumns columns = new UserExpenseColumns(rows.size(), loadedAt);
+        for (Object[] row : rows) {
+            columns.append((Long) row[0], toCents((BigDecimal) row[1]),
+                    (int) ((LocalDate) row[2]).toEpochDay(), categoryDictionary.nameOf(userId, (Integer) row[3]));
+        }
+        return columns;
+    }
+    
+    private void afterCommit(Long userId, Consumer<UserExpenseColumns> mutation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, mutation);
+                }
+            });
+        } else {
+            apply(userId, mutation);
+        }
+    }
+    
+    private synchronized void apply(Long userId, Consumer<UserExpenseColumns> mutation) {
+        UserExpenseColumns columns = resident.get(userId);
+        if (columns != null) {
+            synchronized (columns) {
+                long before = columns.estimatedBytes();
+                mutation.accept(columns);
+                residentBytes += columns.estimatedBytes() - before;
+            }
+            evictOverBudget();
+            return;
+        }
+        
+        LoadState state = loading.get(userId);
+        if (state != null) {
+            state.pending.add(mutation);
+        }
+        // Otherwise the user is not resident and will be loaded fresh when next queried
+    }
+    
+    private void finishLoad(Long userId) {
+        LoadState state = loading.get(userId);
+        if (--state.loaders == 0) {
+            loading.remove(userId);
+        }
+    }
+    
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Long, UserExpenseColumns>> iterator = resident.entrySet().iterator();
+        // Always keep the most recently used user, even if it alone exceeds the budget
+        while (residentBytes > memoryBudgetBytes && resident.size() > 1 && iterator.hasNext()) {
+            residentBytes -= iterator.next().getValue().estimatedBytes();
+            iterator.remove();
+        }
+    }
+    
+    private static long bucketKey(AnalyticsGroupBy groupBy, int epochDay, int categoryCode) {
+        switch (groupBy) {
+            case DAY:
+                return epochDay;
+            case ISO_WEEK:
+                return epochDay - dayOfWeekIndex(epochDay);
+            case MONTH:
+                return monthIndex(epochDay);
+            case QUARTER:
+                return Math.floorDiv(monthIndex(epochDay), 3);
+            case CATEGORY:
+                return categoryCode;
+            case CATEGORY_MONTH:
+                return ((long) categoryCode << 32) | (monthIndex(epochDay) & 0xFFFFFFFFL);
+            case DAY_OF_WEEK:
+                return dayOfWeekIndex(epochDay);
+            default:
+                throw new IllegalArgumentException("Unsupported grouping: " + groupBy);
+        }
+    }
+    
+    private static List<AnalyticsBucket> toBuckets(AnalyticsGroupBy groupBy, BucketAccumulator accumulator,
+                                                   UserExpenseColumns columns) {
+        List<AnalyticsBucket> buckets = new ArrayList<>(accumulator.size());
+        
+        for (long key : accumulator.sortedKeys()) {
+            BigDecimal total = BigDecimal.valueOf(accumulator.sum(key), 2);
+            long count = accumulator.count(key);
+            String period = null;
+            String category = null;
+            
+            switch (groupBy) {
+                case DAY:
+                    period = LocalDate.ofEpochDay(key).toString();
+                    break;
+                case ISO_WEEK:
+                    LocalDate monday = LocalDate.ofEpochDay(key);
+                    period = String.format("%d-W%02d", monday.get(IsoFields.WEEK_BASED_YEAR),
+                            monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                    break;
+                case MONTH:
+                    period = formatMonth((int) key);
+                    break;
+                case QUARTER:
+                    period = Math.floorDiv(key, 4) + "-Q" + (Math.floorMod(key, 4) + 1);
+                    break;
+                case CATEGORY:
+                    category = columns.categoryOf((int) key);
+                    break;
+                case CATEGORY_MONTH:
+                    category = columns.categoryOf((int) (key >>> 32));
+                    period = formatMonth((int) key);
+                    break;
+                case DAY_OF_WEEK:
+                    period = DayOfWeek.of((int) key + 1).name();
+                    break;
+            }
+            buckets.add(new AnalyticsBucket(period, category, total, count));
+        }
+        
+        if (groupBy == AnalyticsGroupBy.CATEGORY) {
+            buckets.sort(Comparator.comparing(AnalyticsBucket::getTotal).reversed());
+        }
+        return buckets;
+    }
+    
+    private static String formatMonth(int monthIndex) {
+        return Math.floorDiv(monthIndex, 12) + "-" + String.format("%02d", Math.floorMod(monthIndex, 12) + 1);
+    }
+    
+    // Monday = 0 ... Sunday = 6; 1970-01-01 was a Thursday
+    private static int dayOfWeekIndex(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+    
+    // year * 12 + (month - 1), computed without LocalDate (civil-from-days)
+    static int monthIndex(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + (month - 1);
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+    
+    private static class LoadState {
+        int loaders;
+        final List<Consumer<UserExpenseColumns>> pending = new ArrayList<>();
+    }
+}
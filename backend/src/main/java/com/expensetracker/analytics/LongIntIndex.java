@@ -0,0 +1,100 @@
+package com.expensetracker.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from a long key to a non-negative int, used to find an
+ * expense's row by id without boxing or scanning. Removal shifts later entries
+ * of the probe run back, so lookups never need tombstones.
+ */
+class LongIntIndex {
+    
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    
+    LongIntIndex(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(expectedKeys, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+    
+    /** Returns -1 when the key is absent. */
+    int get(long key) {
+        int slot = slotFor(keys, key);
+        return keys[slot] == EMPTY ? -1 : values[slot];
+    }
+    
+    void put(long key, int value) {
+        int slot = slotFor(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+    
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = slotFor(keys, key);
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        size--;
+        // Move back any entry whose home slot lies at or before the gap
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = homeSlot(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+    
+    int capacity() {
+        return keys.length;
+    }
+    
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slotFor(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+    }
+    
+    private static int homeSlot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private static int slotFor(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = homeSlot(key, mask);
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
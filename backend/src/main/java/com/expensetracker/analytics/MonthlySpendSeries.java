@@ -0,0 +1,82 @@
+package com.expensetracker.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Monthly spend of one category (or of all categories) with an exponential moving
+ * average over the completed months.
+ *
+ * The average is kept as raw = sum of alpha * (1 - alpha)^(F - k) * spend(k) over
+ * months k up to F, the last month folded in, and divided by the total weight when
+ * read. Being a plain weighted sum, a change to any past month is corrected by
+ * adding its weighted delta, without revisiting other months. Months after F are
+ * folded in as time passes, one multiply per elapsed month.
+ */
+class MonthlySpendSeries {
+    
+    private static final int NONE = Integer.MIN_VALUE;
+    
+    private final double alpha;
+    private final double decay;
+    private final Map<Integer, Long> centsByMonth = new HashMap<>();
+    private double raw;
+    private int foldedThrough = NONE;
+    private int firstMonth = Integer.MAX_VALUE;
+    
+    MonthlySpendSeries(double alpha) {
+        this.alpha = alpha;
+        this.decay = 1 - alpha;
+    }
+    
+    /** Adds a change to one month's spend; month is a month index (year * 12 + month - 1). */
+    void add(int month, long deltaCents, int currentMonth) {
+        if (deltaCents == 0) {
+            return;
+        }
+        advanceTo(currentMonth);
+        centsByMonth.merge(month, deltaCents, Long::sum);
+        firstMonth = Math.min(firstMonth, month);
+        if (month <= foldedThrough) {
+            raw += alpha * Math.pow(decay, foldedThrough - month) * deltaCents;
+        }
+    }
+    
+    /** Replaces one month's spend with a known total. */
+    void set(int month, long cents, int currentMonth) {
+        add(month, cents - spend(month), currentMonth);
+    }
+    
+    long spend(int month) {
+        return centsByMonth.getOrDefault(month, 0L);
+    }
+    
+    /** The moving average through the month before currentMonth, or NaN without history. */
+    double movingAverage(int currentMonth) {
+        advanceTo(currentMonth);
+        if (firstMonth > foldedThrough) {
+            return Double.NaN;
+        }
+        double weight = 1 - Math.pow(decay, foldedThrough - firstMonth + 1);
+        return raw / weight;
+    }
+    
+    // Folds every completed month into the average
+    private void advanceTo(int currentMonth) {
+        int target = currentMonth - 1;
+        if (foldedThrough == NONE) {
+            raw = 0;
+            for (Map.Entry<Integer, Long> entry : centsByMonth.entrySet()) {
+                if (entry.getKey() <= target) {
+                    raw += alpha * Math.pow(decay, target - entry.getKey()) * entry.getValue();
+                }
+            }
+            foldedThrough = target;
+            return;
+        }
+        for (int month = foldedThrough + 1; month <= target; month++) {
+            raw = raw * decay + alpha * spend(month);
+        }
+        foldedThrough = Math.max(foldedThrough, target);
+    }
+}
@@ -0,0 +1,258 @@
+package com.expensetracker.analytics;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.dto.SpendingTrend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-category spending trends: a moving average of monthly spend, the change
+ * between the last two completed months, and a projection for the current month.
+ *
+ * State is loaded once per user from category_month_spend and then kept current
+ * from BudgetService.recordSpend, which every expense write already goes through,
+ * so each write costs one constant-time update and queries never touch the database.
+ * That only covers writes made on this instance, so a user's state is reloaded
+ * app.trends.ttl-ms after it was read.
+ */
+@Component
+public class SpendingTrendEngine {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    // Weight of the latest month in the moving average
+    @Value("${app.trends.alpha:0.3}")
+    private double alpha;
+    
+    @Value("${app.trends.cache-max-users:10000}")
+    private int maxCachedUsers;
+    
+    @Value("${app.trends.ttl-ms:30000}")
+    private long ttlMs;
+    
+    private final Map<Long, UserTrends> resident = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserTrends> eldest) {
+            return size() > maxCachedUsers;
+        }
+    };
+    
+    // Month totals committed while a user is being loaded, applied on install
+    private final Map<Long, LoadState> loading = new HashMap<>();
+    
+    public Map<String, Object> getTrends(Long userId) {
+        UserTrends trends = trendsFor(userId);
+        LocalDate today = LocalDate.now();
+        int currentMonth = monthIndex(today);
+        
+        List<SpendingTrend> categories = new ArrayList<>();
+        SpendingTrend total;
+        synchronized (trends) {
+            for (Map.Entry<Integer, MonthlySpendSeries> entry : trends.byCategory.entrySet()) {
+                categories.add(toTrend(categoryDictionary.nameOf(userId, entry.getKey()), entry.getValue(),
+                        currentMonth, today));
+            }
+            total = toTrend(null, trends.total, currentMonth, today);
+        }
+        categories.sort(Comparator.comparing(SpendingTrend::getProjectedMonthEnd).reversed());
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("month", YearMonth.from(today).toString());
+        response.put("total", total);
+        response.put("categories", categories);
+        return response;
+    }
+    
+    /**
+     * Applies a change to a category's monthly spend once the surrounding transaction
+     * commits. spentAfter is the month's total including this change.
+     */
+    public void recordSpend(Long userId, Integer categoryId, LocalDate expenseDate, BigDecimal delta,
+                            BigDecimal spentAfter) {
+        int month = monthIndex(expenseDate);
+        long deltaCents = toCents(delta);
+        long spentCents = toCents(spentAfter);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(userId, categoryId, month, deltaCents, spentCents);
+                }
+            });
+        } else {
+            apply(userId, categoryId, month, deltaCents, spentCents);
+        }
+    }
+    
+    public synchronized void evict(Long userId) {
+        resident.remove(userId);
+    }
+    
+    private UserTrends trendsFor(Long userId) {
+        synchronized (this) {
+            UserTrends trends = resident.get(userId);
+            if (trends != null) {
+                if (System.nanoTime() - trends.loadedAt < ttlMs * 1_000_000) {
+                    return trends;
+                }
+                resident.remove(userId);
+            }
+            loading.computeIfAbsent(userId, id -> new LoadState()).loaders++;
+        }
+        
+        UserTrends loaded;
+        try {
+            loaded = load(userId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                finishLoad(userId);
+            }
+            throw e;
+        }
+        
+        synchronized (this) {
+            // Totals rather than deltas: a write that committed before the load's snapshot
+            // is already counted, and setting its total again is harmless
+            int currentMonth = monthIndex(LocalDate.now());
+            for (long[] pending : loading.get(userId).pending) {
+                long categoryMonth = pending[0];
+                int categoryId = (int) (categoryMonth >> 32);
+                int month = (int) categoryMonth;
+                long before = loaded.series(categoryId).spend(month);
+                loaded.series(categoryId).set(month, pending[1], currentMonth);
+                loaded.total.add(month, pending[1] - before, currentMonth);
+            }
+            finishLoad(userId);
+            
+            UserTrends existing = resident.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            resident.put(userId, loaded);
+            return loaded;
+        }
+    }
+    
+    private UserTrends load(Long userId) {
+        UserTrends trends = new UserTrends(alpha, System.nanoTime());
+        int currentMonth = monthIndex(LocalDate.now());
+        jdbcTemplate.query("SELECT category_id, period, spent FROM category_month_spend WHERE user_id = ?",
+                (RowCallbackHandler) rs -> {
+                    int month = monthIndex(rs.getDate(2).toLocalDate());
+                    long cents = toCents(rs.getBigDecimal(3));
+                    trends.series(rs.getInt(1)).add(month, cents, currentMonth);
+                    trends.total.add(month, cents, currentMonth);
+                }, userId);
+        return trends;
+    }
+    
+    private synchronized void apply(Long userId, int categoryId, int month, long deltaCents, long spentCents) {
+        UserTrends trends = resident.get(userId);
+        if (trends != null) {
+            int currentMonth = monthIndex(LocalDate.now());
+            synchronized (trends) {
+                trends.series(categoryId).add(month, deltaCents, currentMonth);
+                trends.total.add(month, deltaCents, currentMonth);
+            }
+            return;
+        }
+        
+        LoadState state = loading.get(userId);
+        if (state != null) {
+            state.pending.add(new long[] {((long) categoryId << 32) | (month & 0xFFFFFFFFL), spentCents});
+        }
+        // Otherwise the user is not resident and will be loaded fresh when next queried
+    }
+    
+    private void finishLoad(Long userId) {
+        LoadState state = loading.get(userId);
+        if (--state.loaders == 0) {
+            loading.remove(userId);
+        }
+    }
+    
+    private static SpendingTrend toTrend(String category, MonthlySpendSeries series, int currentMonth,
+                                         LocalDate today) {
+        double average = series.movingAverage(currentMonth);
+        long previous = series.spend(currentMonth - 1);
+        long beforePrevious = series.spend(currentMonth - 2);
+        long monthToDate = series.spend(currentMonth);
+        
+        // The rest of the month is expected to follow the average; without history, the pace so far
+        double remaining = (double) (today.lengthOfMonth() - today.getDayOfMonth()) / today.lengthOfMonth();
+        double dailyPace = (double) monthToDate / today.getDayOfMonth();
+        double projected = Double.isNaN(average)
+                ? monthToDate + dailyPace * (today.lengthOfMonth() - today.getDayOfMonth())
+                : monthToDate + average * remaining;
+        
+        SpendingTrend trend = new SpendingTrend();
+        trend.setCategory(category);
+        trend.setMovingAverage(Double.isNaN(average) ? null : fromCents(average));
+        trend.setPreviousMonth(fromCents(previous));
+        trend.setMonthBeforePrevious(fromCents(beforePrevious));
+        trend.setMonthOverMonthChange(fromCents(previous - beforePrevious));
+        trend.setMonthOverMonthPercent(beforePrevious == 0 ? null
+                : BigDecimal.valueOf(100.0 * (previous - beforePrevious) / beforePrevious)
+                        .setScale(1, RoundingMode.HALF_UP));
+        trend.setMonthToDate(fromCents(monthToDate));
+        trend.setProjectedMonthEnd(fromCents(projected));
+        return trend;
+    }
+    
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+    
+    private static BigDecimal fromCents(double cents) {
+        return BigDecimal.valueOf(Math.round(cents), 2);
+    }
+    
+    private static class UserTrends {
+        final double alpha;
+        // System.nanoTime() from just before the rows were read
+        final long loadedAt;
+        final Map<Integer, MonthlySpendSeries> byCategory = new HashMap<>();
+        final MonthlySpendSeries total;
+        
+        UserTrends(double alpha, long loadedAt) {
+            this.alpha = alpha;
+            this.loadedAt = loadedAt;
+            this.total = new MonthlySpendSeries(alpha);
+        }
+        
+        MonthlySpendSeries series(int categoryId) {
+            return byCategory.computeIfAbsent(categoryId, id -> new MonthlySpendSeries(alpha));
+        }
+    }
+    
+    private static class LoadState {
+        int loaders;
+        // {categoryId << 32 | month, month total in cents}
+        final List<long[]> pending = new ArrayList<>();
+    }
+}
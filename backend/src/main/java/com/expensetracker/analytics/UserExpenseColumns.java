@@ -0,0 +1,142 @@
+package com.expensetracker.analytics;
+
+import com.expensetracker.category.CategoryDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's expenses held as parallel primitive columns. Categories are
+ * dictionary-encoded per user so a row costs 24 bytes regardless of the
+ * category name, plus its slot in the id index that upsert and remove look
+ * rows up in. Not thread-safe; callers synchronize on the instance.
+ */
+class UserExpenseColumns {
+    
+    private static final int BYTES_PER_ROW = 8 + 8 + 4 + 4;
+    private static final int BYTES_PER_INDEX_SLOT = 8 + 4;
+    private static final int BYTES_PER_CATEGORY = 64;
+    private static final int BASE_BYTES = 256;
+    
+    private long[] ids;
+    private long[] amountCents;
+    private int[] epochDays;
+    private int[] categoryCodes;
+    private int size;
+    
+    private final long loadedAt;
+    private final LongIntIndex rowsById;
+    private final Map<String, Integer> codesByCategory = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+    
+    UserExpenseColumns(int initialCapacity, long loadedAt) {
+        this.loadedAt = loadedAt;
+        int capacity = Math.max(initialCapacity, 8);
+        ids = new long[capacity];
+        amountCents = new long[capacity];
+        epochDays = new int[capacity];
+        categoryCodes = new int[capacity];
+        rowsById = new LongIntIndex(capacity);
+    }
+    
+    /** Adds a row without looking for an existing one; for loading rows known to be distinct. */
+    void append(long id, long cents, int epochDay, String category) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        ids[index] = id;
+        rowsById.put(id, index);
+        amountCents[index] = cents;
+        epochDays[index] = epochDay;
+        categoryCodes[index] = encode(category);
+    }
+    
+    void upsert(long id, long cents, int epochDay, String category) {
+        int index = rowsById.get(id);
+        if (index < 0) {
+            append(id, cents, epochDay, category);
+            return;
+        }
+        amountCents[index] = cents;
+        epochDays[index] = epochDay;
+        categoryCodes[index] = encode(category);
+    }
+    
+    boolean remove(long id) {
+        int index = rowsById.get(id);
+        if (index < 0) {
+            return false;
+        }
+        rowsById.remove(id);
+        // Order is irrelevant for aggregation, so fill the gap with the last row
+        int last = --size;
+        if (index != last) {
+            ids[index] = ids[last];
+            amountCents[index] = amountCents[last];
+            epochDays[index] = epochDays[last];
+            categoryCodes[index] = categoryCodes[last];
+            rowsById.put(ids[index], index);
+        }
+        return true;
+    }
+    
+    /** System.nanoTime() from just before the rows were read. */
+    long loadedAt() {
+        return loadedAt;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    long[] amountCents() {
+        return amountCents;
+    }
+    
+    int[] epochDays() {
+        return epochDays;
+    }
+    
+    int[] categoryCodes() {
+        return categoryCodes;
+    }
+    
+    /** Returns -1 when the user has never used the category. */
+    int codeOf(String category) {
+        Integer code = codesByCategory.get(CategoryDictionary.normalize(category));
+        return code != null ? code : -1;
+    }
+    
+    String categoryOf(int code) {
+        return categories.get(code);
+    }
+    
+    long estimatedBytes() {
+        return BASE_BYTES + (long) ids.length * BYTES_PER_ROW + (long) rowsById.capacity() * BYTES_PER_INDEX_SLOT
+                + (long) categories.size() * BYTES_PER_CATEGORY;
+    }
+    
+    private int encode(String category) {
+        String name = CategoryDictionary.normalize(category);
+        Integer code = codesByCategory.get(name);
+        if (code == null) {
+            code = categories.size();
+            categories.add(name);
+            codesByCategory.put(name, code);
+        }
+        return code;
+    }
+    
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+    }
+}
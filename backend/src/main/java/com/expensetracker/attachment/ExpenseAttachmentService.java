@@ -0,0 +1,113 @@
+package com.expensetracker.attachment;
+
+import com.expensetracker.model.ExpenseAttachment;
+import com.expensetracker.repository.ExpenseAttachmentRepository;
+import com.expensetracker.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Receipts attached to expenses. Uploads are written to the receipt store before
+ * any database work, so no connection is held while a file is streamed to disk.
+ * Deleting an attachment only removes its row: other attachments may share the
+ * file, and the garbage collector deletes it once none does.
+ */
+@Service
+public class ExpenseAttachmentService {
+    
+    private static final int MAX_FILE_NAME_LENGTH = 255;
+    
+    @Autowired
+    private ExpenseAttachmentRepository attachmentRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private ReceiptStore receiptStore;
+    
+    @Value("${app.attachments.max-per-expense:10}")
+    private int maxPerExpense;
+    
+    /** Attaches the uploaded receipt; empty when the expense is not the user's. */
+    public Optional<ExpenseAttachment> attach(Long userId, Long expenseId, MultipartFile file) throws IOException {
+        if (expenseRepository.findByIdAndUserId(expenseId, userId).isEmpty()) {
+            return Optional.empty();
+        }
+        if (attachmentRepository.countByExpenseId(expenseId) >= maxPerExpense) {
+            throw new RuntimeException("An expense can have at most " + maxPerExpense + " attachments");
+        }
+        
+        ReceiptStore.StoredReceipt stored;
+        try (InputStream in = file.getInputStream()) {
+            stored = receiptStore.store(in);
+        }
+        
+        ExpenseAttachment attachment = new ExpenseAttachment();
+        attachment.setUserId(userId);
+        attachment.setExpenseId(expenseId);
+        attachment.setSha256(stored.getSha256());
+        attachment.setContentType(stored.getContentType());
+        attachment.setFileName(cleanFileName(file.getOriginalFilename(), stored.getContentType()));
+        attachment.setSizeBytes(stored.getSize());
+        return Optional.of(attachmentRepository.save(attachment));
+    }
+    
+    public List<ExpenseAttachment> getAttachments(Long userId, Long expenseId) {
+        return attachmentRepository.findByExpenseIdAndUserIdOrderByIdAsc(expenseId, userId);
+    }
+    
+    public Optional<ExpenseAttachment> getAttachment(Long userId, Long expenseId, Long attachmentId) {
+        return attachmentRepository.findByIdAndExpenseIdAndUserId(attachmentId, expenseId, userId);
+    }
+    
+    /** The stored file of an attachment, or empty if it has gone missing from the store. */
+    public Optional<Path> getContent(ExpenseAttachment attachment) {
+        Path path = receiptStore.pathOf(attachment.getSha256());
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+    
+    public boolean deleteAttachment(Long userId, Long expenseId, Long attachmentId) {
+        Optional<ExpenseAttachment> attachment = getAttachment(userId, expenseId, attachmentId);
+        attachment.ifPresent(attachmentRepository::delete);
+        return attachment.isPresent();
+    }
+    
+    // Only the last path segment, printable and short enough for the column
+    private static String cleanFileName(String originalName, String contentType) {
+        String name = originalName != null ? originalName : "";
+        name = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+        name = name.replaceAll("[\\p{Cntrl}\"]", "").trim();
+        if (name.isEmpty()) {
+            name = "receipt" + extensionOf(contentType);
+        }
+        if (name.length() > MAX_FILE_NAME_LENGTH) {
+            name = name.substring(name.length() - MAX_FILE_NAME_LENGTH);
+        }
+        return name;
+    }
+    
+    private static String extensionOf(String contentType) {
+        switch (contentType) {
+            case "application/pdf":
+                return ".pdf";
+            case "image/jpeg":
+                return ".jpg";
+            case "image/png":
+                return ".png";
+            case "image/webp":
+                return ".webp";
+            default:
+                return ".heic";
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.expensetracker.attachment;
+
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.scheduling.JobLeaseManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Deletes receipt files that no attachment refers to, on any shard. Only files
+ * older than the grace period are considered: an upload renames its file into
+ * place (or touches an existing one) before its row commits, and the grace period
+ * is what keeps the collector from deleting it in between.
+ */
+@Component
+public class ReceiptGarbageCollector {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReceiptGarbageCollector.class);
+    
+    private static final String JOB_NAME = "receipt-gc";
+    
+    private static final int BATCH_SIZE = 500;
+    
+    @Autowired
+    private ReceiptStore receiptStore;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private JobLeaseManager leaseManager;
+    
+    @Value("${app.attachments.gc-grace-minutes:60}")
+    private long graceMinutes;
+    
+    @Scheduled(cron = "${app.attachments.gc-cron:0 30 3 * * *}")
+    public void run() {
+        Duration lease = Duration.ofMinutes(30);
+        if (!leaseManager.tryAcquire(JOB_NAME, 0, lease)) {
+            return;
+        }
+        try {
+            int deleted = collect(Instant.now().minus(Duration.ofMinutes(graceMinutes)), lease);
+            if (deleted > 0) {
+                log.info("Deleted {} unreferenced receipt files", deleted);
+            }
+        } catch (IOException e) {
+            log.warn("Receipt garbage collection failed", e);
+        } finally {
+            leaseManager.release(JOB_NAME, 0);
+        }
+    }
+    
+    int collect(Instant cutoff, Duration lease) throws IOException {
+        int deleted = 0;
+        try (Stream<Path> uploads = receiptStore.leftoverUploads()) {
+            for (Path upload : (Iterable<Path>) uploads::iterator) {
+                if (isOlderThan(upload, cutoff)) {
+                    Files.deleteIfExists(upload);
+                }
+            }
+        }
+        
+        List<Path> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<Path> files = receiptStore.files()) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                if (isOlderThan(file, cutoff)) {
+                    batch.add(file);
+                }
+                if (batch.size() == BATCH_SIZE || (!iterator.hasNext() && !batch.isEmpty())) {
+                    deleted += sweep(batch, cutoff);
+                    batch.clear();
+                    if (!leaseManager.renew(JOB_NAME, 0, lease)) {
+                        log.warn("Lost the receipt GC lease, stopping after {} deletions", deleted);
+                        break;
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+    
+    private int sweep(List<Path> candidates, Instant cutoff) throws IOException {
+        String[] hashes = candidates.stream().map(path -> path.getFileName().toString()).toArray(String[]::new);
+        Set<String> referenced = new HashSet<>();
+        ShardContext.forEachShard(shard -> referenced.addAll(jdbcTemplate.query(
+                "SELECT DISTINCT sha256 FROM expense_attachments WHERE sha256 = ANY(?)",
+                statement -> statement.setArray(1, statement.getConnection().createArrayOf("varchar", hashes)),
+                (rs, rowNum) -> rs.getString(1))));
+        
+        int deleted = 0;
+        for (Path file : candidates) {
+            // Checked again: an upload of the same receipt may have touched it since the scan
+            if (!referenced.contains(file.getFileName().toString()) && isOlderThan(file, cutoff)
+                    && Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+    
+    private static boolean isOlderThan(Path file, Instant cutoff) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.expensetracker.attachment;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Receipt files on local disk, named by the SHA-256 of their content. An upload is
+ * streamed to a temporary file in the store while it is hashed, then renamed to
+ * ab/cd/&lt;sha256&gt;; when that file already exists the copy is dropped and the
+ * existing one is touched instead, so a receipt uploaded twice is stored once.
+ *
+ * Files are never rewritten in place, which is what lets downloads hand the path
+ * to sendfile and lets clients cache them forever. Unreferenced files are removed
+ * by ReceiptGarbageCollector.
+ */
+@Component
+public class ReceiptStore {
+    
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    @Value("${app.attachments.dir:./data/receipts}")
+    private String dir;
+    
+    @Value("${app.attachments.max-file-size:20MB}")
+    private DataSize maxFileSize;
+    
+    private Path root;
+    private Path incoming;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(dir).toAbsolutePath().normalize();
+        // Inside the store, so the final rename never crosses file systems
+        incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+    }
+    
+    /**
+     * Copies the stream into the store and returns what was stored. Fails without
+     * leaving anything behind when the content is larger than max-file-size or is
+     * not a receipt type we accept.
+     */
+    public StoredReceipt store(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] head = new byte[ReceiptType.HEADER_LENGTH];
+        int headLength = 0;
+        long size = 0;
+        long limit = maxFileSize.toBytes();
+        
+        Path temp = Files.createTempFile(incoming, "upload-", ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    size += read;
+                    if (size > limit) {
+                        throw new RuntimeException("Receipts can be at most " + maxFileSize.toMegabytes() + "MB");
+                    }
+                    if (headLength < head.length) {
+                        int copied = Math.min(read, head.length - headLength);
+                        System.arraycopy(buffer, 0, head, headLength, copied);
+                        headLength += copied;
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            if (size == 0) {
+                throw new RuntimeException("The uploaded file is empty");
+            }
+            String contentType = ReceiptType.detect(head, headLength);
+            if (contentType == null) {
+                throw new RuntimeException("Only PDF, JPEG, PNG, WebP and HEIC receipts can be attached");
+            }
+            
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(sha256);
+            if (Files.exists(target)) {
+                // Newer than the garbage collector's grace period again, so a sweep in progress leaves it alone
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createDirectories(target.getParent());
+                moveIntoPlace(temp, target);
+            }
+            return new StoredReceipt(sha256, contentType, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /** The file of a stored receipt; it may be gone if no attachment refers to it any more. */
+    public Path pathOf(String sha256) {
+        if (!SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256: " + sha256);
+        }
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+    
+    /** Every stored receipt file; the caller closes the stream. */
+    public Stream<Path> files() throws IOException {
+        return Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                && SHA256.matcher(path.getFileName().toString()).matches());
+    }
+    
+    /** Uploads that were interrupted before they were renamed into place. */
+    public Stream<Path> leftoverUploads() throws IOException {
+        return Files.list(incoming);
+    }
+    
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(temp, target);
+            } catch (FileAlreadyExistsException raced) {
+                // Another upload of the same receipt got there first; the content is identical
+            }
+        }
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static class StoredReceipt {
+        private final String sha256;
+        private final String contentType;
+        private final long size;
+        
+        StoredReceipt(String sha256, String contentType, long size) {
+            this.sha256 = sha256;
+            this.contentType = contentType;
+            this.size = size;
+        }
+        
+        public String getSha256() { return sha256; }
+        public String getContentType() { return contentType; }
+        public long getSize() { return size; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.expensetracker.attachment;
+
+/**
+ * The receipt formats we accept, recognised by their leading bytes. The client's
+ * Content-Type is not trusted: it is what downloads are served with.
+ */
+final class ReceiptType {
+    
+    static final int HEADER_LENGTH = 12;
+    
+    private ReceiptType() {}
+    
+    /** The content type of a file starting with these bytes, or null when it is not a receipt format. */
+    static String detect(byte[] head, int length) {
+        if (startsWith(head, length, 0, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n')) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        // ISO base media file: a box size, then 'ftyp' and the major brand
+        if (startsWith(head, length, 4, 'f', 't', 'y', 'p')
+                && (startsWith(head, length, 8, 'h', 'e', 'i', 'c') || startsWith(head, length, 8, 'h', 'e', 'i', 'x')
+                || startsWith(head, length, 8, 'm', 'i', 'f', '1'))) {
+            return "image/heic";
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] head, int length, int offset, int... expected) {
+        if (length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((head[offset + i] & 0xFF) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
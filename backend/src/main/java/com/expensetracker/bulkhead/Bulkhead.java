@@ -0,0 +1,104 @@
+package com.expensetracker.bulkhead;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The request and connection limits of one endpoint group. A request holds one
+ * request permit from BulkheadFilter until its response is written, and one
+ * connection permit while it has any database connection open; a second connection
+ * opened by the same request (e.g. JdbcTemplate outside the JPA transaction) takes
+ * no extra permit, so a request can never wait on itself.
+ */
+public class Bulkhead {
+    
+    private static final ThreadLocal<Bulkhead> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> OPEN_CONNECTIONS = ThreadLocal.withInitial(() -> new int[1]);
+    
+    private final BulkheadGroup group;
+    private final int maxConcurrentRequests;
+    private final int maxConnections;
+    private final long maxWaitMs;
+    private final long connectionTimeoutMs;
+    private final Semaphore requests;
+    private final Semaphore connections;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong connectionTimeouts = new AtomicLong();
+    
+    public Bulkhead(BulkheadGroup group, int maxConcurrentRequests, long maxWaitMs,
+                    int maxConnections, long connectionTimeoutMs) {
+        this.group = group;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxConnections = maxConnections;
+        this.maxWaitMs = maxWaitMs;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.requests = new Semaphore(maxConcurrentRequests, true);
+        this.connections = new Semaphore(maxConnections, true);
+    }
+    
+    /** The bulkhead of the request on this thread, or null outside a request (scheduler, import workers). */
+    public static Bulkhead current() {
+        return CURRENT.get();
+    }
+    
+    /** Takes a request permit, waiting at most maxWaitMs; false means the group is full. */
+    boolean tryEnter() throws InterruptedException {
+        if (!requests.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        CURRENT.set(this);
+        return true;
+    }
+    
+    void exit() {
+        // A connection still open here is no longer the request's; don't let it keep the permit
+        if (OPEN_CONNECTIONS.get()[0] > 0) {
+            connections.release();
+        }
+        CURRENT.remove();
+        OPEN_CONNECTIONS.remove();
+        requests.release();
+    }
+    
+    /** Called before a connection is opened on this thread; fails like an exhausted pool would. */
+    void acquireConnection() throws SQLException {
+        int[] open = OPEN_CONNECTIONS.get();
+        if (open[0] == 0) {
+            try {
+                if (!connections.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    connectionTimeouts.incrementAndGet();
+                    throw new SQLTransientConnectionException("Connection partition " + getName()
+                            + " is exhausted, request timed out after " + connectionTimeoutMs + "ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+            }
+        }
+        open[0]++;
+    }
+    
+    void releaseConnection() {
+        int[] open = OPEN_CONNECTIONS.get();
+        if (open[0] > 0 && --open[0] == 0) {
+            connections.release();
+        }
+    }
+    
+    public String getName() {
+        return group.name().toLowerCase();
+    }
+    
+    public BulkheadGroup getGroup() { return group; }
+    public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+    public int getMaxConnections() { return maxConnections; }
+    public int getActiveRequests() { return maxConcurrentRequests - requests.availablePermits(); }
+    public int getActiveConnections() { return maxConnections - connections.availablePermits(); }
+    public int getQueuedRequests() { return requests.getQueueLength(); }
+    public long getRejected() { return rejected.get(); }
+    public long getConnectionTimeouts() { return connectionTimeouts.get(); }
+}
@@ -0,0 +1,79 @@
+package com.expensetracker.bulkhead;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Splits the connection pool between endpoint groups: a request may only open a
+ * connection while its group is under max-connections. Threads outside a request
+ * are not limited.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+    
+    public BulkheadDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead bulkhead = Bulkhead.current();
+        if (bulkhead == null) {
+            return super.getConnection();
+        }
+        bulkhead.acquireConnection();
+        try {
+            return releasingOnClose(super.getConnection(), bulkhead);
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.releaseConnection();
+            throw e;
+        }
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Bulkhead bulkhead = Bulkhead.current();
+        if (bulkhead == null) {
+            return super.getConnection(username, password);
+        }
+        bulkhead.acquireConnection();
+        try {
+            return releasingOnClose(super.getConnection(username, password), bulkhead);
+        } catch (SQLException | RuntimeException e) {
+            bulkhead.releaseConnection();
+            throw e;
+        }
+    }
+    
+    private static Connection releasingOnClose(Connection target, Bulkhead bulkhead) {
+        boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(BulkheadDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Bulkhead[" + target + "]";
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                bulkhead.releaseConnection();
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
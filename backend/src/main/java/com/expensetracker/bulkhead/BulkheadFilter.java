@@ -0,0 +1,100 @@
+package com.expensetracker.bulkhead;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+/**
+ * Puts every API request into its endpoint group's bulkhead, or answers 503 with
+ * Retry-After when the group is full. Runs after Spring Security so rejected
+ * responses still carry CORS headers.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+    
+    private static final String REJECTED_BODY =
+            "{\"success\":false,\"message\":\"The server is busy, please try again shortly\"}";
+    
+    private final Map<BulkheadGroup, Bulkhead> bulkheads;
+    private final int analyticsDateRangeMonths;
+    private final int retryAfterSeconds;
+    
+    public BulkheadFilter(Map<BulkheadGroup, Bulkhead> bulkheads, int analyticsDateRangeMonths, int retryAfterSeconds) {
+        this.bulkheads = bulkheads;
+        this.analyticsDateRangeMonths = analyticsDateRangeMonths;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        BulkheadGroup group = classify(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        Bulkhead bulkhead = bulkheads.get(group);
+        boolean entered;
+        try {
+            entered = bulkhead.tryEnter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entered = false;
+        }
+        if (!entered) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType("application/json");
+            response.getWriter().write(REJECTED_BODY);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+    
+    BulkheadGroup classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/api/") || path.startsWith("/api/actuator") || "OPTIONS".equals(request.getMethod())) {
+            return null;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return BulkheadGroup.AUTH;
+        }
+        if ("GET".equals(request.getMethod()) && path.startsWith("/api/expenses/")) {
+            String endpoint = path.substring("/api/expenses/".length());
+            if (endpoint.equals("statistics") || endpoint.startsWith("chart/") || endpoint.equals("analytics")
+                    || endpoint.equals("trends") || endpoint.endsWith("/rank")) {
+                return BulkheadGroup.ANALYTICS;
+            }
+            if (endpoint.equals("date-range") && spansMonths(request) > analyticsDateRangeMonths) {
+                return BulkheadGroup.ANALYTICS;
+            }
+        }
+        return BulkheadGroup.CRUD;
+    }
+    
+    // Missing or unparseable dates are left to the controller to reject
+    private static long spansMonths(HttpServletRequest request) {
+        String startDate = request.getParameter("startDate");
+        String endDate = request.getParameter("endDate");
+        if (startDate == null || endDate == null) {
+            return 0;
+        }
+        try {
+            return ChronoUnit.MONTHS.between(LocalDate.parse(startDate), LocalDate.parse(endDate));
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.expensetracker.bulkhead;
+
+/** The endpoint groups that get their own request and connection limits. */
+public enum BulkheadGroup {
+    AUTH,
+    CRUD,
+    ANALYTICS
+}
@@ -0,0 +1,8 @@
+package com.expensetracker.cache;
+
+public class CoalescedRequestTimeoutException extends RuntimeException {
+    
+    public CoalescedRequestTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,245 @@
+package com.expensetracker.cache;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Date-range expense lists assembled from per-month buckets. A range reads the
+ * buckets of the months it spans, loads only the months not cached yet (one query
+ * per run of consecutive missing months) and trims the first and last month to
+ * the requested days, so "this month", "last 30 days" and "this quarter" share
+ * most of their data.
+ *
+ * Every write to an expense invalidates the bucket of its month (both months when
+ * an update moves it) once the transaction commits. That only reaches this
+ * instance, so buckets also expire app.range-cache.ttl-ms after they were read:
+ * writes made through other instances or by another node's scheduled jobs show
+ * up within that time. Users are evicted least recently used first.
+ */
+@Component
+public class ExpenseRangeCache {
+    
+    private static final String SELECT_SQL =
+            "SELECT id, title, description, amount, currency, base_amount, expense_date, category_id, " +
+            "created_at, updated_at FROM expenses WHERE user_id = ? AND expense_date BETWEEN ? AND ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Value("${app.range-cache.cache-max-users:10000}")
+    private int maxCachedUsers;
+    
+    // Wider ranges (e.g. "all time" from a date picker) are queried directly rather than cached
+    @Value("${app.range-cache.max-months:36}")
+    private int maxMonths;
+    
+    @Value("${app.range-cache.ttl-ms:10000}")
+    private long ttlMs;
+    
+    private final Map<Long, Map<Integer, MonthBucket>> resident = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Map<Integer, MonthBucket>> eldest) {
+            return size() > maxCachedUsers;
+        }
+    };
+    
+    // Months invalidated while they were being loaded must not be installed
+    private final Map<Long, LoadState> loading = new HashMap<>();
+    
+    public boolean isCacheable(LocalDate startDate, LocalDate endDate) {
+        return monthOf(endDate) - monthOf(startDate) < maxMonths;
+    }
+    
+    /** The user's expenses between the dates (inclusive), newest first. */
+    public List<Expense> findByDateRange(Long userId, User user, LocalDate startDate, LocalDate endDate) {
+        int first = monthOf(startDate);
+        int last = monthOf(endDate);
+        if (first > last) {
+            return new ArrayList<>();
+        }
+        
+        Map<Integer, MonthBucket> buckets = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (this) {
+            Map<Integer, MonthBucket> months = resident.get(userId);
+            for (int month = first; month <= last; month++) {
+                MonthBucket bucket = months != null ? months.get(month) : null;
+                if (bucket != null && now - bucket.loadedAt() < ttlMs * 1_000_000) {
+                    buckets.put(month, bucket);
+                } else {
+                    missing.add(month);
+                }
+            }
+            if (!missing.isEmpty()) {
+                loading.computeIfAbsent(userId, id -> new LoadState()).loaders++;
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            Map<Integer, MonthBucket> loaded;
+            try {
+                loaded = load(userId, missing);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    finishLoad(userId);
+                }
+                throw e;
+            }
+            buckets.putAll(loaded);
+            install(userId, loaded);
+        }
+        
+        List<Expense> expenses = new ArrayList<>();
+        for (int month = last; month >= first; month--) {
+            MonthBucket bucket = buckets.get(month);
+            LocalDate monthStart = startOf(month);
+            for (int i = 0; i < bucket.size(); i++) {
+                LocalDate date = monthStart.withDayOfMonth(bucket.dayOfMonth(i));
+                if (date.isAfter(endDate)) {
+                    continue;
+                }
+                if (date.isBefore(startDate)) {
+                    break;
+                }
+                expenses.add(bucket.toExpense(i, monthStart, user,
+                        categoryDictionary.nameOf(userId, bucket.categoryId(i))));
+            }
+        }
+        return expenses;
+    }
+    
+    /** Drops the bucket holding this date once the current transaction commits. */
+    public void invalidate(Long userId, LocalDate expenseDate) {
+        int month = monthOf(expenseDate);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateMonth(userId, month);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateMonth(userId, month);
+            }
+        });
+    }
+    
+    public synchronized void evict(Long userId) {
+        resident.remove(userId);
+        LoadState state = loading.get(userId);
+        if (state != null) {
+            state.evicted = true;
+        }
+    }
+    
+    private synchronized void invalidateMonth(Long userId, int month) {
+        Map<Integer, MonthBucket> months = resident.get(userId);
+        if (months != null) {
+            months.remove(month);
+        }
+        LoadState state = loading.get(userId);
+        if (state != null) {
+            state.invalidated.add(month);
+        }
+    }
+    
+    private Map<Integer, MonthBucket> load(Long userId, List<Integer> months) {
+        long loadedAt = System.nanoTime();
+        Map<Integer, List<MonthBucket.Row>> rows = new HashMap<>();
+        for (int month : months) {
+            rows.put(month, new ArrayList<>());
+        }
+        
+        // Missing months are ascending; each run of consecutive ones is one query
+        int runStart = 0;
+        for (int i = 1; i <= months.size(); i++) {
+            if (i < months.size() && months.get(i) == months.get(i - 1) + 1) {
+                continue;
+            }
+            LocalDate from = startOf(months.get(runStart));
+            LocalDate to = startOf(months.get(i - 1)).plusMonths(1).minusDays(1);
+            jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) rs -> {
+                MonthBucket.Row row = new MonthBucket.Row();
+                LocalDate date = rs.getDate("expense_date").toLocalDate();
+                row.id = rs.getLong("id");
+                row.title = rs.getString("title");
+                row.description = rs.getString("description");
+                row.amount = rs.getBigDecimal("amount");
+                row.currency = rs.getString("currency");
+                row.baseAmount = rs.getBigDecimal("base_amount");
+                row.day = date.getDayOfMonth();
+                row.categoryId = rs.getInt("category_id");
+                row.createdAt = toLocalDateTime(rs.getTimestamp("created_at"));
+                row.updatedAt = toLocalDateTime(rs.getTimestamp("updated_at"));
+                rows.get(monthOf(date)).add(row);
+            }, userId, Date.valueOf(from), Date.valueOf(to));
+            runStart = i;
+        }
+        
+        Map<Integer, MonthBucket> buckets = new HashMap<>();
+        rows.forEach((month, monthRows) -> buckets.put(month, MonthBucket.of(monthRows, loadedAt)));
+        return buckets;
+    }
+    
+    private synchronized void install(Long userId, Map<Integer, MonthBucket> loaded) {
+        LoadState state = loading.get(userId);
+        if (!state.evicted) {
+            Map<Integer, MonthBucket> months = resident.computeIfAbsent(userId, id -> new HashMap<>());
+            loaded.forEach((month, bucket) -> {
+                if (!state.invalidated.contains(month)) {
+                    // Replaces an expired bucket, but not one a concurrent load read later
+                    months.merge(month, bucket, (cached, fresh) -> fresh.loadedAt() - cached.loadedAt() > 0 ? fresh : cached);
+                }
+            });
+        }
+        finishLoad(userId);
+    }
+    
+    private void finishLoad(Long userId) {
+        LoadState state = loading.get(userId);
+        if (--state.loaders == 0) {
+            loading.remove(userId);
+        }
+    }
+    
+    private static int monthOf(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+    
+    private static LocalDate startOf(int month) {
+        return LocalDate.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1);
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+    
+    private static class LoadState {
+        int loaders;
+        boolean evicted;
+        final Set<Integer> invalidated = new HashSet<>();
+    }
+}
@@ -0,0 +1,132 @@
+package com.expensetracker.cache;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One user's expenses in one calendar month, newest first, as parallel columns.
+ * Amounts are kept as cents (both columns have scale 2) and timestamps as epoch
+ * microseconds, which is all the precision the database stores.
+ */
+class MonthBucket {
+    
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+    
+    private final long[] ids;
+    private final String[] titles;
+    private final String[] descriptions;
+    private final long[] amountCents;
+    private final String[] currencies;
+    private final long[] baseAmountCents;
+    private final int[] days;
+    private final int[] categoryIds;
+    private final long[] createdAt;
+    private final long[] updatedAt;
+    
+    // System.nanoTime() when the query that filled the bucket started
+    private final long loadedAt;
+    
+    private MonthBucket(int size, long loadedAt) {
+        this.loadedAt = loadedAt;
+        ids = new long[size];
+        titles = new String[size];
+        descriptions = new String[size];
+        amountCents = new long[size];
+        currencies = new String[size];
+        baseAmountCents = new long[size];
+        days = new int[size];
+        categoryIds = new int[size];
+        createdAt = new long[size];
+        updatedAt = new long[size];
+    }
+    
+    static MonthBucket of(List<Row> rows, long loadedAt) {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingInt((Row row) -> row.day).thenComparingLong(row -> row.id).reversed());
+        MonthBucket bucket = new MonthBucket(sorted.size(), loadedAt);
+        for (int i = 0; i < sorted.size(); i++) {
+            Row row = sorted.get(i);
+            bucket.ids[i] = row.id;
+            bucket.titles[i] = row.title;
+            bucket.descriptions[i] = row.description;
+            bucket.amountCents[i] = row.amount.movePointRight(2).longValueExact();
+            bucket.currencies[i] = row.currency.intern();
+            bucket.baseAmountCents[i] = row.baseAmount.movePointRight(2).longValueExact();
+            bucket.days[i] = row.day;
+            bucket.categoryIds[i] = row.categoryId;
+            bucket.createdAt[i] = toMicros(row.createdAt);
+            bucket.updatedAt[i] = toMicros(row.updatedAt);
+        }
+        return bucket;
+    }
+    
+    long loadedAt() {
+        return loadedAt;
+    }
+    
+    int size() {
+        return ids.length;
+    }
+    
+    int dayOfMonth(int index) {
+        return days[index];
+    }
+    
+    int categoryId(int index) {
+        return categoryIds[index];
+    }
+    
+    Expense toExpense(int index, LocalDate month, User user, String category) {
+        Expense expense = new Expense();
+        expense.setId(ids[index]);
+        expense.setTitle(titles[index]);
+        expense.setDescription(descriptions[index]);
+        expense.setAmount(BigDecimal.valueOf(amountCents[index], 2));
+        expense.setCurrency(currencies[index]);
+        expense.setBaseAmount(BigDecimal.valueOf(baseAmountCents[index], 2));
+        expense.setExpenseDate(month.withDayOfMonth(days[index]));
+        expense.setCategoryId(categoryIds[index]);
+        expense.setCategory(category);
+        expense.setUser(user);
+        expense.setCreatedAt(fromMicros(createdAt[index]));
+        expense.setUpdatedAt(fromMicros(updatedAt[index]));
+        return expense;
+    }
+    
+    private static long toMicros(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return NO_TIMESTAMP;
+        }
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1000;
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_TIMESTAMP) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+    
+    /** An expense as read from the database, before it is packed into a bucket. */
+    static class Row {
+        long id;
+        String title;
+        String description;
+        BigDecimal amount;
+        String currency;
+        BigDecimal baseAmount;
+        int day;
+        int categoryId;
+        LocalDateTime createdAt;
+        LocalDateTime updatedAt;
+    }
+}
@@ -0,0 +1,108 @@
+package com.expensetracker.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical requests share one computation. The first caller for a
+ * (user, query) key runs it on its own thread; callers arriving while it runs wait
+ * for its result, or its exception, instead of running the query again. Nothing is
+ * kept once the computation finishes.
+ *
+ * A write by the user detaches their running computations when it commits, so a
+ * request made after the write never gets a result computed before it.
+ */
+@Component
+public class RequestCoalescer {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.coalescing.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+    
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Long userId, String query, Supplier<T> computation) {
+        List<Object> key = List.of(userId, query);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return (T) await(running, query);
+        }
+        
+        counter("coalescing.executions", query).increment();
+        T result;
+        try {
+            result = computation.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        // Removed before completing, so a caller can't pick up a result that is already done
+        inFlight.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+    
+    /** Detaches the user's running computations once the current transaction commits. */
+    public void forget(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            detach(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                detach(userId);
+            }
+        });
+    }
+    
+    private void detach(Long userId) {
+        inFlight.keySet().removeIf(key -> key.get(0).equals(userId));
+    }
+    
+    private Object await(CompletableFuture<Object> running, String query) {
+        try {
+            Object result = running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+            counter("coalescing.saved", query).increment();
+            return result;
+        } catch (TimeoutException e) {
+            counter("coalescing.timeouts", query).increment();
+            throw new CoalescedRequestTimeoutException("The request is taking too long, please try again shortly");
+        } catch (ExecutionException e) {
+            counter("coalescing.saved", query).increment();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + query, e);
+        }
+    }
+    
+    private Counter counter(String name, String query) {
+        return Counter.builder(name).tag("query", query).register(meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.expensetracker.category;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache of each user's category names and their integer keys.
+ * Categories are never renamed, so entries only leave the cache when the
+ * user falls out of the LRU window.
+ */
+@Component
+public class CategoryDictionary {
+    
+    public static final String DEFAULT_CATEGORY = "General";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.categories.cache-max-users:10000}")
+    private int maxCachedUsers;
+    
+    private final Map<Long, UserCategories> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, UserCategories> eldest) {
+            return size() > maxCachedUsers;
+        }
+    };
+    
+    public static String normalize(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return DEFAULT_CATEGORY;
+        }
+        return name.trim();
+    }
+    
+    /** Returns the key for the user's category, creating the category on first use. */
+    public Integer resolve(Long userId, String name) {
+        String normalized = normalize(name);
+        UserCategories categories = categoriesOf(userId);
+        Integer id = categories.idsByName.get(normalized);
+        if (id != null) {
+            return id;
+        }
+        
+        // The no-op update makes RETURNING yield the existing row when another request created it first
+        id = jdbcTemplate.queryForObject(
+                "INSERT INTO categories (user_id, name) VALUES (?, ?) " +
+                "ON CONFLICT (user_id, name) DO UPDATE SET name = EXCLUDED.name RETURNING id",
+                Integer.class, userId, normalized);
+        cacheAfterCommit(categories, id, normalized);
+        return id;
+    }
+    
+    /** Returns the key for an existing category, or null if the user never used it. */
+    public Integer find(Long userId, String name) {
+        String normalized = normalize(name);
+        UserCategories categories = categoriesOf(userId);
+        Integer id = categories.idsByName.get(normalized);
+        if (id == null) {
+            // Possibly created by another node after this user was cached; one row, not the whole user
+            id = jdbcTemplate.queryForList("SELECT id FROM categories WHERE user_id = ? AND name = ?",
+                    Integer.class, userId, normalized).stream().findFirst().orElse(null);
+            if (id != null) {
+                cacheAfterCommit(categories, id, normalized);
+            }
+        }
+        return id;
+    }
+    
+    public String nameOf(Long userId, Integer categoryId) {
+        if (categoryId == null) {
+            return DEFAULT_CATEGORY;
+        }
+        UserCategories categories = categoriesOf(userId);
+        String name = categories.namesById.get(categoryId);
+        if (name == null) {
+            // Created by another node after this user was cached
+            name = jdbcTemplate.queryForList("SELECT name FROM categories WHERE user_id = ? AND id = ?",
+                    String.class, userId, categoryId).stream().findFirst().orElse(null);
+            if (name != null) {
+                cacheAfterCommit(categories, categoryId, name);
+            }
+        }
+        return name;
+    }
+    
+    // A category inserted by a transaction that later rolls back must not stay cached; also used for
+    // rows read on a miss, which may be that same transaction's own insert
+    private void cacheAfterCommit(UserCategories categories, Integer id, String name) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    categories.put(id, name);
+                }
+            });
+        } else {
+            categories.put(id, name);
+        }
+    }
+    
+    public synchronized void evict(Long userId) {
+        cache.remove(userId);
+    }
+    
+    private UserCategories categoriesOf(Long userId) {
+        synchronized (this) {
+            UserCategories categories = cache.get(userId);
+            if (categories != null) {
+                return categories;
+            }
+        }
+        
+        UserCategories loaded = new UserCategories();
+        jdbcTemplate.query("SELECT id, name FROM categories WHERE user_id = ?",
+                (RowCallbackHandler) rs -> loaded.put(rs.getInt(1), rs.getString(2)),
+                userId);
+        
+        synchronized (this) {
+            UserCategories existing = cache.putIfAbsent(userId, loaded);
+            return existing != null ? existing : loaded;
+        }
+    }
+    
+    private static class UserCategories {
+        final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+        final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+        
+        void put(Integer id, String name) {
+            idsByName.put(name, id);
+            namesById.put(id, name);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.expensetracker.category;
+
+import com.expensetracker.model.Expense;
+import jakarta.persistence.PostLoad;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in the category name of loaded expenses from the dictionary cache,
+ * so list queries never join the categories table.
+ */
+@Component
+public class ExpenseCategoryListener {
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @PostLoad
+    public void resolveCategoryName(Expense expense) {
+        expense.setCategory(categoryDictionary.nameOf(expense.getUserId(), expense.getCategoryId()));
+    }
+}
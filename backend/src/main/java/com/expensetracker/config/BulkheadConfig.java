@@ -0,0 +1,123 @@
+package com.expensetracker.config;
+
+import com.expensetracker.bulkhead.Bulkhead;
+import com.expensetracker.bulkhead.BulkheadDataSource;
+import com.expensetracker.bulkhead.BulkheadFilter;
+import com.expensetracker.bulkhead.BulkheadGroup;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Separate request and connection limits for auth, CRUD and analytics endpoints,
+ * so a burst of heavy aggregate requests can't take the threads and connections
+ * that expense writes need. The pool has to hold every group's connection share
+ * at once, or one group could still starve the others, so startup fails when the
+ * shares add up to more than the pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.bulkheads", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(BulkheadProperties.class)
+public class BulkheadConfig {
+    
+    @Bean
+    public Map<BulkheadGroup, Bulkhead> bulkheads(
+            BulkheadProperties properties, MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            ObjectProvider<ShardingProperties> shardingProperties) {
+        int partitioned = properties.getAuth().getMaxConnections() + properties.getCrud().getMaxConnections()
+                + properties.getAnalytics().getMaxConnections();
+        ShardingProperties sharding = shardingProperties.getIfAvailable();
+        if (sharding != null) {
+            for (ShardingProperties.Shard shard : sharding.getShards()) {
+                checkPoolSize(shard.getName(), shard.getMaximumPoolSize(), partitioned);
+            }
+        } else {
+            checkPoolSize("primary", poolSize, partitioned);
+        }
+        
+        Map<BulkheadGroup, Bulkhead> bulkheads = new EnumMap<>(BulkheadGroup.class);
+        bulkheads.put(BulkheadGroup.AUTH, create(BulkheadGroup.AUTH, properties.getAuth()));
+        bulkheads.put(BulkheadGroup.CRUD, create(BulkheadGroup.CRUD, properties.getCrud()));
+        bulkheads.put(BulkheadGroup.ANALYTICS, create(BulkheadGroup.ANALYTICS, properties.getAnalytics()));
+        bulkheads.values().forEach(bulkhead -> registerMetrics(bulkhead, meterRegistry));
+        return bulkheads;
+    }
+    
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilter(Map<BulkheadGroup, Bulkhead> bulkheads,
+                                                                 BulkheadProperties properties) {
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(new BulkheadFilter(
+                bulkheads, properties.getAnalyticsDateRangeMonths(), properties.getRetryAfterSeconds()));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+    
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource
+                        && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+    
+    private static void checkPoolSize(String pool, int poolSize, int partitioned) {
+        if (partitioned > poolSize) {
+            throw new IllegalStateException("The bulkheads' max-connections add up to " + partitioned
+                    + " but the " + pool + " pool only has " + poolSize + " connections");
+        }
+    }
+    
+    private static Bulkhead create(BulkheadGroup group, BulkheadProperties.Group limits) {
+        return new Bulkhead(group, limits.getMaxConcurrentRequests(), limits.getMaxWaitMs(),
+                limits.getMaxConnections(), limits.getConnectionTimeoutMs());
+    }
+    
+    private static void registerMetrics(Bulkhead bulkhead, MeterRegistry meterRegistry) {
+        String group = bulkhead.getName();
+        Gauge.builder("bulkhead.requests.active", bulkhead, Bulkhead::getActiveRequests)
+                .description("Requests holding a slot in the group")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.requests.queued", bulkhead, Bulkhead::getQueuedRequests)
+                .description("Requests waiting for a slot")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.requests.saturation", bulkhead,
+                        b -> (double) b.getActiveRequests() / b.getMaxConcurrentRequests())
+                .description("Share of the group's request slots in use")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.connections.active", bulkhead, Bulkhead::getActiveConnections)
+                .description("Connections held by the group's requests")
+                .tag("group", group)
+                .register(meterRegistry);
+        FunctionCounter.builder("bulkhead.requests.rejected", bulkhead, Bulkhead::getRejected)
+                .description("Requests answered with 503 because the group was full")
+                .tag("group", group)
+                .register(meterRegistry);
+        FunctionCounter.builder("bulkhead.connections.timeouts", bulkhead, Bulkhead::getConnectionTimeouts)
+                .description("Connection requests that timed out on the group's partition")
+                .tag("group", group)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.expensetracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.bulkheads")
+public class BulkheadProperties {
+    
+    private boolean enabled = true;
+    
+    // GET /api/expenses/date-range over more months than this counts as analytics
+    private int analyticsDateRangeMonths = 12;
+    
+    private int retryAfterSeconds = 2;
+    
+    private Group auth = new Group(20, 100, 2);
+    private Group crud = new Group(150, 0, 10);
+    private Group analytics = new Group(8, 100, 4);
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    
+    public int getAnalyticsDateRangeMonths() { return analyticsDateRangeMonths; }
+    public void setAnalyticsDateRangeMonths(int analyticsDateRangeMonths) { this.analyticsDateRangeMonths = analyticsDateRangeMonths; }
+    
+    public int getRetryAfterSeconds() { return retryAfterSeconds; }
+    public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    
+    public Group getAuth() { return auth; }
+    public void setAuth(Group auth) { this.auth = auth; }
+    
+    public Group getCrud() { return crud; }
+    public void setCrud(Group crud) { this.crud = crud; }
+    
+    public Group getAnalytics() { return analytics; }
+    public void setAnalytics(Group analytics) { this.analytics = analytics; }
+    
+    public static class Group {
+        
+        private int maxConcurrentRequests;
+        
+        // How long a request may queue for a slot before it is rejected with 503
+        private long maxWaitMs;
+        
+        // Connections the group's requests may hold at once, across all pools
+        private int maxConnections;
+        
+        private long connectionTimeoutMs = 5000;
+        
+        public Group() {}
+        
+        Group(int maxConcurrentRequests, long maxWaitMs, int maxConnections) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            this.maxWaitMs = maxWaitMs;
+            this.maxConnections = maxConnections;
+        }
+        
+        public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+        public void setMaxConcurrentRequests(int maxConcurrentRequests) { this.maxConcurrentRequests = maxConcurrentRequests; }
+        
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+        
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        
+        public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+        public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+    }
+}
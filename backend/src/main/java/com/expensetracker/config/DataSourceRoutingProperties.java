@@ -0,0 +1,57 @@
+package com.expensetracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class DataSourceRoutingProperties {
+    
+    private boolean enabled = false;
+    
+    // Replicas lagging further behind than this are skipped until they catch up
+    private long maxLagMs = 5000;
+    
+    private long lagCheckIntervalMs = 2000;
+    
+    // How long a user's reads stay on the primary after one of their writes
+    private long readYourWritesWindowMs = 5000;
+    
+    private List<Replica> replicas = new ArrayList<>();
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    
+    public long getMaxLagMs() { return maxLagMs; }
+    public void setMaxLagMs(long maxLagMs) { this.maxLagMs = maxLagMs; }
+    
+    public long getLagCheckIntervalMs() { return lagCheckIntervalMs; }
+    public void setLagCheckIntervalMs(long lagCheckIntervalMs) { this.lagCheckIntervalMs = lagCheckIntervalMs; }
+    
+    public long getReadYourWritesWindowMs() { return readYourWritesWindowMs; }
+    public void setReadYourWritesWindowMs(long readYourWritesWindowMs) { this.readYourWritesWindowMs = readYourWritesWindowMs; }
+    
+    public List<Replica> getReplicas() { return replicas; }
+    public void setReplicas(List<Replica> replicas) { this.replicas = replicas; }
+    
+    public static class Replica {
+        
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+        
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        
+        public int getMaximumPoolSize() { return maximumPoolSize; }
+        public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+}
@@ -0,0 +1,72 @@
+package com.expensetracker.config;
+
+import com.expensetracker.analytics.AnalyticsGroupBy;
+import com.expensetracker.category.ExpenseCategoryListener;
+import com.expensetracker.dto.AmountPercentiles;
+import com.expensetracker.dto.AnalyticsBucket;
+import com.expensetracker.dto.ExpensePage;
+import com.expensetracker.dto.JwtResponse;
+import com.expensetracker.dto.LoginRequest;
+import com.expensetracker.dto.RegisterRequest;
+import com.expensetracker.dto.SpendingTrend;
+import com.expensetracker.model.*;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Hints for the AOT and native-image builds covering what Spring cannot infer:
+ * types Jackson binds behind ResponseEntity<?> or through IdempotencyService,
+ * the JPA entity listener, JJWT's implementation classes (loaded by name and
+ * through ServiceLoader), and the JDK proxies handed out by
+ * LazyConnectionDataSourceProxy (read-replica routing) and
+ * StatementCountingDataSource.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+    
+    private static final Class<?>[] JSON_TYPES = {
+            Expense.class, User.class, Budget.class, BudgetAlert.class, RecurringExpense.class, ImportJob.class,
+            AccountDeletionJob.class, ExpenseAttachment.class, RecurrenceFrequency.class, ImportStatus.class,
+            AccountDeletionStatus.class, AnalyticsGroupBy.class, JwtResponse.class, LoginRequest.class,
+            RegisterRequest.class, AnalyticsBucket.class, SpendingTrend.class, AmountPercentiles.class,
+            ExpensePage.class
+    };
+    
+    private static final String[] JJWT_TYPES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.compression.DefaultCompressionCodecResolver",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    };
+    
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+        
+        hints.reflection().registerType(ExpenseCategoryListener.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        
+        hints.proxies().registerJdkProxy(ConnectionProxy.class);
+        hints.proxies().registerJdkProxy(Connection.class);
+        hints.proxies().registerJdkProxy(Statement.class);
+        hints.proxies().registerJdkProxy(PreparedStatement.class);
+        hints.proxies().registerJdkProxy(CallableStatement.class);
+    }
+}
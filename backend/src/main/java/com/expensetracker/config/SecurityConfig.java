@@ -5,6 +5,7 @@ import com.expensetracker.security.JwtAuthenticationFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -74,7 +75,7 @@ public class SecurityConfig {
         configuration.setAllowCredentials(true);
         
         
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Idempotent-Replayed", "X-Correlation-Id"));
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -103,7 +104,10 @@ public class SecurityConfig {
                 .requestMatchers("OPTIONS", "/**").permitAll()
                 
                 
-                .requestMatchers("/api/actuator/**").permitAll()
+                .requestMatchers("/api/actuator/health/**").permitAll()
+                
+                // Job ids are random UUIDs, and the account is gone by the time the job completes
+                .requestMatchers(HttpMethod.GET, "/api/account-deletions/*").permitAll()
                 
                 
                 .requestMatchers("/h2-console/**").permitAll()
@@ -0,0 +1,113 @@
+package com.expensetracker.config;
+
+import com.expensetracker.datasource.ShardDirectory;
+import com.expensetracker.datasource.ShardRebalancer;
+import com.expensetracker.datasource.ShardRing;
+import com.expensetracker.datasource.ShardRoutingDataSource;
+import com.expensetracker.scheduling.JobLeaseManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spreads users over several databases by hashing their id. Only active when
+ * app.datasource.sharding.enabled=true, and not combinable with replica routing,
+ * which replaces the same primary datasource.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+    
+    // The catalog gets a small pool of its own so directory lookups never wait behind shard traffic
+    @Bean(destroyMethod = "close")
+    public HikariDataSource catalogDataSource(DataSourceProperties dataSourceProperties,
+                                              ShardingProperties shardingProperties) {
+        HikariDataSource catalog = createPool(dataSourceProperties, shardingProperties.getShards().get(0), "catalog");
+        catalog.setMaximumPoolSize(4);
+        return catalog;
+    }
+    
+    @Bean
+    public ShardDirectory shardDirectory(HikariDataSource catalogDataSource, ShardingProperties shardingProperties) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < shardingProperties.getShards().size(); i++) {
+            names.add(shardName(shardingProperties, i));
+        }
+        ShardRing ring = new ShardRing(names, shardingProperties.getVirtualNodes());
+        return new ShardDirectory(new JdbcTemplate(catalogDataSource), ring,
+                shardingProperties.getDirectoryCacheMaxUsers());
+    }
+    
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                         ShardingProperties shardingProperties,
+                                                         ShardDirectory shardDirectory) {
+        Map<String, HikariDataSource> shards = new LinkedHashMap<>();
+        List<ShardingProperties.Shard> configured = shardingProperties.getShards();
+        for (int i = 0; i < configured.size(); i++) {
+            String name = shardName(shardingProperties, i);
+            shards.put(name, createPool(dataSourceProperties, configured.get(i), name));
+        }
+        
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shards, shardDirectory);
+        routingDataSource.afterPropertiesSet();
+        return routingDataSource;
+    }
+    
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        // Background threads pin their shard before the first statement, not before the transaction begins
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+    
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardRoutingDataSource shardRoutingDataSource,
+                                           ShardDirectory shardDirectory,
+                                           JobLeaseManager jobLeaseManager,
+                                           ShardingProperties shardingProperties) {
+        return new ShardRebalancer(shardRoutingDataSource, shardDirectory, jobLeaseManager,
+                shardingProperties.getMoveGraceMs(), shardingProperties.getMoveDeleteChunkSize());
+    }
+    
+    // Each transaction has to pick its shard afresh; see DataSourceRoutingConfig
+    @Bean
+    public HibernatePropertiesCustomizer releaseShardConnectionAfterTransaction() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+    
+    private static String shardName(ShardingProperties shardingProperties, int index) {
+        String name = shardingProperties.getShards().get(index).getName();
+        return name != null ? name : "shard-" + index;
+    }
+    
+    private static HikariDataSource createPool(DataSourceProperties dataSourceProperties,
+                                               ShardingProperties.Shard shard, String poolName) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.getDriverClassName())
+                .url(shard.getUrl())
+                .username(shard.getUsername() != null ? shard.getUsername() : dataSourceProperties.getUsername())
+                .password(shard.getPassword() != null ? shard.getPassword() : dataSourceProperties.getPassword())
+                .build();
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+        return dataSource;
+    }
+}
@@ -0,0 +1,73 @@
+package com.expensetracker.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource.sharding")
+public class ShardingProperties {
+    
+    private boolean enabled = false;
+    
+    // Points per shard on the hash ring; more points spread users more evenly
+    private int virtualNodes = 128;
+    
+    private int directoryCacheMaxUsers = 100000;
+    
+    private long directorySyncIntervalMs = 5000;
+    
+    // How long each step of a move waits for every instance to notice the previous one
+    private long moveGraceMs = 15000;
+    
+    private int moveDeleteChunkSize = 5000;
+    
+    // The first shard also holds the catalog (user_directory)
+    private List<Shard> shards = new ArrayList<>();
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    
+    public int getVirtualNodes() { return virtualNodes; }
+    public void setVirtualNodes(int virtualNodes) { this.virtualNodes = virtualNodes; }
+    
+    public int getDirectoryCacheMaxUsers() { return directoryCacheMaxUsers; }
+    public void setDirectoryCacheMaxUsers(int directoryCacheMaxUsers) { this.directoryCacheMaxUsers = directoryCacheMaxUsers; }
+    
+    public long getDirectorySyncIntervalMs() { return directorySyncIntervalMs; }
+    public void setDirectorySyncIntervalMs(long directorySyncIntervalMs) { this.directorySyncIntervalMs = directorySyncIntervalMs; }
+    
+    public long getMoveGraceMs() { return moveGraceMs; }
+    public void setMoveGraceMs(long moveGraceMs) { this.moveGraceMs = moveGraceMs; }
+    
+    public int getMoveDeleteChunkSize() { return moveDeleteChunkSize; }
+    public void setMoveDeleteChunkSize(int moveDeleteChunkSize) { this.moveDeleteChunkSize = moveDeleteChunkSize; }
+    
+    public List<Shard> getShards() { return shards; }
+    public void setShards(List<Shard> shards) { this.shards = shards; }
+    
+    public static class Shard {
+        
+        // Stored in user_directory; never rename a shard that holds users
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+        
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        
+        public int getMaximumPoolSize() { return maximumPoolSize; }
+        public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+}
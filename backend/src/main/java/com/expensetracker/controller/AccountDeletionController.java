@@ -0,0 +1,30 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.AccountDeletionJob;
+import com.expensetracker.service.AccountDeletionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/account-deletions")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class AccountDeletionController {
+    
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+    
+    // Poll a deletion started by DELETE /api/user/account; works without a token
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable UUID jobId) {
+        Optional<AccountDeletionJob> job = accountDeletionService.getJob(jobId);
+        
+        if (job.isPresent()) {
+            return ResponseEntity.ok(job.get());
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -4,8 +4,10 @@ import com.expensetracker.dto.JwtResponse;
 import com.expensetracker.dto.LoginRequest;
 import com.expensetracker.dto.RegisterRequest;
 import com.expensetracker.model.User;
+import com.expensetracker.security.AuthenticatedUser;
 import com.expensetracker.security.CustomUserDetailsService;
 import com.expensetracker.security.JwtUtil;
+import com.expensetracker.security.TokenRevocationRegistry;
 import com.expensetracker.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,7 +15,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -36,6 +37,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+    
     // Register new user
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody RegisterRequest registerRequest) {
@@ -52,8 +56,7 @@ public class AuthController {
             User savedUser = userService.registerUser(user);
             
            
-            UserDetails userDetails = userDetailsService.loadUserByUsername(savedUser.getUsername());
-            String token = jwtUtil.generateToken(userDetails);
+            String token = jwtUtil.generateToken(new AuthenticatedUser(savedUser));
             JwtResponse jwtResponse = new JwtResponse(
                 token, 
                 savedUser.getUsername(), 
@@ -63,6 +66,14 @@ public class AuthController {
             
             return ResponseEntity.ok(jwtResponse);
             
+        } catch (UserService.DuplicateUserException e) {
+            Map<String, String> errors = new HashMap<>();
+            errors.put(e.getField(), e.getMessage());
+            
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("errors", errors);
+            return ResponseEntity.badRequest().body(error);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -83,11 +94,11 @@ public class AuthController {
             );
             
            
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            User user = userDetailsService.getUserByUsername(userDetails.getUsername());
+            // The principal already carries the id and email of the row authentication loaded
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
             
        
-            String token = jwtUtil.generateToken(userDetails);
+            String token = jwtUtil.generateToken(user);
             
             
             JwtResponse jwtResponse = new JwtResponse(
@@ -137,6 +148,35 @@ public class AuthController {
         }
     }
     
+    // Revoke the presented token; other sessions of the user stay signed in
+    @PostMapping("/logout")
+    public ResponseEntity<?> logoutUser(@RequestHeader("Authorization") String authHeader) {
+        try {
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                String token = authHeader.substring(7);
+                
+                if (jwtUtil.validateToken(token)) {
+                    User user = userDetailsService.getUserByUsername(jwtUtil.extractUsername(token));
+                    revocationRegistry.revokeToken(user.getId(), jwtUtil.extractTokenId(token),
+                            jwtUtil.extractExpiration(token));
+                }
+                
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Logged out successfully");
+                return ResponseEntity.ok(response);
+            }
+            
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Invalid token");
+            return ResponseEntity.badRequest().body(error);
+            
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
     
     @GetMapping("/check-username/{username}")
     public ResponseEntity<?> checkUsername(@PathVariable String username) {
@@ -0,0 +1,71 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.security.AuthenticatedUser;
+import com.expensetracker.service.BudgetService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/budgets")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class BudgetController {
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<Budget>> getBudgets() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(budgetService.getBudgets(userId));
+    }
+    
+    // Create or replace the monthly budget for a category
+    @PostMapping
+    public ResponseEntity<?> saveBudget(@Valid @RequestBody Budget budget) {
+        try {
+            Long userId = getCurrentUserId();
+            Budget savedBudget = budgetService.saveBudget(userId, budget);
+            return ResponseEntity.ok(savedBudget);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteBudget(@PathVariable Long id) {
+        try {
+            Long userId = getCurrentUserId();
+            budgetService.deleteBudget(id, userId);
+            
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Budget deleted successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getBudgetStatus() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(budgetService.getBudgetStatus(userId));
+    }
+}
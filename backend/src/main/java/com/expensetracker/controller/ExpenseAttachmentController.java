@@ -0,0 +1,86 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.attachment.ExpenseAttachmentService;
+import com.expensetracker.attachment.ReceiptDownload;
+import com.expensetracker.model.ExpenseAttachment;
+import com.expensetracker.security.AuthenticatedUser;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/expenses/{expenseId}/attachments")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class ExpenseAttachmentController {
+    
+    @Autowired
+    private ExpenseAttachmentService attachmentService;
+    
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
+    }
+    
+    // Attach a receipt (PDF, JPEG, PNG, WebP or HEIC) to one of the user's expenses
+    @PostMapping
+    public ResponseEntity<?> attach(@PathVariable Long expenseId, @RequestParam("file") MultipartFile file) {
+        try {
+            Long userId = getCurrentUserId();
+            Optional<ExpenseAttachment> attachment = attachmentService.attach(userId, expenseId, file);
+            
+            if (attachment.isPresent()) {
+                return ResponseEntity.status(HttpStatus.CREATED).body(attachment.get());
+            }
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<ExpenseAttachment>> getAttachments(@PathVariable Long expenseId) {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(attachmentService.getAttachments(userId, expenseId));
+    }
+    
+    // The receipt itself; supports If-None-Match and single byte ranges
+    @GetMapping("/{attachmentId}/content")
+    public void download(@PathVariable Long expenseId, @PathVariable Long attachmentId,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Long userId = getCurrentUserId();
+        Optional<ExpenseAttachment> attachment = attachmentService.getAttachment(userId, expenseId, attachmentId);
+        Optional<Path> file = attachment.flatMap(attachmentService::getContent);
+        
+        if (file.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ReceiptDownload.write(request, response, attachment.get(), file.get());
+    }
+    
+    @DeleteMapping("/{attachmentId}")
+    public ResponseEntity<?> deleteAttachment(@PathVariable Long expenseId, @PathVariable Long attachmentId) {
+        Long userId = getCurrentUserId();
+        if (attachmentService.deleteAttachment(userId, expenseId, attachmentId)) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Attachment deleted successfully");
+            return ResponseEntity.ok(response);
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -1,11 +1,19 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.analytics.AnalyticsGroupBy;
+import com.expensetracker.cache.RequestCoalescer;
+import com.expensetracker.dto.AnalyticsBucket;
+import com.expensetracker.dto.ExpensePage;
 import com.expensetracker.model.Expense;
-import com.expensetracker.security.CustomUserDetailsService;
+import com.expensetracker.query.ExpenseQuery;
+import com.expensetracker.query.ExpenseQueryService;
+import com.expensetracker.security.AuthenticatedUser;
 import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.IdempotencyService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -27,16 +35,18 @@ public class ExpenseController {
     private ExpenseService expenseService;
     
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private ExpenseQueryService expenseQueryService;
     
    
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        System.out.println("Authentication: " + authentication);
-        System.out.println("Username from auth: " + username);
-        
-        return userDetailsService.getUserByUsername(username).getId();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
     }
     
     
@@ -70,11 +80,31 @@ public class ExpenseController {
     
    
     @PostMapping
-    public ResponseEntity<?> createExpense(@Valid @RequestBody Expense expense) {
+    public ResponseEntity<?> createExpense(@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                           @Valid @RequestBody Expense expense) {
         try {
             Long userId = getCurrentUserId();
+            
+            if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+                if (idempotencyKey.length() > 255) {
+                    Map<String, String> error = new HashMap<>();
+                    error.put("error", "Idempotency-Key cannot exceed 255 characters");
+                    return ResponseEntity.badRequest().body(error);
+                }
+                IdempotencyService.StoredResponse response =
+                        idempotencyService.createExpense(userId, idempotencyKey, expense);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Idempotent-Replayed", String.valueOf(response.isReplayed()))
+                        .body(response.getBody());
+            }
+            
             Expense savedExpense = expenseService.createExpense(expense, userId);
             return ResponseEntity.ok(savedExpense);
+        } catch (IdempotencyService.KeyReusedException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.unprocessableEntity().body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -133,6 +163,43 @@ public class ExpenseController {
     }
     
    
+    // Combined filters and sort with keyset pagination; pass nextCursor back as cursor for the next page
+    @GetMapping("/query")
+    public ResponseEntity<?> queryExpenses(
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String text,
+            @RequestParam(defaultValue = "date,desc") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        ExpenseQuery query = new ExpenseQuery();
+        if (category != null) {
+            query.setCategories(category);
+        }
+        query.setStartDate(startDate);
+        query.setEndDate(endDate);
+        query.setMinAmount(minAmount);
+        query.setMaxAmount(maxAmount);
+        query.setText(text);
+        query.setSort(sort);
+        query.setCursor(cursor);
+        query.setLimit(limit);
+        
+        Long userId = getCurrentUserId();
+        try {
+            ExpensePage page = expenseQueryService.query(userId, query);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+   
     @GetMapping("/current-month")
     public ResponseEntity<List<Expense>> getCurrentMonthExpenses() {
         Long userId = getCurrentUserId();
@@ -144,7 +211,8 @@ public class ExpenseController {
     @GetMapping("/statistics")
     public ResponseEntity<Map<String, Object>> getExpenseStatistics() {
         Long userId = getCurrentUserId();
-        Map<String, Object> stats = expenseService.getExpenseStatistics(userId);
+        Map<String, Object> stats = requestCoalescer.execute(userId, "statistics",
+                () -> expenseService.getExpenseStatistics(userId));
         return ResponseEntity.ok(stats);
     }
     
@@ -152,14 +220,52 @@ public class ExpenseController {
     @GetMapping("/chart/category")
     public ResponseEntity<Map<String, BigDecimal>> getExpensesByCategory() {
         Long userId = getCurrentUserId();
-        Map<String, BigDecimal> categoryData = expenseService.getExpensesByCategory(userId);
+        Map<String, BigDecimal> categoryData = requestCoalescer.execute(userId, "chart/category",
+                () -> expenseService.getExpensesByCategory(userId));
         return ResponseEntity.ok(categoryData);
     }
     
     @GetMapping("/chart/monthly")
     public ResponseEntity<Map<String, BigDecimal>> getMonthlyExpenses() {
         Long userId = getCurrentUserId();
-        Map<String, BigDecimal> monthlyData = expenseService.getMonthlyExpenses(userId);
+        Map<String, BigDecimal> monthlyData = requestCoalescer.execute(userId, "chart/monthly",
+                () -> expenseService.getMonthlyExpenses(userId));
         return ResponseEntity.ok(monthlyData);
     }
+    
+    @GetMapping("/{id}/rank")
+    public ResponseEntity<?> getExpenseRank(@PathVariable Long id) {
+        Long userId = getCurrentUserId();
+        Optional<Map<String, Object>> rank = expenseService.getExpenseRank(id, userId);
+        if (rank.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rank.get());
+    }
+    
+    @GetMapping("/trends")
+    public ResponseEntity<Map<String, Object>> getSpendingTrends() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(expenseService.getSpendingTrends(userId));
+    }
+    
+    @GetMapping("/analytics")
+    public ResponseEntity<?> getAnalytics(
+            @RequestParam(defaultValue = "MONTH") String groupBy,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String category) {
+        AnalyticsGroupBy grouping;
+        try {
+            grouping = AnalyticsGroupBy.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Unsupported groupBy: " + groupBy);
+            return ResponseEntity.badRequest().body(error);
+        }
+        
+        Long userId = getCurrentUserId();
+        List<AnalyticsBucket> buckets = expenseService.getAnalytics(userId, grouping, startDate, endDate, category);
+        return ResponseEntity.ok(buckets);
+    }
 }
@@ -0,0 +1,71 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.importer.ExpenseImportService;
+import com.expensetracker.model.ImportJob;
+import com.expensetracker.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/expenses/import")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class ExpenseImportController {
+    
+    @Autowired
+    private ExpenseImportService importService;
+    
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
+    }
+    
+    // Upload a CSV or OFX statement; the import runs in the background
+    @PostMapping
+    public ResponseEntity<?> importStatement(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(required = false) String format,
+                                             @RequestParam(required = false) String dateFormat,
+                                             @RequestParam(defaultValue = "false") boolean debitsNegative) {
+        try {
+            if (file.isEmpty()) {
+                Map<String, String> error = new HashMap<>();
+                error.put("error", "The uploaded file is empty");
+                return ResponseEntity.badRequest().body(error);
+            }
+            Long userId = getCurrentUserId();
+            ImportJob job = importService.startImport(userId, file, format, dateFormat, debitsNegative);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<ImportJob>> getRecentJobs() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(importService.getRecentJobs(userId));
+    }
+    
+    // Poll an import for progress and the final row counts
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable Long jobId) {
+        Long userId = getCurrentUserId();
+        Optional<ImportJob> job = importService.getJob(jobId, userId);
+        
+        if (job.isPresent()) {
+            return ResponseEntity.ok(job.get());
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
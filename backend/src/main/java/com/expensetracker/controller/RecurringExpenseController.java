@@ -0,0 +1,77 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.security.AuthenticatedUser;
+import com.expensetracker.service.RecurringExpenseService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/recurring-expenses")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class RecurringExpenseController {
+    
+    @Autowired
+    private RecurringExpenseService recurringExpenseService;
+    
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<RecurringExpense>> getRules() {
+        Long userId = getCurrentUserId();
+        return ResponseEntity.ok(recurringExpenseService.getRules(userId));
+    }
+    
+    @PostMapping
+    public ResponseEntity<?> createRule(@Valid @RequestBody RecurringExpense rule) {
+        try {
+            Long userId = getCurrentUserId();
+            RecurringExpense savedRule = recurringExpenseService.createRule(rule, userId);
+            return ResponseEntity.ok(savedRule);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updateRule(@PathVariable Long id, @Valid @RequestBody RecurringExpense rule) {
+        try {
+            Long userId = getCurrentUserId();
+            RecurringExpense updatedRule = recurringExpenseService.updateRule(id, rule, userId);
+            return ResponseEntity.ok(updatedRule);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteRule(@PathVariable Long id) {
+        try {
+            Long userId = getCurrentUserId();
+            recurringExpenseService.deleteRule(id, userId);
+            
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Recurring expense deleted successfully");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.model.AccountDeletionJob;
 import com.expensetracker.model.User;
-import com.expensetracker.security.CustomUserDetailsService;
+import com.expensetracker.security.AuthenticatedUser;
 import com.expensetracker.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -22,13 +25,9 @@ public class UserController {
     @Autowired
     private UserService userService;
     
-    @Autowired
-    private CustomUserDetailsService userDetailsService;
-    
     private Long getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userDetailsService.getUserByUsername(username).getId();
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
     }
     
     @GetMapping("/profile")
@@ -95,11 +94,11 @@ public class UserController {
     public ResponseEntity<?> deleteAccount() {
         try {
             Long userId = getCurrentUserId();
-            userService.deleteUser(userId);
+            AccountDeletionJob job = userService.deleteUser(userId);
             
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Account deleted successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/account-deletions/" + job.getId()))
+                    .body(job);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
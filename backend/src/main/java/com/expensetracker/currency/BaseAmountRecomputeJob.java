@@ -0,0 +1,284 @@
+package com.expensetracker.currency;
+
+import com.expensetracker.analytics.AmountSketchEngine;
+import com.expensetracker.analytics.ColumnarAnalyticsEngine;
+import com.expensetracker.cache.ExpenseRangeCache;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.outbox.ExpenseEventType;
+import com.expensetracker.outbox.ExpenseOutbox;
+import com.expensetracker.scheduling.JobLeaseManager;
+import com.expensetracker.service.BudgetService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites expenses.base_amount after an exchange rate correction, in keyset-paged
+ * chunks. Only rows whose stored value actually changes are updated, and the
+ * difference is applied to the budget spend counters, so running the job twice
+ * (for instance on two nodes that both saw the new rate files) changes nothing
+ * the second time.
+ *
+ * Each shard records in applied_exchange_rates the rates its base amounts were
+ * last brought in line with. A run compares the current rates with those rather
+ * than with whatever this node loaded before, so a node that starts after the
+ * rate files changed still recomputes. Runs happen on the job's own thread, one
+ * node per shard at a time under a job lease.
+ */
+@Component
+public class BaseAmountRecomputeJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(BaseAmountRecomputeJob.class);
+    
+    private static final String JOB_NAME = "base-amount-recompute";
+    
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    
+    private static final String SELECT_APPLIED_SQL = "SELECT currency, rate_date, rate FROM applied_exchange_rates";
+    
+    private static final String INSERT_APPLIED_SQL =
+            "INSERT INTO applied_exchange_rates (currency, rate_date, rate) " +
+            "SELECT * FROM unnest(?::varchar[], ?::date[], ?::numeric[])";
+    
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id FROM expenses " +
+            "WHERE currency = ? AND expense_date >= ? AND id > ? ORDER BY id LIMIT ?";
+    
+    // Converted from the locked row, so an edit that commits after the chunk was listed is never overwritten
+    private static final String LOCK_CHUNK_SQL =
+            "SELECT id, user_id, title, category_id, amount, currency, expense_date, base_amount FROM expenses " +
+            "WHERE id = ANY(?::bigint[]) ORDER BY id FOR UPDATE";
+    
+    private static final String UPDATE_CHUNK_SQL =
+            "UPDATE expenses e SET base_amount = t.base_amount, updated_at = now() " +
+            "FROM unnest(?::bigint[], ?::numeric[]) AS t(id, base_amount) WHERE e.id = t.id";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    @Autowired
+    private ColumnarAnalyticsEngine analyticsEngine;
+    
+    @Autowired
+    private AmountSketchEngine sketchEngine;
+    
+    @Autowired
+    private ExpenseRangeCache rangeCache;
+    
+    @Autowired
+    private ExpenseOutbox expenseOutbox;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private JobLeaseManager leaseManager;
+    
+    @Value("${app.currency.recompute-chunk-size:1000}")
+    private int chunkSize;
+    
+    private ExecutorService runner;
+    private TransactionTemplate transactionTemplate;
+    
+    // The newest rates to reconcile with; a run queued behind a running one picks them up
+    private volatile ExchangeRateTable latest;
+    private final AtomicBoolean queued = new AtomicBoolean();
+    private volatile boolean incomplete;
+    
+    @PostConstruct
+    public void init() {
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "base-amount-recompute");
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+    
+    /** Brings stored base amounts in line with the rates on the job's own thread, and returns at once. */
+    public void submit(ExchangeRateTable rates) {
+        latest = rates;
+        if (!queued.compareAndSet(false, true)) {
+            return;
+        }
+        runner.execute(() -> {
+            queued.set(false);
+            try {
+                incomplete = !reconcile(latest);
+            } catch (RuntimeException e) {
+                incomplete = true;
+                log.error("Recomputing base amounts failed", e);
+            }
+        });
+    }
+    
+    /** True when the last run left a shard out, because it failed or another node held the lease. */
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+    
+    private boolean reconcile(ExchangeRateTable rates) {
+        boolean[] complete = {true};
+        ShardContext.forEachShard(shard -> complete[0] &= reconcileOnShard(rates));
+        return complete[0];
+    }
+    
+    // Leases are per shard, since each shard has its own job_leases table
+    private boolean reconcileOnShard(ExchangeRateTable rates) {
+        if (!leaseManager.tryAcquire(JOB_NAME, 0, LEASE)) {
+            return false;
+        }
+        try {
+            Map<String, Map<LocalDate, BigDecimal>> applied = new HashMap<>();
+            jdbcTemplate.query(SELECT_APPLIED_SQL, (RowCallbackHandler) rs -> applied
+                    .computeIfAbsent(rs.getString(1), currency -> new HashMap<>())
+                    .put(rs.getDate(2).toLocalDate(), rs.getBigDecimal(3)));
+            Map<String, LocalDate> changed = rates.changedSince(ExchangeRateTable.of(rates.getBaseCurrency(), applied));
+            if (changed.isEmpty()) {
+                return true;
+            }
+            
+            log.info("Exchange rates differ from the stored base amounts' for {}, recomputing", changed);
+            int updated = recomputeOnShard(changed, rates);
+            if (updated < 0) {
+                log.warn("Lost the base amount recompute lease, leaving the rest for a later run");
+                return false;
+            }
+            transactionTemplate.executeWithoutResult(status -> saveApplied(rates));
+            log.info("Recomputed base amounts of {} expenses", updated);
+            return true;
+        } finally {
+            leaseManager.release(JOB_NAME, 0);
+        }
+    }
+    
+    private void saveApplied(ExchangeRateTable rates) {
+        List<String> currencies = new ArrayList<>();
+        List<Date> dates = new ArrayList<>();
+        List<BigDecimal> values = new ArrayList<>();
+        rates.getRates().forEach((currency, byDate) -> byDate.forEach((date, rate) -> {
+            currencies.add(currency);
+            dates.add(Date.valueOf(date));
+            values.add(rate);
+        }));
+        jdbcTemplate.update("DELETE FROM applied_exchange_rates");
+        jdbcTemplate.update(INSERT_APPLIED_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("varchar", currencies.toArray()));
+            ps.setArray(2, connection.createArrayOf("date", dates.toArray()));
+            ps.setArray(3, connection.createArrayOf("numeric", values.toArray()));
+        });
+    }
+    
+    // Returns -1 when the lease was lost part way
+    private int recomputeOnShard(Map<String, LocalDate> changedSince, ExchangeRateTable rates) {
+        int updated = 0;
+        
+        for (Map.Entry<String, LocalDate> change : changedSince.entrySet()) {
+            String currency = change.getKey();
+            long afterId = 0;
+            
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, Long.class,
+                        currency, Date.valueOf(change.getValue()), afterId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+                
+                Set<Long> touchedUsers = new HashSet<>();
+                updated += transactionTemplate.execute(status -> updateChunk(ids, rates, touchedUsers));
+                touchedUsers.forEach(analyticsEngine::evict);
+                if (!leaseManager.renew(JOB_NAME, 0, LEASE)) {
+                    return -1;
+                }
+            }
+        }
+        return updated;
+    }
+    
+    private int updateChunk(List<Long> ids, ExchangeRateTable rates, Set<Long> touchedUsers) {
+        Map<List<Object>, BigDecimal> spendDeltas = new HashMap<>();
+        Map<List<Object>, Integer> sketchDeltas = new HashMap<>();
+        List<Long> changedIds = new ArrayList<>();
+        List<BigDecimal> baseAmounts = new ArrayList<>();
+        List<Long> eventUserIds = new ArrayList<>();
+        List<Map<String, Object>> eventPayloads = new ArrayList<>();
+        
+        jdbcTemplate.query(LOCK_CHUNK_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("int8", ids.toArray()));
+        }, (RowCallbackHandler) rs -> {
+            LocalDate date = rs.getDate("expense_date").toLocalDate();
+            BigDecimal previous = rs.getBigDecimal("base_amount");
+            BigDecimal baseAmount = rates.toBase(rs.getBigDecimal("amount"), rs.getString("currency"), date);
+            if (baseAmount == null || baseAmount.compareTo(previous) == 0) {
+                return;
+            }
+            long userId = rs.getLong("user_id");
+            int categoryId = rs.getInt("category_id");
+            changedIds.add(rs.getLong("id"));
+            baseAmounts.add(baseAmount);
+            spendDeltas.merge(List.of(userId, categoryId, date.withDayOfMonth(1)), baseAmount.subtract(previous), BigDecimal::add);
+            sketchDeltas.merge(List.of(userId, categoryId, previous), -1, Integer::sum);
+            sketchDeltas.merge(List.of(userId, categoryId, baseAmount), 1, Integer::sum);
+            touchedUsers.add(userId);
+            
+            Map<String, Object> payload = ExpenseOutbox.stateOf(rs.getLong("id"), rs.getString("title"),
+                    rs.getBigDecimal("amount"), rs.getString("currency"), baseAmount, date, categoryId,
+                    categoryDictionary.nameOf(userId, categoryId));
+            Map<String, Object> replaced = new LinkedHashMap<>();
+            replaced.put("categoryId", categoryId);
+            replaced.put("expenseDate", date);
+            replaced.put("baseAmount", previous);
+            payload.put("previous", replaced);
+            eventUserIds.add(userId);
+            eventPayloads.add(payload);
+        });
+        if (changedIds.isEmpty()) {
+            return 0;
+        }
+        
+        jdbcTemplate.update(UPDATE_CHUNK_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8", changedIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("numeric", baseAmounts.toArray()));
+        });
+        expenseOutbox.recordBatch(ExpenseEventType.UPDATED, eventUserIds, changedIds, eventPayloads);
+        
+        spendDeltas.forEach((key, delta) ->
+                budgetService.recordSpend((Long) key.get(0), (Integer) key.get(1), (LocalDate) key.get(2), delta));
+        sketchEngine.recordAmounts(sketchDeltas);
+        spendDeltas.keySet().forEach(key -> rangeCache.invalidate((Long) key.get(0), (LocalDate) key.get(2)));
+        return changedIds.size();
+    }
+}
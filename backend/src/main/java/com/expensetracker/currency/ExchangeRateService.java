@@ -0,0 +1,146 @@
+package com.expensetracker.currency;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves exchange rates from CSV files in app.currency.rates-dir. The files are
+ * re-read when they change; if a correction alters rates that existing expenses
+ * were converted with, their stored base amounts are recomputed in the background.
+ * The same check runs once the application is ready, for rate files that changed
+ * while this node was down.
+ */
+@Service
+public class ExchangeRateService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExchangeRateService.class);
+    
+    @Value("${app.currency.base:USD}")
+    private String baseCurrency;
+    
+    @Value("${app.currency.rates-dir:rates}")
+    private String ratesDir;
+    
+    @Autowired
+    private BaseAmountRecomputeJob recomputeJob;
+    
+    private volatile ExchangeRateTable table;
+    private volatile String loadedFingerprint;
+    
+    @PostConstruct
+    public void init() {
+        baseCurrency = baseCurrency.toUpperCase();
+        loadedFingerprint = fingerprint();
+        table = loadTable();
+    }
+    
+    // Not in init(): the check reads the database, which a CDS training run must not touch
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkStoredBaseAmounts() {
+        recomputeJob.submit(table);
+    }
+    
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+    
+    /** Upper-cases the code and defaults a missing one to the base currency. */
+    public String normalize(String currency) {
+        if (currency == null || currency.trim().isEmpty()) {
+            return baseCurrency;
+        }
+        return currency.trim().toUpperCase();
+    }
+    
+    public BigDecimal toBase(BigDecimal amount, String currency, LocalDate date) {
+        ExchangeRateTable current = table;
+        if (!current.supports(currency)) {
+            throw new RuntimeException("Unsupported currency: " + currency);
+        }
+        BigDecimal baseAmount = current.toBase(amount, currency, date);
+        if (baseAmount == null) {
+            throw new RuntimeException("No " + currency + " exchange rate on or before " + date);
+        }
+        return baseAmount;
+    }
+    
+    @Scheduled(fixedDelayString = "${app.currency.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        String fingerprint = fingerprint();
+        if (fingerprint.equals(loadedFingerprint)) {
+            if (recomputeJob.isIncomplete()) {
+                recomputeJob.submit(table);
+            }
+            return;
+        }
+        
+        ExchangeRateTable previous = table;
+        ExchangeRateTable reloaded;
+        try {
+            reloaded = loadTable();
+        } catch (RuntimeException e) {
+            log.error("Keeping previous exchange rates, could not load {}: {}", ratesDir, e.getMessage());
+            return;
+        }
+        table = reloaded;
+        loadedFingerprint = fingerprint;
+        
+        Map<String, LocalDate> changed = reloaded.changedSince(previous);
+        if (!changed.isEmpty()) {
+            log.info("Exchange rates changed for {}, recomputing base amounts", changed);
+            recomputeJob.submit(reloaded);
+        }
+    }
+    
+    private ExchangeRateTable loadTable() {
+        try {
+            return ExchangeRateTable.load(baseCurrency, rateFiles());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private List<Path> rateFiles() {
+        Path dir = Paths.get(ratesDir);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".csv")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private String fingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : rateFiles()) {
+            try {
+                fingerprint.append(file).append(':').append(Files.getLastModifiedTime(file).toMillis())
+                        .append(':').append(Files.size(file)).append(';');
+            } catch (IOException e) {
+                fingerprint.append(file).append(":unreadable;");
+            }
+        }
+        return fingerprint.toString();
+    }
+}
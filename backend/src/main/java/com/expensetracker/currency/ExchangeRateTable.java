@@ -0,0 +1,125 @@
+package com.expensetracker.currency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Immutable snapshot of exchange rates into the base currency. A rate applies from
+ * its date until the next listed date, so weekends and holidays use the last
+ * published rate.
+ *
+ * Rate files are CSV lines of {@code currency,date,rate}, where rate is the value of
+ * one unit of the currency in the base currency. Blank lines and lines starting with
+ * '#' are ignored, as is a leading header row.
+ */
+public final class ExchangeRateTable {
+    
+    private final String baseCurrency;
+    private final Map<String, NavigableMap<LocalDate, BigDecimal>> rates;
+    
+    private ExchangeRateTable(String baseCurrency, Map<String, NavigableMap<LocalDate, BigDecimal>> rates) {
+        this.baseCurrency = baseCurrency;
+        this.rates = rates;
+    }
+    
+    public static ExchangeRateTable load(String baseCurrency, List<Path> files) throws IOException {
+        Map<String, TreeMap<LocalDate, BigDecimal>> building = new HashMap<>();
+        
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#") || (lineNumber == 1 && line.startsWith("currency"))) {
+                        continue;
+                    }
+                    String[] fields = line.split(",");
+                    if (fields.length != 3) {
+                        throw new IOException(file + ":" + lineNumber + ": expected currency,date,rate");
+                    }
+                    String currency = fields[0].trim().toUpperCase();
+                    building.computeIfAbsent(currency, c -> new TreeMap<>())
+                            .put(LocalDate.parse(fields[1].trim()), new BigDecimal(fields[2].trim()));
+                }
+            }
+        }
+        
+        return of(baseCurrency, building);
+    }
+    
+    /** A table of the given rates, keyed by currency and the date each rate applies from. */
+    public static ExchangeRateTable of(String baseCurrency, Map<String, ? extends Map<LocalDate, BigDecimal>> rates) {
+        Map<String, NavigableMap<LocalDate, BigDecimal>> frozen = new HashMap<>();
+        rates.forEach((currency, byDate) ->
+                frozen.put(currency, Collections.unmodifiableNavigableMap(new TreeMap<>(byDate))));
+        return new ExchangeRateTable(baseCurrency, Collections.unmodifiableMap(frozen));
+    }
+    
+    public String getBaseCurrency() {
+        return baseCurrency;
+    }
+    
+    /** Every rate, keyed by currency and the date it applies from. */
+    public Map<String, NavigableMap<LocalDate, BigDecimal>> getRates() {
+        return rates;
+    }
+    
+    public boolean supports(String currency) {
+        return baseCurrency.equals(currency) || rates.containsKey(currency);
+    }
+    
+    /** Rate in effect on the date, or null when none was published on or before it. */
+    public BigDecimal rateFor(String currency, LocalDate date) {
+        if (baseCurrency.equals(currency)) {
+            return BigDecimal.ONE;
+        }
+        NavigableMap<LocalDate, BigDecimal> byDate = rates.get(currency);
+        if (byDate == null) {
+            return null;
+        }
+        Map.Entry<LocalDate, BigDecimal> entry = byDate.floorEntry(date);
+        return entry != null ? entry.getValue() : null;
+    }
+    
+    /** Converts to the base currency, or returns null when no rate applies. */
+    public BigDecimal toBase(BigDecimal amount, String currency, LocalDate date) {
+        BigDecimal rate = rateFor(currency, date);
+        return rate != null ? amount.multiply(rate).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+    
+    /**
+     * For every currency whose rates differ between the two tables, the earliest date
+     * from which converted amounts may change.
+     */
+    public Map<String, LocalDate> changedSince(ExchangeRateTable previous) {
+        Map<String, LocalDate> changed = new HashMap<>();
+        Set<String> currencies = new HashSet<>(rates.keySet());
+        currencies.addAll(previous.rates.keySet());
+        
+        for (String currency : currencies) {
+            NavigableMap<LocalDate, BigDecimal> now = rates.getOrDefault(currency, Collections.emptyNavigableMap());
+            NavigableMap<LocalDate, BigDecimal> before = previous.rates.getOrDefault(currency, Collections.emptyNavigableMap());
+            
+            TreeSet<LocalDate> dates = new TreeSet<>(now.keySet());
+            dates.addAll(before.keySet());
+            for (LocalDate date : dates) {
+                BigDecimal a = now.get(date);
+                BigDecimal b = before.get(date);
+                if (a == null || b == null || a.compareTo(b) != 0) {
+                    changed.put(currency, date);
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+}
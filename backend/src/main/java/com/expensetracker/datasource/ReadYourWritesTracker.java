@@ -0,0 +1,41 @@
+package com.expensetracker.datasource;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote recently so their reads go to the primary
+ * until replicas have had time to catch up.
+ */
+public class ReadYourWritesTracker {
+    
+    private final long windowMs;
+    private final ConcurrentHashMap<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+    
+    public ReadYourWritesTracker(long windowMs) {
+        this.windowMs = windowMs;
+    }
+    
+    public void recordWrite(String username) {
+        pinnedUntil.put(username, System.currentTimeMillis() + windowMs);
+    }
+    
+    public boolean isPinnedToPrimary(String username) {
+        Long until = pinnedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            pinnedUntil.remove(username, until);
+            return false;
+        }
+        return true;
+    }
+    
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        pinnedUntil.values().removeIf(until -> until < now);
+    }
+}
@@ -0,0 +1,77 @@
+package com.expensetracker.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically measures replication lag on every replica. A replica that lags
+ * more than the allowed maximum, or cannot be reached, stops receiving reads.
+ */
+public class ReplicaLagMonitor implements DisposableBean {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    
+    // Zero when the server is not a standby (stand-in replicas) or has replayed everything it received
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+    
+    private final Map<String, HikariDataSource> replicas;
+    private final long maxLagMs;
+    private final Map<String, Long> lagMs = new ConcurrentHashMap<>();
+    
+    public ReplicaLagMonitor(Map<String, HikariDataSource> replicas, long maxLagMs) {
+        this.replicas = Collections.unmodifiableMap(replicas);
+        this.maxLagMs = maxLagMs;
+    }
+    
+    public Map<String, HikariDataSource> getReplicas() {
+        return replicas;
+    }
+    
+    public boolean isHealthy(String key) {
+        Long lag = lagMs.get(key);
+        return lag != null && lag <= maxLagMs;
+    }
+    
+    public Map<String, Long> getLagMs() {
+        return Collections.unmodifiableMap(lagMs);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval-ms:2000}")
+    public void checkLag() {
+        replicas.forEach((key, dataSource) -> {
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                long lag = (long) resultSet.getDouble(1);
+                Long previous = lagMs.put(key, lag);
+                if (lag > maxLagMs && (previous == null || previous <= maxLagMs)) {
+                    log.warn("Replica {} is {} ms behind, routing its reads to the primary", key, lag);
+                }
+            } catch (SQLException e) {
+                if (lagMs.remove(key) != null) {
+                    log.warn("Replica {} is unreachable, routing its reads to the primary: {}", key, e.getMessage());
+                }
+            }
+        });
+    }
+    
+    @Override
+    public void destroy() {
+        replicas.values().forEach(HikariDataSource::close);
+    }
+}
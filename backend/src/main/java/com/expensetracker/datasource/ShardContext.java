@@ -0,0 +1,100 @@
+package com.expensetracker.datasource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Which shard the current thread's database work belongs to. Request threads are
+ * routed by the signed-in user and need nothing from here; background work pins
+ * itself to a user or, for scans over every user, to one shard at a time.
+ *
+ * Without sharding every shard name is null and pinning has no effect, so callers
+ * don't need to know whether sharding is on.
+ */
+public final class ShardContext {
+    
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+    private static final ThreadLocal<Long> USER = new ThreadLocal<>();
+    
+    private static volatile List<String> shards = Collections.emptyList();
+    
+    private ShardContext() {}
+    
+    public static boolean isSharded() {
+        return !shards.isEmpty();
+    }
+    
+    static void setShards(List<String> names) {
+        shards = List.copyOf(names);
+    }
+    
+    static String currentShard() {
+        return SHARD.get();
+    }
+    
+    static Long currentUser() {
+        return USER.get();
+    }
+    
+    /** Runs the task once per shard, pinned to it; once with a null shard when sharding is off. */
+    public static void forEachShard(Consumer<String> task) {
+        List<String> names = isSharded() ? shards : Arrays.asList((String) null);
+        for (String shard : names) {
+            runOnShard(shard, () -> task.accept(shard));
+        }
+    }
+    
+    public static void runOnShard(String shard, Runnable task) {
+        callOnShard(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    public static <T> T callOnShard(String shard, Supplier<T> task) {
+        String previousShard = SHARD.get();
+        Long previousUser = USER.get();
+        SHARD.set(shard);
+        USER.remove();
+        try {
+            return task.get();
+        } finally {
+            restore(previousShard, previousUser);
+        }
+    }
+    
+    public static void runForUser(Long userId, Runnable task) {
+        callForUser(userId, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    public static <T> T callForUser(Long userId, Supplier<T> task) {
+        String previousShard = SHARD.get();
+        Long previousUser = USER.get();
+        SHARD.remove();
+        USER.set(userId);
+        try {
+            return task.get();
+        } finally {
+            restore(previousShard, previousUser);
+        }
+    }
+    
+    private static void restore(String shard, Long userId) {
+        if (shard != null) {
+            SHARD.set(shard);
+        } else {
+            SHARD.remove();
+        }
+        if (userId != null) {
+            USER.set(userId);
+        } else {
+            USER.remove();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.expensetracker.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The catalog of which shard holds each user, kept in user_directory on the
+ * catalog database (the first shard). New users are placed by the ring; the
+ * directory stays the source of truth so users can later be moved.
+ *
+ * The directory also issues user ids and enforces unique usernames and emails,
+ * which no single shard can do. Placements and logins are cached; changes made by
+ * other instances (moves) are picked up every directory-sync-interval-ms.
+ */
+public class ShardDirectory {
+    
+    // Rows committed slightly out of updated_at order are still seen by the next sync
+    private static final long SYNC_OVERLAP_MS = 60_000;
+    
+    private final JdbcTemplate catalog;
+    private final ShardRing ring;
+    private final int maxCachedUsers;
+    
+    private final Map<Long, Placement> placements;
+    private final Map<String, Long> logins;
+    private volatile long syncCursor;
+    
+    public ShardDirectory(JdbcTemplate catalog, ShardRing ring, int maxCachedUsers) {
+        this.catalog = catalog;
+        this.ring = ring;
+        this.maxCachedUsers = maxCachedUsers;
+        this.placements = lru();
+        this.logins = lru();
+    }
+    
+    public ShardRing getRing() {
+        return ring;
+    }
+    
+    /**
+     * Reserves an id and a shard for a new user. Taken usernames and emails fail with
+     * the unique constraint violation of user_directory.
+     */
+    public Long register(String username, String email) {
+        Long userId = catalog.queryForObject("SELECT nextval('user_directory_user_id_seq')", Long.class);
+        String shard = ring.shardFor(userId);
+        catalog.update("INSERT INTO user_directory (user_id, username, email, shard) VALUES (?, ?, ?, ?)",
+                userId, username, email, shard);
+        cache(userId, new Placement(shard, false));
+        return userId;
+    }
+    
+    public void unregister(Long userId) {
+        catalog.update("DELETE FROM user_directory WHERE user_id = ?", userId);
+        synchronized (this) {
+            placements.remove(userId);
+            logins.values().removeIf(userId::equals);
+        }
+    }
+    
+    public void updateEmail(Long userId, String email) {
+        catalog.update("UPDATE user_directory SET email = ?, updated_at = now() WHERE user_id = ?", email, userId);
+        synchronized (this) {
+            logins.values().removeIf(userId::equals);
+        }
+    }
+    
+    public boolean isUsernameTaken(String username) {
+        return Boolean.TRUE.equals(catalog.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM user_directory WHERE username = ?)", Boolean.class, username));
+    }
+    
+    public boolean isEmailTaken(String email) {
+        return Boolean.TRUE.equals(catalog.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM user_directory WHERE email = ?)", Boolean.class, email));
+    }
+    
+    /** The id of the user with this username or email, or null. */
+    public Long findUserId(String usernameOrEmail) {
+        synchronized (this) {
+            Long userId = logins.get(usernameOrEmail);
+            if (userId != null) {
+                return userId;
+            }
+        }
+        List<Long> found = catalog.queryForList(
+                "SELECT user_id FROM user_directory WHERE username = ? OR email = ?",
+                Long.class, usernameOrEmail, usernameOrEmail);
+        if (found.isEmpty()) {
+            return null;
+        }
+        synchronized (this) {
+            logins.put(usernameOrEmail, found.get(0));
+        }
+        return found.get(0);
+    }
+    
+    /** Drops a cached login that turned out to be stale, e.g. after another instance deleted the user. */
+    public synchronized void forgetLogin(String usernameOrEmail) {
+        logins.remove(usernameOrEmail);
+    }
+    
+    public String shardFor(Long userId) {
+        return placement(userId).shard;
+    }
+    
+    /** Whether the user is being moved between shards, during which their data is read-only. */
+    public boolean isMoving(Long userId) {
+        return placement(userId).moving;
+    }
+    
+    /** Reads the user's placement from the catalog, bypassing the cache. */
+    public Placement currentPlacement(Long userId) {
+        List<Placement> found = catalog.query("SELECT shard, moving FROM user_directory WHERE user_id = ?",
+                (rs, rowNum) -> new Placement(rs.getString(1), rs.getBoolean(2)), userId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+    
+    public void setMoving(Long userId, boolean moving) {
+        catalog.update("UPDATE user_directory SET moving = ?, updated_at = now() WHERE user_id = ?", moving, userId);
+        Placement placement = currentPlacement(userId);
+        if (placement != null) {
+            cache(userId, placement);
+        }
+    }
+    
+    public void setShard(Long userId, String shard) {
+        catalog.update("UPDATE user_directory SET shard = ?, updated_at = now() WHERE user_id = ?", shard, userId);
+        Placement placement = currentPlacement(userId);
+        if (placement != null) {
+            cache(userId, placement);
+        }
+    }
+    
+    /** A page of {userId, shard} pairs ordered by user id, for the rebalancer. */
+    public List<Object[]> findPlacements(long afterUserId, int limit) {
+        return catalog.query("SELECT user_id, shard FROM user_directory WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2)}, afterUserId, limit);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.datasource.sharding.directory-sync-interval-ms:5000}")
+    public void sync() {
+        long[] latest = {syncCursor};
+        List<Object[]> changed = new ArrayList<>();
+        catalog.query("SELECT user_id, shard, moving, updated_at FROM user_directory WHERE updated_at > ?",
+                (RowCallbackHandler) rs -> {
+                    changed.add(new Object[] {rs.getLong(1), new Placement(rs.getString(2), rs.getBoolean(3))});
+                    latest[0] = Math.max(latest[0], rs.getTimestamp(4).getTime());
+                }, new Timestamp(syncCursor - SYNC_OVERLAP_MS));
+        syncCursor = latest[0];
+        
+        synchronized (this) {
+            for (Object[] change : changed) {
+                Placement placement = (Placement) change[1];
+                // Users that are not cached will be read fresh anyway
+                if (placements.containsKey((Long) change[0]) || placement.moving) {
+                    placements.put((Long) change[0], placement);
+                }
+            }
+        }
+    }
+    
+    private Placement placement(Long userId) {
+        synchronized (this) {
+            Placement placement = placements.get(userId);
+            if (placement != null) {
+                return placement;
+            }
+        }
+        Placement placement = currentPlacement(userId);
+        if (placement == null) {
+            // Not registered (yet): nothing of theirs exists anywhere, so the ring's choice is as good as any
+            return new Placement(ring.shardFor(userId), false);
+        }
+        cache(userId, placement);
+        return placement;
+    }
+    
+    private synchronized void cache(Long userId, Placement placement) {
+        placements.put(userId, placement);
+    }
+    
+    private <K, V> Map<K, V> lru() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxCachedUsers;
+            }
+        };
+    }
+    
+    public static class Placement {
+        private final String shard;
+        private final boolean moving;
+        
+        public Placement(String shard, boolean moving) {
+            this.shard = shard;
+            this.moving = moving;
+        }
+        
+        public String getShard() { return shard; }
+        public boolean isMoving() { return moving; }
+    }
+}
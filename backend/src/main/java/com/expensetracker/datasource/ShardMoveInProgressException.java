@@ -0,0 +1,8 @@
+package com.expensetracker.datasource;
+
+public class ShardMoveInProgressException extends RuntimeException {
+    
+    public ShardMoveInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,264 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.scheduling.JobLeaseManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves users between shards while the application keeps serving them. A move
+ * first marks the user as moving, which makes their writes fail with 503 on every
+ * instance while reads continue from the old shard; then copies their rows in one
+ * snapshot with COPY, points the directory at the new shard, lifts the write block
+ * and finally deletes the old copy. Each step waits moveGraceMs so that all
+ * instances have seen the previous one.
+ *
+ * The scheduled rebalance moves every user whose directory shard differs from the
+ * ring's choice, which after adding a shard is the ~1/N the new shard takes over.
+ * It runs on its own thread: every move sleeps through three grace periods, and
+ * the scheduler's threads are shared with the outbox relay and directory sync.
+ */
+public class ShardRebalancer {
+    
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+    
+    private static final String JOB_NAME = "shard-rebalance";
+    
+    private static final int PAGE_SIZE = 1000;
+    
+    // Parents before children, so foreign keys hold on the target at every step
+    private static final String[][] USER_TABLES = {
+            {"users", "id"},
+            {"categories", "user_id"},
+            {"recurring_expenses", "user_id"},
+            {"expenses", "user_id"},
+            {"expense_attachments", "user_id"},
+            {"budgets", "user_id"},
+            {"category_month_spend", "user_id"},
+            {"budget_alerts", "user_id"},
+            {"idempotency_keys", "user_id"},
+            {"import_jobs", "user_id"},
+            {"revoked_tokens", "user_id"},
+            {"token_watermarks", "user_id"},
+            {"amount_sketch_buckets", "user_id"},
+            {"expense_events", "user_id"}
+    };
+    
+    // Users with a deletion or import in flight are left for a later run
+    private static final String BUSY_SQL =
+            "SELECT u.deletion_requested_at IS NOT NULL OR EXISTS (" +
+            "  SELECT 1 FROM import_jobs j WHERE j.user_id = u.id AND j.status IN ('QUEUED', 'PARSING', 'MERGING')) " +
+            "FROM users u WHERE u.id = ?";
+    
+    private final ShardRoutingDataSource shards;
+    private final ShardDirectory directory;
+    private final JobLeaseManager leaseManager;
+    private final long moveGraceMs;
+    private final int deleteChunkSize;
+    
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "shard-rebalancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public ShardRebalancer(ShardRoutingDataSource shards, ShardDirectory directory, JobLeaseManager leaseManager,
+                           long moveGraceMs, int deleteChunkSize) {
+        this.shards = shards;
+        this.directory = directory;
+        this.leaseManager = leaseManager;
+        this.moveGraceMs = moveGraceMs;
+        this.deleteChunkSize = deleteChunkSize;
+    }
+    
+    @Scheduled(cron = "${app.datasource.sharding.rebalance-cron:-}")
+    public void scheduleRebalance() {
+        if (!running.compareAndSet(false, true)) {
+            // The previous run is still moving users
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                rebalance();
+            } catch (RuntimeException e) {
+                log.error("Shard rebalance failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+    
+    // Inferred as the bean's destroy method
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+    
+    public void rebalance() {
+        Duration lease = Duration.ofMillis(Math.max(60_000, moveGraceMs * 10));
+        if (!leaseManager.tryAcquire(JOB_NAME, 0, lease)) {
+            return;
+        }
+        
+        int moved = 0;
+        try {
+            long afterUserId = 0;
+            while (true) {
+                List<Object[]> page = directory.findPlacements(afterUserId, PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] placement : page) {
+                    Long userId = (Long) placement[0];
+                    String target = directory.getRing().shardFor(userId);
+                    if (!target.equals(placement[1]) && moveUser(userId, target)) {
+                        moved++;
+                    }
+                    if (!leaseManager.renew(JOB_NAME, 0, lease)) {
+                        log.warn("Lost the shard rebalance lease, stopping after {} moves", moved);
+                        return;
+                    }
+                }
+                afterUserId = (Long) page.get(page.size() - 1)[0];
+            }
+        } finally {
+            leaseManager.release(JOB_NAME, 0);
+        }
+        log.info("Shard rebalance finished: {} users moved", moved);
+    }
+    
+    /** Moves one user to the target shard; false if there was nothing to do or the user is busy. */
+    public boolean moveUser(Long userId, String target) {
+        ShardDirectory.Placement placement = directory.currentPlacement(userId);
+        if (placement == null || placement.getShard().equals(target)) {
+            return false;
+        }
+        String source = placement.getShard();
+        HikariDataSource from = shards.getShard(source);
+        HikariDataSource to = shards.getShard(target);
+        if (Boolean.TRUE.equals(new JdbcTemplate(from).queryForList(BUSY_SQL, Boolean.class, userId)
+                .stream().findFirst().orElse(true))) {
+            log.info("Not moving user {} now: account deletion or import in progress", userId);
+            return false;
+        }
+        
+        long started = System.nanoTime();
+        boolean switched = false;
+        directory.setMoving(userId, true);
+        try {
+            awaitGrace();
+            copy(userId, from, to);
+            directory.setShard(userId, target);
+            switched = true;
+            awaitGrace();
+        } catch (Exception e) {
+            log.warn("Moving user {} from {} to {} failed", userId, source, target, e);
+            if (!switched) {
+                deleteUser(to, userId);
+                directory.setMoving(userId, false);
+                return false;
+            }
+        }
+        directory.setMoving(userId, false);
+        
+        // Readers that looked up the old placement just before the switch are done after another grace period
+        awaitGrace();
+        deleteUser(from, userId);
+        log.info("Moved user {} from {} to {} in {}s", userId, source, target,
+                String.format("%.2f", (System.nanoTime() - started) / 1_000_000_000.0));
+        return true;
+    }
+    
+    // One snapshot of the source, written to the target in a single transaction
+    private void copy(Long userId, HikariDataSource from, HikariDataSource to) throws SQLException, IOException {
+        try (Connection source = from.getConnection();
+             Connection target = to.getConnection()) {
+            source.setAutoCommit(false);
+            source.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            target.setAutoCommit(false);
+            CopyManager copyOut = source.unwrap(PGConnection.class).getCopyAPI();
+            CopyManager copyIn = target.unwrap(PGConnection.class).getCopyAPI();
+            
+            try {
+                for (String[] table : USER_TABLES) {
+                    String columns = String.join(", ", columnsOf(source, table[0]));
+                    Path spooled = Files.createTempFile("shard-move-", ".copy");
+                    try {
+                        try (OutputStream out = Files.newOutputStream(spooled)) {
+                            copyOut.copyOut("COPY (SELECT " + columns + " FROM " + table[0]
+                                    + " WHERE " + table[1] + " = " + userId + ") TO STDOUT", out);
+                        }
+                        try (InputStream in = Files.newInputStream(spooled)) {
+                            copyIn.copyIn("COPY " + table[0] + " (" + columns + ") FROM STDIN", in);
+                        }
+                    } finally {
+                        Files.deleteIfExists(spooled);
+                    }
+                }
+                target.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                target.rollback();
+                throw e;
+            } finally {
+                source.rollback();
+            }
+        }
+    }
+    
+    // Shards created from different schema versions may order columns differently, so always name them
+    private static List<String> columnsOf(Connection connection, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT column_name FROM information_schema.columns " +
+                "WHERE table_schema = current_schema() AND table_name = ? ORDER BY ordinal_position")) {
+            statement.setString(1, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+    
+    private void deleteUser(HikariDataSource shard, Long userId) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM expenses WHERE id IN (" +
+                    "SELECT id FROM expenses WHERE user_id = ? LIMIT ?)", userId, deleteChunkSize);
+        } while (deleted == deleteChunkSize);
+        // Not cascaded from users, so that events survive an account deletion until they are relayed
+        jdbcTemplate.update("DELETE FROM expense_events WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+    
+    private void awaitGrace() {
+        try {
+            Thread.sleep(moveGraceMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while moving a user", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.expensetracker.datasource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of user ids onto shards. Each shard owns virtualNodes points
+ * on a 64-bit ring and a user belongs to the first point at or after the hash of
+ * their id, so adding a shard only takes over about 1/N of the users, all of them
+ * from the existing shards in roughly equal parts.
+ */
+public class ShardRing {
+    
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final List<String> shards;
+    
+    public ShardRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        for (String shard : shards) {
+            for (int node = 0; node < virtualNodes; node++) {
+                points.put(hash(shard + "#" + node), shard);
+            }
+        }
+    }
+    
+    public List<String> getShards() {
+        return shards;
+    }
+    
+    public String shardFor(long userId) {
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(Long.toString(userId)));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+    
+    // MD5 rather than hashCode: sequential ids have to land all over the ring
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
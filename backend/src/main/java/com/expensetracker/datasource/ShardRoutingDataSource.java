@@ -0,0 +1,79 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.security.AuthenticatedUser;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends each connection to the shard of the user it works for: the user pinned in
+ * ShardContext, otherwise the signed-in user. Work that belongs to no user (leases,
+ * the sign-up lookup) goes to the first shard, which also holds the catalog.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    
+    private final Map<String, HikariDataSource> shards;
+    private final ShardDirectory directory;
+    
+    public ShardRoutingDataSource(Map<String, HikariDataSource> shards, ShardDirectory directory) {
+        this.shards = Collections.unmodifiableMap(shards);
+        this.directory = directory;
+        
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.values().iterator().next());
+        ShardContext.setShards(new ArrayList<>(shards.keySet()));
+    }
+    
+    public HikariDataSource getShard(String name) {
+        HikariDataSource dataSource = shards.get(name);
+        if (dataSource == null) {
+            throw new IllegalArgumentException("Unknown shard: " + name);
+        }
+        return dataSource;
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.currentShard();
+        if (shard != null) {
+            return shard;
+        }
+        
+        Long userId = ShardContext.currentUser();
+        if (userId == null) {
+            userId = signedInUserId();
+        }
+        if (userId == null) {
+            return null;
+        }
+        
+        // Rows copied to the new shard must not change underneath the move
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && directory.isMoving(userId)) {
+            throw new ShardMoveInProgressException("Your data is being moved, please try again in a minute");
+        }
+        return directory.shardFor(userId);
+    }
+    
+    @Override
+    public void destroy() {
+        shards.values().forEach(HikariDataSource::close);
+    }
+    
+    private static Long signedInUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+public class AmountPercentiles {
+    
+    private long count;
+    private BigDecimal median;
+    private BigDecimal p90;
+    private BigDecimal p99;
+    // Expenses above this are flagged as outliers; null until there are enough expenses to tell
+    private BigDecimal outlierThreshold;
+    
+    public AmountPercentiles() {}
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+    
+    public BigDecimal getMedian() { return median; }
+    public void setMedian(BigDecimal median) { this.median = median; }
+    
+    public BigDecimal getP90() { return p90; }
+    public void setP90(BigDecimal p90) { this.p90 = p90; }
+    
+    public BigDecimal getP99() { return p99; }
+    public void setP99(BigDecimal p99) { this.p99 = p99; }
+    
+    public BigDecimal getOutlierThreshold() { return outlierThreshold; }
+    public void setOutlierThreshold(BigDecimal outlierThreshold) { this.outlierThreshold = outlierThreshold; }
+}
@@ -0,0 +1,32 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+public class AnalyticsBucket {
+    
+    private String period;
+    private String category;
+    private BigDecimal total;
+    private long count;
+    
+    public AnalyticsBucket() {}
+    
+    public AnalyticsBucket(String period, String category, BigDecimal total, long count) {
+        this.period = period;
+        this.category = category;
+        this.total = total;
+        this.count = count;
+    }
+    
+    public String getPeriod() { return period; }
+    public void setPeriod(String period) { this.period = period; }
+    
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+    
+    public BigDecimal getTotal() { return total; }
+    public void setTotal(BigDecimal total) { this.total = total; }
+    
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+}
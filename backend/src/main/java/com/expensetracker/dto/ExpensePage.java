@@ -0,0 +1,26 @@
+package com.expensetracker.dto;
+
+import com.expensetracker.model.Expense;
+
+import java.util.List;
+
+public class ExpensePage {
+    
+    private List<Expense> expenses;
+    
+    // Null on the last page
+    private String nextCursor;
+    
+    public ExpensePage() {}
+    
+    public ExpensePage(List<Expense> expenses, String nextCursor) {
+        this.expenses = expenses;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Expense> getExpenses() { return expenses; }
+    public void setExpenses(List<Expense> expenses) { this.expenses = expenses; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
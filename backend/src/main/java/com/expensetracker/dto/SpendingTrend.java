@@ -0,0 +1,42 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+public class SpendingTrend {
+    
+    // Null for the all-categories total
+    private String category;
+    private BigDecimal movingAverage;
+    private BigDecimal previousMonth;
+    private BigDecimal monthBeforePrevious;
+    private BigDecimal monthOverMonthChange;
+    private BigDecimal monthOverMonthPercent;
+    private BigDecimal monthToDate;
+    private BigDecimal projectedMonthEnd;
+    
+    public SpendingTrend() {}
+    
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+    
+    public BigDecimal getMovingAverage() { return movingAverage; }
+    public void setMovingAverage(BigDecimal movingAverage) { this.movingAverage = movingAverage; }
+    
+    public BigDecimal getPreviousMonth() { return previousMonth; }
+    public void setPreviousMonth(BigDecimal previousMonth) { this.previousMonth = previousMonth; }
+    
+    public BigDecimal getMonthBeforePrevious() { return monthBeforePrevious; }
+    public void setMonthBeforePrevious(BigDecimal monthBeforePrevious) { this.monthBeforePrevious = monthBeforePrevious; }
+    
+    public BigDecimal getMonthOverMonthChange() { return monthOverMonthChange; }
+    public void setMonthOverMonthChange(BigDecimal monthOverMonthChange) { this.monthOverMonthChange = monthOverMonthChange; }
+    
+    public BigDecimal getMonthOverMonthPercent() { return monthOverMonthPercent; }
+    public void setMonthOverMonthPercent(BigDecimal monthOverMonthPercent) { this.monthOverMonthPercent = monthOverMonthPercent; }
+    
+    public BigDecimal getMonthToDate() { return monthToDate; }
+    public void setMonthToDate(BigDecimal monthToDate) { this.monthToDate = monthToDate; }
+    
+    public BigDecimal getProjectedMonthEnd() { return projectedMonthEnd; }
+    public void setProjectedMonthEnd(BigDecimal projectedMonthEnd) { this.projectedMonthEnd = projectedMonthEnd; }
+}
@@ -0,0 +1,217 @@
+package com.expensetracker.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CSV statements with a header row. Columns are matched by name (date, amount,
+ * title, and optionally description, category, currency), so bank exports with
+ * extra columns or a different order work as long as the names are recognized.
+ */
+public class CsvStatementParser implements StatementParser {
+    
+    private static final Map<String, String> COLUMN_ALIASES = new HashMap<>();
+    
+    static {
+        for (String alias : new String[]{"date", "expense_date", "expensedate", "transaction date", "posted date", "booking date"}) {
+            COLUMN_ALIASES.put(alias, "date");
+        }
+        for (String alias : new String[]{"amount", "value", "debit amount"}) {
+            COLUMN_ALIASES.put(alias, "amount");
+        }
+        for (String alias : new String[]{"title", "payee", "name", "merchant"}) {
+            COLUMN_ALIASES.put(alias, "title");
+        }
+        for (String alias : new String[]{"memo", "notes", "details"}) {
+            COLUMN_ALIASES.put(alias, "description");
+        }
+        COLUMN_ALIASES.put("category", "category");
+        COLUMN_ALIASES.put("currency", "currency");
+    }
+    
+    private final DateTimeFormatter dateFormat;
+    private final boolean debitsNegative;
+    
+    /**
+     * @param debitsNegative true for bank exports that list spending as negative
+     *                       amounts; positive rows are then skipped as credits
+     */
+    public CsvStatementParser(DateTimeFormatter dateFormat, boolean debitsNegative) {
+        this.dateFormat = dateFormat;
+        this.debitsNegative = debitsNegative;
+    }
+    
+    @Override
+    public void parse(Reader reader, Handler handler) throws IOException {
+        RecordReader records = new RecordReader(reader);
+        List<String> header = records.next();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        
+        if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+            header.set(0, header.get(0).substring(1));
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        Integer descriptionIndex = null;
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase();
+            if (name.equals("description")) {
+                descriptionIndex = descriptionIndex != null ? descriptionIndex : i;
+                continue;
+            }
+            String column = COLUMN_ALIASES.get(name);
+            if (column != null) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        // Many bank exports call the payee "description"; it is only a note when a title column exists
+        if (descriptionIndex != null) {
+            columns.putIfAbsent(columns.containsKey("title") ? "description" : "title", descriptionIndex);
+        }
+        for (String required : new String[]{"date", "amount", "title"}) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("Missing " + required + " column in CSV header");
+            }
+        }
+        
+        long rowNumber = 1;
+        List<String> record;
+        while ((record = records.next()) != null) {
+            rowNumber++;
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                continue;
+            }
+            
+            String rawDate = field(record, columns, "date");
+            String rawAmount = field(record, columns, "amount");
+            LocalDate date;
+            BigDecimal amount;
+            try {
+                date = LocalDate.parse(rawDate, dateFormat);
+            } catch (DateTimeParseException | NullPointerException e) {
+                handler.reject(rowNumber, "invalid date '" + rawDate + "'");
+                continue;
+            }
+            try {
+                amount = parseAmount(rawAmount);
+            } catch (NumberFormatException | NullPointerException e) {
+                handler.reject(rowNumber, "invalid amount '" + rawAmount + "'");
+                continue;
+            }
+            
+            if (debitsNegative) {
+                if (amount.signum() >= 0) {
+                    handler.skip(rowNumber);
+                    continue;
+                }
+                amount = amount.negate();
+            }
+            
+            handler.row(new StatementRow(rowNumber, null,
+                    field(record, columns, "title"),
+                    field(record, columns, "description"),
+                    amount,
+                    field(record, columns, "currency"),
+                    date,
+                    field(record, columns, "category")));
+        }
+    }
+    
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+    
+    static BigDecimal parseAmount(String raw) {
+        String cleaned = raw.replace(" ", "").replace("\u00A0", "");
+        // Accept 1,234.56 as well as 1234,56
+        int comma = cleaned.lastIndexOf(',');
+        int dot = cleaned.lastIndexOf('.');
+        if (comma > dot) {
+            cleaned = cleaned.replace(".", "").replace(',', '.');
+        } else {
+            cleaned = cleaned.replace(",", "");
+        }
+        return new BigDecimal(cleaned);
+    }
+    
+    /** RFC 4180 records: quoted fields may contain separators, doubled quotes and line breaks. */
+    private static class RecordReader {
+        
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+        
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            
+            List<String> record = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    record.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            record.add(field.toString());
+            return record;
+        }
+        
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
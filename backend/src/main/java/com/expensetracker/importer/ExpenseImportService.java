@@ -0,0 +1,372 @@
+package com.expensetracker.importer;
+
+import com.expensetracker.analytics.AmountSketchEngine;
+import com.expensetracker.analytics.ColumnarAnalyticsEngine;
+import com.expensetracker.cache.ExpenseRangeCache;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.currency.ExchangeRateService;
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.model.ImportJob;
+import com.expensetracker.model.ImportStatus;
+import com.expensetracker.outbox.ExpenseOutbox;
+import com.expensetracker.repository.ImportJobRepository;
+import com.expensetracker.service.BudgetService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bulk import of bank statements. An upload is spooled to disk and processed in
+ * the background: the file is parsed as a stream and COPY'd into import_staging,
+ * then a single INSERT ... SELECT validates the rows against the expense
+ * constraints, resolves categories, drops rows already imported, and writes the
+ * rest to expenses. Progress is visible through import_jobs throughout.
+ */
+@Service
+public class ExpenseImportService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+    
+    private static final int PROGRESS_INTERVAL = 100_000;
+    
+    // Rows are only merged if they would pass the Expense bean validation. The fingerprint
+    // identifies a transaction across uploads: the bank's FITID for OFX, otherwise the
+    // date, amount, title and how many identical rows precede it in the file.
+    private static final String MERGE_SQL =
+            "WITH staged AS (" +
+            "  SELECT s.*, row_number() OVER (PARTITION BY s.expense_date, s.amount, lower(s.title) " +
+            "                                 ORDER BY s.row_no) AS occurrence " +
+            "  FROM import_staging s WHERE s.job_id = ?" +
+            "), valid AS (" +
+            "  SELECT * FROM staged " +
+            "  WHERE title IS NOT NULL AND char_length(title) <= 255 " +
+            "    AND (description IS NULL OR char_length(description) <= 1000) " +
+            "    AND amount > 0 AND amount < 100000000 " +
+            "    AND char_length(currency) = 3 AND char_length(category) <= 100" +
+            "), used_categories AS (" +
+            "  INSERT INTO categories (user_id, name) SELECT DISTINCT ?::bigint, category FROM valid ORDER BY 2 " +
+            "  ON CONFLICT (user_id, name) DO UPDATE SET name = EXCLUDED.name " +
+            "  RETURNING id, name" +
+            "), inserted AS (" +
+            "  INSERT INTO expenses (title, description, amount, currency, base_amount, expense_date, category_id, " +
+            "                        user_id, import_fingerprint, created_at, updated_at) " +
+            "  SELECT v.title, v.description, v.amount, v.currency, v.base_amount, v.expense_date, c.id, ?, " +
+            "         md5(CASE WHEN v.external_id IS NOT NULL THEN 'ofx|' || v.external_id " +
+            "                  ELSE 'row|' || v.expense_date || '|' || v.amount || '|' || lower(v.title) " +
+            "                       || '|' || v.occurrence END), " +
+            "         now(), now() " +
+            "  FROM valid v JOIN used_categories c ON c.name = v.category " +
+            "  ON CONFLICT (user_id, import_fingerprint) DO NOTHING " +
+            "  RETURNING category_id, expense_date, base_amount" +
+            "), sketched AS (" +
+            "  INSERT INTO amount_sketch_buckets (user_id, category_id, bucket, count) " +
+            "  SELECT ?::bigint, category_id, expense_amount_bucket(base_amount), count(*) FROM inserted GROUP BY 2, 3 " +
+            "  ON CONFLICT (user_id, category_id, bucket) " +
+            "  DO UPDATE SET count = amount_sketch_buckets.count + EXCLUDED.count" +
+            ") " +
+            "SELECT NULL::int AS category_id, NULL::date AS period, NULL::numeric AS spent, " +
+            "       (SELECT count(*) FROM valid) AS row_count " +
+            "UNION ALL " +
+            "SELECT category_id, date_trunc('month', expense_date)::date, sum(base_amount), count(*) " +
+            "FROM inserted GROUP BY 1, 2";
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ImportJobRepository importJobRepository;
+    
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private ColumnarAnalyticsEngine analyticsEngine;
+    
+    @Autowired
+    private AmountSketchEngine sketchEngine;
+    
+    @Autowired
+    private ExpenseRangeCache rangeCache;
+    
+    @Autowired
+    private ExpenseOutbox expenseOutbox;
+    
+    @Value("${app.import.worker-threads:2}")
+    private int workerThreads;
+    
+    private ExecutorService workers;
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "expense-import-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+    
+    /**
+     * Queues an uploaded statement for import and returns the job to poll.
+     *
+     * @param format         CSV or OFX; taken from the file extension when null
+     * @param dateFormat     pattern of the CSV date column, ISO dates when null
+     * @param debitsNegative whether the CSV lists spending as negative amounts
+     */
+    public ImportJob startImport(Long userId, MultipartFile file, String format, String dateFormat,
+                                 boolean debitsNegative) throws IOException {
+        String resolvedFormat = resolveFormat(format, file.getOriginalFilename());
+        StatementParser parser;
+        if (resolvedFormat.equals("OFX")) {
+            parser = new OfxStatementParser();
+        } else {
+            DateTimeFormatter formatter;
+            try {
+                formatter = dateFormat != null ? DateTimeFormatter.ofPattern(dateFormat) : DateTimeFormatter.ISO_LOCAL_DATE;
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid date format: " + dateFormat);
+            }
+            parser = new CsvStatementParser(formatter, debitsNegative);
+        }
+        
+        Path spooled = Files.createTempFile("expense-import-", "." + resolvedFormat.toLowerCase());
+        file.transferTo(spooled);
+        
+        Long jobId = jdbcTemplate.queryForObject(
+                "INSERT INTO import_jobs (user_id, file_name, format, status) VALUES (?, ?, ?, ?) RETURNING id",
+                Long.class, userId, file.getOriginalFilename(), resolvedFormat, ImportStatus.QUEUED.name());
+        try {
+            workers.submit(() -> ShardContext.runForUser(userId, () -> runImport(jobId, userId, spooled, parser)));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(spooled);
+            finishFailed(jobId, "The import queue is shutting down");
+        }
+        return importJobRepository.findById(jobId).orElseThrow();
+    }
+    
+    public Optional<ImportJob> getJob(Long jobId, Long userId) {
+        return importJobRepository.findByIdAndUserId(jobId, userId);
+    }
+    
+    public List<ImportJob> getRecentJobs(Long userId) {
+        return importJobRepository.findTop20ByUserIdOrderByCreatedAtDesc(userId);
+    }
+    
+    private void runImport(long jobId, Long userId, Path spooled, StatementParser parser) {
+        long started = System.nanoTime();
+        try {
+            updateStatus(jobId, ImportStatus.PARSING);
+            StagingHandler handler = stage(jobId, spooled, parser);
+            
+            updateStatus(jobId, ImportStatus.MERGING);
+            long inserted = transactionTemplate.execute(status -> merge(jobId, userId, handler));
+            
+            if (inserted > 0) {
+                categoryDictionary.evict(userId);
+                analyticsEngine.evict(userId);
+                sketchEngine.evict(userId);
+                rangeCache.evict(userId);
+            }
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+            log.info("Import job {} finished: {} rows read, {} imported in {}s ({} rows/s)",
+                    jobId, handler.read, inserted, String.format("%.2f", seconds),
+                    Math.round(handler.read / Math.max(seconds, 0.001)));
+        } catch (Exception e) {
+            log.warn("Import job {} failed", jobId, e);
+            finishFailed(jobId, e.getMessage());
+        } finally {
+            jdbcTemplate.update("DELETE FROM import_staging WHERE job_id = ?", jobId);
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled import file {}", spooled);
+            }
+        }
+    }
+    
+    // Runs outside a transaction: staged rows are private to the job and removed afterwards
+    private StagingHandler stage(long jobId, Path spooled, StatementParser parser) throws IOException, SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Reader reader = Files.newBufferedReader(spooled, StandardCharsets.UTF_8)) {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            StagingCopyWriter writer = new StagingCopyWriter(
+                    pgConnection.getCopyAPI().copyIn(StagingCopyWriter.COPY_SQL), jobId);
+            StagingHandler handler = new StagingHandler(jobId, writer);
+            try {
+                parser.parse(reader, handler);
+                handler.staged = writer.finish();
+            } catch (IOException | RuntimeException e) {
+                writer.cancel();
+                throw e;
+            }
+            return handler;
+        }
+    }
+    
+    // Merges the staged rows, updates the budget counters and completes the job in one transaction
+    private long merge(long jobId, Long userId, StagingHandler handler) {
+        long[] counts = new long[2];
+        jdbcTemplate.query(MERGE_SQL, (RowCallbackHandler) rs -> {
+            if (rs.getObject("category_id") == null) {
+                counts[0] = rs.getLong("row_count");
+                return;
+            }
+            counts[1] += rs.getLong("row_count");
+            budgetService.recordSpend(userId, rs.getInt("category_id"),
+                    rs.getDate("period").toLocalDate(), rs.getBigDecimal("spent"));
+        }, jobId, userId, userId, userId);
+        
+        long valid = counts[0];
+        long inserted = counts[1];
+        if (inserted > 0) {
+            expenseOutbox.recordResync(userId, "import");
+        }
+        jdbcTemplate.update(
+                "UPDATE import_jobs SET status = ?, rows_read = ?, rows_imported = ?, rows_duplicate = ?, " +
+                "rows_rejected = ?, rows_skipped = ?, message = ?, finished_at = now() WHERE id = ?",
+                ImportStatus.COMPLETED.name(), handler.read, inserted, valid - inserted,
+                handler.rejected + (handler.staged - valid), handler.skipped, handler.firstRejection, jobId);
+        return inserted;
+    }
+    
+    private void updateStatus(long jobId, ImportStatus status) {
+        jdbcTemplate.update("UPDATE import_jobs SET status = ? WHERE id = ?", status.name(), jobId);
+    }
+    
+    private void finishFailed(long jobId, String message) {
+        jdbcTemplate.update("UPDATE import_jobs SET status = ?, message = ?, finished_at = now() WHERE id = ?",
+                ImportStatus.FAILED.name(), message, jobId);
+    }
+    
+    private static String resolveFormat(String format, String fileName) {
+        if (format != null && !format.isBlank()) {
+            String upper = format.trim().toUpperCase();
+            if (upper.equals("CSV") || upper.equals("OFX")) {
+                return upper;
+            }
+            throw new RuntimeException("Unsupported import format: " + format);
+        }
+        String lower = fileName != null ? fileName.toLowerCase() : "";
+        if (lower.endsWith(".ofx") || lower.endsWith(".qfx")) {
+            return "OFX";
+        }
+        if (lower.endsWith(".csv") || lower.endsWith(".txt")) {
+            return "CSV";
+        }
+        throw new RuntimeException("Cannot tell the format of '" + fileName + "'; pass format=CSV or format=OFX");
+    }
+    
+    /** Converts parsed rows to the base currency and streams them into staging. */
+    private class StagingHandler implements StatementParser.Handler {
+        
+        private final long jobId;
+        private final StagingCopyWriter writer;
+        private long read;
+        private long staged;
+        private long rejected;
+        private long skipped;
+        private String firstRejection;
+        
+        StagingHandler(long jobId, StagingCopyWriter writer) {
+            this.jobId = jobId;
+            this.writer = writer;
+        }
+        
+        @Override
+        public void row(StatementRow row) throws IOException {
+            read++;
+            String currency = exchangeRateService.normalize(row.getCurrency());
+            BigDecimal amount = row.getAmount().setScale(2, RoundingMode.HALF_UP);
+            BigDecimal baseAmount;
+            try {
+                baseAmount = exchangeRateService.toBase(amount, currency, row.getDate());
+            } catch (RuntimeException e) {
+                reject(row.getRowNumber(), e.getMessage(), false);
+                return;
+            }
+            
+            String title = row.getTitle() != null ? row.getTitle().trim() : null;
+            try {
+                writer.write(row, title != null && !title.isEmpty() ? title : null, amount, currency,
+                        baseAmount, CategoryDictionary.normalize(row.getCategory()));
+            } catch (SQLException e) {
+                throw new IOException("COPY into staging failed", e);
+            }
+            reportProgress();
+        }
+        
+        @Override
+        public void reject(long rowNumber, String reason) {
+            reject(rowNumber, reason, true);
+        }
+        
+        @Override
+        public void skip(long rowNumber) {
+            read++;
+            skipped++;
+            reportProgress();
+        }
+        
+        private void reject(long rowNumber, String reason, boolean countAsRead) {
+            if (countAsRead) {
+                read++;
+            }
+            rejected++;
+            if (firstRejection == null) {
+                firstRejection = "Row " + rowNumber + ": " + reason;
+            }
+            reportProgress();
+        }
+        
+        private void reportProgress() {
+            if (read % PROGRESS_INTERVAL == 0) {
+                jdbcTemplate.update("UPDATE import_jobs SET rows_read = ? WHERE id = ?", read, jobId);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.expensetracker.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OFX/QFX bank and credit card statements, both the SGML (1.x) and XML (2.x)
+ * flavours. Only the leaf elements the import needs are kept; the document is
+ * scanned tag by tag, never built as a tree. Debits (negative TRNAMT) become
+ * expenses, credits are skipped. FITID, qualified by the account, is used for
+ * duplicate detection.
+ */
+public class OfxStatementParser implements StatementParser {
+    
+    @Override
+    public void parse(Reader reader, Handler handler) throws IOException {
+        TagReader tags = new TagReader(reader);
+        String currency = null;
+        String accountId = null;
+        Map<String, String> transaction = null;
+        long rowNumber = 0;
+        
+        String tag;
+        while ((tag = tags.nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                transaction = new HashMap<>();
+            } else if (tag.equals("/STMTTRN")) {
+                if (transaction != null) {
+                    rowNumber++;
+                    emit(transaction, rowNumber, currency, accountId, handler);
+                    transaction = null;
+                }
+            } else if (tag.charAt(0) != '/') {
+                String value = tags.text();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                if (tag.equals("CURDEF")) {
+                    currency = value;
+                } else if (tag.equals("ACCTID")) {
+                    accountId = value;
+                } else if (transaction != null) {
+                    transaction.putIfAbsent(tag, value);
+                }
+            }
+        }
+    }
+    
+    private void emit(Map<String, String> transaction, long rowNumber, String currency, String accountId,
+                      Handler handler) throws IOException {
+        String rawDate = transaction.get("DTPOSTED");
+        String rawAmount = transaction.get("TRNAMT");
+        LocalDate date;
+        BigDecimal amount;
+        try {
+            // YYYYMMDD, optionally followed by a time and a zone that are not needed here
+            date = LocalDate.parse(rawDate.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException | NullPointerException | StringIndexOutOfBoundsException e) {
+            handler.reject(rowNumber, "invalid DTPOSTED '" + rawDate + "'");
+            return;
+        }
+        try {
+            amount = CsvStatementParser.parseAmount(rawAmount);
+        } catch (NumberFormatException | NullPointerException e) {
+            handler.reject(rowNumber, "invalid TRNAMT '" + rawAmount + "'");
+            return;
+        }
+        if (amount.signum() >= 0) {
+            handler.skip(rowNumber);
+            return;
+        }
+        
+        String name = transaction.containsKey("NAME") ? transaction.get("NAME") : transaction.get("PAYEEID");
+        String memo = transaction.get("MEMO");
+        String title = name != null ? name : memo;
+        String description = name != null ? memo : null;
+        String fitId = transaction.get("FITID");
+        String externalId = fitId != null ? (accountId != null ? accountId : "") + ":" + fitId : null;
+        String transactionCurrency = transaction.containsKey("CURSYM") ? transaction.get("CURSYM") : currency;
+        
+        handler.row(new StatementRow(rowNumber, externalId, title, description, amount.negate(),
+                transactionCurrency, date, null));
+    }
+    
+    private static class TagReader {
+        
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private final StringBuilder scratch = new StringBuilder();
+        
+        TagReader(Reader reader) {
+            this.reader = reader;
+        }
+        
+        /** Upper-cased name of the next element, with a leading '/' for closing tags. */
+        String nextTag() throws IOException {
+            while (true) {
+                int c;
+                do {
+                    c = read();
+                } while (c != -1 && c != '<');
+                if (c == -1) {
+                    return null;
+                }
+                
+                scratch.setLength(0);
+                while ((c = read()) != -1 && c != '>') {
+                    scratch.append((char) c);
+                }
+                String tag = scratch.toString().trim();
+                // Processing instructions, comments and self-closing tags carry nothing we need
+                if (tag.isEmpty() || tag.charAt(0) == '?' || tag.charAt(0) == '!' || tag.endsWith("/")) {
+                    continue;
+                }
+                int space = tag.indexOf(' ');
+                return (space > 0 ? tag.substring(0, space) : tag).toUpperCase();
+            }
+        }
+        
+        /** Text up to the next tag, trimmed and with XML entities decoded. */
+        String text() throws IOException {
+            scratch.setLength(0);
+            int c;
+            while ((c = peek()) != -1 && c != '<') {
+                scratch.append((char) read());
+            }
+            String text = scratch.toString().trim();
+            if (text.indexOf('&') < 0) {
+                return text;
+            }
+            return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                    .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+        }
+        
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+        
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+        
+        private boolean fill() throws IOException {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.expensetracker.importer;
+
+import org.postgresql.copy.CopyIn;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Streams rows into import_staging through COPY ... FROM STDIN in CSV format,
+ * flushing in 64 KB chunks so memory stays flat regardless of file size.
+ */
+class StagingCopyWriter {
+    
+    static final String COPY_SQL =
+            "COPY import_staging (job_id, row_no, external_id, title, description, amount, currency, " +
+            "base_amount, expense_date, category) FROM STDIN WITH (FORMAT csv)";
+    
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+    
+    private final CopyIn copyIn;
+    private final long jobId;
+    private final StringBuilder pending = new StringBuilder(FLUSH_THRESHOLD + 4096);
+    
+    StagingCopyWriter(CopyIn copyIn, long jobId) {
+        this.copyIn = copyIn;
+        this.jobId = jobId;
+    }
+    
+    void write(StatementRow row, String title, BigDecimal amount, String currency, BigDecimal baseAmount,
+               String category)
+            throws SQLException {
+        pending.append(jobId).append(',')
+                .append(row.getRowNumber()).append(',');
+        appendText(row.getExternalId());
+        pending.append(',');
+        appendText(title);
+        pending.append(',');
+        appendText(row.getDescription());
+        pending.append(',')
+                .append(amount.toPlainString()).append(',');
+        appendText(currency);
+        pending.append(',')
+                .append(baseAmount.toPlainString()).append(',')
+                .append(row.getDate()).append(',');
+        appendText(category);
+        pending.append('\n');
+        
+        if (pending.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+    
+    /** Completes the COPY and returns the number of rows the server stored. */
+    long finish() throws SQLException {
+        flush();
+        return copyIn.endCopy();
+    }
+    
+    void cancel() {
+        try {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException e) {
+            // The connection is discarded by the caller anyway
+        }
+    }
+    
+    // Unquoted empty is NULL in COPY CSV, so every non-null string is quoted
+    private void appendText(String value) {
+        if (value == null) {
+            return;
+        }
+        pending.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                pending.append("\"\"");
+            } else if (c != '\0') {
+                pending.append(c);
+            }
+        }
+        pending.append('"');
+    }
+    
+    private void flush() throws SQLException {
+        if (pending.length() == 0) {
+            return;
+        }
+        byte[] bytes = pending.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        pending.setLength(0);
+    }
+}
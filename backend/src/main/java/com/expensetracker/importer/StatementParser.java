@@ -0,0 +1,24 @@
+package com.expensetracker.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a statement file front to back without holding it in memory, handing each
+ * transaction to the handler as soon as it is complete.
+ */
+public interface StatementParser {
+    
+    void parse(Reader reader, Handler handler) throws IOException;
+    
+    interface Handler {
+        
+        void row(StatementRow row) throws IOException;
+        
+        /** The row could not be read; the import continues without it. */
+        void reject(long rowNumber, String reason);
+        
+        /** The row is valid but is not an expense (a credit or a refund). */
+        void skip(long rowNumber);
+    }
+}
@@ -0,0 +1,38 @@
+package com.expensetracker.importer;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** One expense read from an uploaded statement, before currency conversion. */
+public class StatementRow {
+    
+    private final long rowNumber;
+    private final String externalId;
+    private final String title;
+    private final String description;
+    private final BigDecimal amount;
+    private final String currency;
+    private final LocalDate date;
+    private final String category;
+    
+    public StatementRow(long rowNumber, String externalId, String title, String description,
+                        BigDecimal amount, String currency, LocalDate date, String category) {
+        this.rowNumber = rowNumber;
+        this.externalId = externalId;
+        this.title = title;
+        this.description = description;
+        this.amount = amount;
+        this.currency = currency;
+        this.date = date;
+        this.category = category;
+    }
+    
+    public long getRowNumber() { return rowNumber; }
+    public String getExternalId() { return externalId; }
+    public String getTitle() { return title; }
+    public String getDescription() { return description; }
+    public BigDecimal getAmount() { return amount; }
+    public String getCurrency() { return currency; }
+    public LocalDate getDate() { return date; }
+    public String getCategory() { return category; }
+}
@@ -0,0 +1,82 @@
+package com.expensetracker.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Outermost filter: assigns the correlation ID (taken from X-Correlation-Id when
+ * the caller sends a sane one), puts it in the MDC and the response, and decides
+ * whether this request is sampled for request and SQL logging.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+    
+    public static final String HEADER = "X-Correlation-Id";
+    public static final String MDC_KEY = "correlationId";
+    
+    private static final Logger requestLog = LoggerFactory.getLogger("com.expensetracker.requests");
+    private static final int MAX_ID_LENGTH = 64;
+    
+    @Value("${app.logging.sample-rate:0.01}")
+    private double sampleRate;
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String correlationId = request.getHeader(HEADER);
+        if (!isValid(correlationId)) {
+            correlationId = newId();
+        }
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        
+        MDC.put(MDC_KEY, correlationId);
+        RequestSampling.begin(sampled);
+        response.setHeader(HEADER, correlationId);
+        long started = sampled ? System.nanoTime() : 0;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                requestLog.info("{} {} -> {} in {} ms", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), (System.nanoTime() - started) / 1_000_000);
+            }
+            RequestSampling.end();
+            MDC.remove(MDC_KEY);
+        }
+    }
+    
+    // 16 hex digits; ThreadLocalRandom avoids the SecureRandom behind UUID.randomUUID()
+    private static String newId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+    
+    private static boolean isValid(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.';
+            if (!allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
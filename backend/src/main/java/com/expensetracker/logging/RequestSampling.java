@@ -0,0 +1,25 @@
+package com.expensetracker.logging;
+
+/**
+ * Whether the request on the current thread was picked for verbose logging.
+ * Kept in a plain thread-local flag rather than the MDC so the turbo filter can
+ * check it on every log call without a map lookup.
+ */
+public final class RequestSampling {
+    
+    private static final ThreadLocal<Boolean> SAMPLED = new ThreadLocal<>();
+    
+    private RequestSampling() {}
+    
+    public static boolean isSampled() {
+        return SAMPLED.get() == Boolean.TRUE;
+    }
+    
+    static void begin(boolean sampled) {
+        SAMPLED.set(sampled ? Boolean.TRUE : Boolean.FALSE);
+    }
+    
+    static void end() {
+        SAMPLED.remove();
+    }
+}
@@ -0,0 +1,40 @@
+package com.expensetracker.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+/**
+ * Drops events from the configured loggers (SQL, bind parameters) unless the
+ * current request was sampled. Runs before Logback builds the event, so an
+ * unsampled statement costs a prefix check and nothing else. WARN and above
+ * always pass.
+ */
+public class SampledLoggersTurboFilter extends TurboFilter {
+    
+    private String[] prefixes = new String[0];
+    
+    public void setLoggers(String loggers) {
+        String[] names = loggers.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        prefixes = names;
+    }
+    
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        String name = logger.getName();
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return RequestSampling.isSampled() ? FilterReply.NEUTRAL : FilterReply.DENY;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,46 @@
+package com.expensetracker.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Progress of one account deletion; outlives the user, so user_id is not a foreign key
+@Entity
+@Table(name = "account_deletion_jobs")
+public class AccountDeletionJob {
+    
+    // Random, so the id alone is enough to poll the job once the account is gone
+    @Id
+    private UUID id;
+    
+    @Column(name = "user_id", nullable = false)
+    @JsonIgnore
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AccountDeletionStatus status;
+    
+    @Column(name = "expenses_deleted")
+    private Long expensesDeleted;
+    
+    private String message;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    public AccountDeletionJob() {}
+    
+    public UUID getId() { return id; }
+    public Long getUserId() { return userId; }
+    public AccountDeletionStatus getStatus() { return status; }
+    public Long getExpensesDeleted() { return expensesDeleted; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+}
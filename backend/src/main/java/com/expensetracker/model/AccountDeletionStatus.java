@@ -0,0 +1,8 @@
+package com.expensetracker.model;
+
+public enum AccountDeletionStatus {
+    QUEUED,
+    DELETING,
+    COMPLETED,
+    FAILED
+}
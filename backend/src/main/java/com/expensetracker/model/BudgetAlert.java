@@ -0,0 +1,62 @@
+package com.expensetracker.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Written once per budget, month and threshold by BudgetService; read-only here
+@Entity
+@Table(name = "budget_alerts")
+public class BudgetAlert {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    @JsonIgnore
+    private Long userId;
+    
+    @Column(name = "category_id", nullable = false)
+    @JsonIgnore
+    private Integer categoryId;
+    
+    @Transient
+    private String category;
+    
+    @Column(nullable = false)
+    @JsonFormat(pattern = "yyyy-MM")
+    private LocalDate period;
+    
+    // Percentage of the monthly limit that was crossed
+    @Column(nullable = false)
+    private Integer threshold;
+    
+    @Column(precision = 14, scale = 2)
+    private BigDecimal spent;
+    
+    @Column(name = "monthly_limit", precision = 10, scale = 2)
+    private BigDecimal monthlyLimit;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public BudgetAlert() {}
+    
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public Integer getCategoryId() { return categoryId; }
+    
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+    
+    public LocalDate getPeriod() { return period; }
+    public Integer getThreshold() { return threshold; }
+    public BigDecimal getSpent() { return spent; }
+    public BigDecimal getMonthlyLimit() { return monthlyLimit; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -1,11 +1,14 @@
 package com.expensetracker.model;
 
+import com.expensetracker.category.ExpenseCategoryListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -13,6 +16,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "expenses")
+@EntityListeners(ExpenseCategoryListener.class)
 public class Expense {
     
     @Id
@@ -31,11 +35,27 @@ public class Expense {
     @Column(precision = 10, scale = 2)
     private BigDecimal amount;
     
+    // ISO 4217 code of amount; defaults to the base currency
+    @Size(min = 3, max = 3, message = "Currency must be a 3-letter ISO code")
+    @Column(length = 3)
+    private String currency;
+    
+    // Amount converted to the base currency once, at write time; all totals aggregate this
+    @Column(name = "base_amount", precision = 14, scale = 2)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private BigDecimal baseAmount;
+    
     @NotNull(message = "Expense date is required")
     @Column(name = "expense_date")
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate expenseDate;
     
+    // Stored as a key into the user's categories; the name is filled in from the dictionary cache
+    @Column(name = "category_id")
+    @JsonIgnore
+    private Integer categoryId;
+    
+    @Transient
     @Size(max = 100, message = "Category cannot exceed 100 characters")
     private String category = "General";
     
@@ -115,6 +135,22 @@ public class Expense {
         this.amount = amount;
     }
     
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+    
+    public BigDecimal getBaseAmount() {
+        return baseAmount;
+    }
+    
+    public void setBaseAmount(BigDecimal baseAmount) {
+        this.baseAmount = baseAmount;
+    }
+    
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
@@ -131,6 +167,14 @@ public class Expense {
         this.category = category;
     }
     
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+    
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+    
     public User getUser() {
         return user;
     }
@@ -166,6 +210,7 @@ public class Expense {
                 "id=" + id +
                 ", title='" + title + '\'' +
                 ", amount=" + amount +
+                ", currency='" + currency + '\'' +
                 ", expenseDate=" + expenseDate +
                 ", category='" + category + '\'' +
                 ", userId=" + getUserId() +
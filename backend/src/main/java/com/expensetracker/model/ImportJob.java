@@ -0,0 +1,71 @@
+package com.expensetracker.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+// Progress of one statement upload; written by ExpenseImportService, read-only here
+@Entity
+@Table(name = "import_jobs")
+public class ImportJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    @JsonIgnore
+    private Long userId;
+    
+    @Column(name = "file_name")
+    private String fileName;
+    
+    @Column(nullable = false)
+    private String format;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ImportStatus status;
+    
+    @Column(name = "rows_read")
+    private Long rowsRead;
+    
+    @Column(name = "rows_imported")
+    private Long rowsImported;
+    
+    // Rows that matched an expense imported earlier
+    @Column(name = "rows_duplicate")
+    private Long rowsDuplicate;
+    
+    @Column(name = "rows_rejected")
+    private Long rowsRejected;
+    
+    // Credits and other rows that are not expenses
+    @Column(name = "rows_skipped")
+    private Long rowsSkipped;
+    
+    private String message;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    public ImportJob() {}
+    
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public String getFileName() { return fileName; }
+    public String getFormat() { return format; }
+    public ImportStatus getStatus() { return status; }
+    public Long getRowsRead() { return rowsRead; }
+    public Long getRowsImported() { return rowsImported; }
+    public Long getRowsDuplicate() { return rowsDuplicate; }
+    public Long getRowsRejected() { return rowsRejected; }
+    public Long getRowsSkipped() { return rowsSkipped; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+}
@@ -0,0 +1,9 @@
+package com.expensetracker.model;
+
+public enum ImportStatus {
+    QUEUED,
+    PARSING,
+    MERGING,
+    COMPLETED,
+    FAILED
+}
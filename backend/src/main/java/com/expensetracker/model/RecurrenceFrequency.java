@@ -0,0 +1,52 @@
+package com.expensetracker.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
+public enum RecurrenceFrequency {
+    WEEKLY,
+    MONTHLY,
+    YEARLY;
+    
+    /**
+     * The occurrence that follows {@code current} for a schedule anchored at {@code start}.
+     * Monthly and yearly steps are taken from the anchor, so a rule starting on the 31st
+     * comes back to the 31st after shorter months.
+     */
+    public LocalDate nextAfter(LocalDate start, LocalDate current) {
+        switch (this) {
+            case WEEKLY:
+                return current.plusWeeks(1);
+            case MONTHLY:
+                return start.plusMonths(ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(current)) + 1);
+            case YEARLY:
+                return start.plusYears(current.getYear() - start.getYear() + 1);
+            default:
+                throw new IllegalStateException("Unknown frequency: " + this);
+        }
+    }
+    
+    /** The first occurrence on or after {@code date} for a schedule anchored at {@code start}. */
+    public LocalDate firstOnOrAfter(LocalDate start, LocalDate date) {
+        LocalDate occurrence = start;
+        if (occurrence.isBefore(date)) {
+            switch (this) {
+                case WEEKLY:
+                    long weeks = ChronoUnit.WEEKS.between(start, date);
+                    occurrence = start.plusWeeks(weeks);
+                    break;
+                case MONTHLY:
+                    occurrence = start.plusMonths(ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(date)));
+                    break;
+                case YEARLY:
+                    occurrence = start.plusYears(date.getYear() - start.getYear());
+                    break;
+            }
+        }
+        while (occurrence.isBefore(date)) {
+            occurrence = nextAfter(start, occurrence);
+        }
+        return occurrence;
+    }
+}
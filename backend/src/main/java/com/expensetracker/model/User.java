@@ -47,7 +47,13 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Set when the account is queued for deletion; the user can no longer sign in
+    @Column(name = "deletion_requested_at")
+    @JsonIgnore
+    private LocalDateTime deletionRequestedAt;
+    
+    // No cascade: accounts are deleted in chunks by AccountDeletionService, not through this list
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Expense> expenses = new ArrayList<>();
     
@@ -134,6 +140,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
     
+    public LocalDateTime getDeletionRequestedAt() {
+        return deletionRequestedAt;
+    }
+    
+    public void setDeletionRequestedAt(LocalDateTime deletionRequestedAt) {
+        this.deletionRequestedAt = deletionRequestedAt;
+    }
+    
     public List<Expense> getExpenses() {
         return expenses;
     }
@@ -0,0 +1,8 @@
+package com.expensetracker.monitoring;
+
+public class StatementBudgetExceededException extends RuntimeException {
+    
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
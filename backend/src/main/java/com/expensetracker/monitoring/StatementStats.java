@@ -0,0 +1,58 @@
+package com.expensetracker.monitoring;
+
+/**
+ * SQL statements executed and time spent in the database by the request on the
+ * current thread. Only threads inside StatementStatsFilter are tracked; work on
+ * scheduler or import threads is not attributed to any request.
+ */
+public final class StatementStats {
+    
+    private static final ThreadLocal<StatementStats> CURRENT = new ThreadLocal<>();
+    
+    private int statements;
+    private long nanos;
+    private boolean budgetReported;
+    
+    private StatementStats() {}
+    
+    static StatementStats begin() {
+        StatementStats stats = new StatementStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+    
+    static void end() {
+        CURRENT.remove();
+    }
+    
+    /** The stats of the current request, or null outside a request. */
+    public static StatementStats current() {
+        return CURRENT.get();
+    }
+    
+    void record(long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+    }
+    
+    public int getStatements() {
+        return statements;
+    }
+    
+    public long getNanos() {
+        return nanos;
+    }
+    
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+    
+    /** True the first time it is called for a request over budget, so it is reported once. */
+    boolean markBudgetReported() {
+        if (budgetReported) {
+            return false;
+        }
+        budgetReported = true;
+        return true;
+    }
+}
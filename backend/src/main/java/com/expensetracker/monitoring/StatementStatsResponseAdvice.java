@@ -0,0 +1,55 @@
+package com.expensetracker.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds X-Sql-Statements / X-Sql-Time-Ms to responses when enabled (meant for
+ * development and test environments). In strict mode a request over the
+ * statement budget fails instead of answering, which lets integration tests
+ * catch a change that adds queries to an endpoint. Statements issued while the
+ * body is serialized (lazy loading) happen after this point and only show up in
+ * the metrics.
+ */
+@ControllerAdvice
+public class StatementStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+    
+    @Value("${app.sql-stats.response-headers:false}")
+    private boolean responseHeaders;
+    
+    @Value("${app.sql-stats.strict:false}")
+    private boolean strict;
+    
+    @Value("${app.sql-stats.max-statements-per-request:10}")
+    private int maxStatements;
+    
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return responseHeaders || strict;
+    }
+    
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        StatementStats stats = StatementStats.current();
+        if (stats == null) {
+            return body;
+        }
+        if (responseHeaders) {
+            response.getHeaders().set("X-Sql-Statements", String.valueOf(stats.getStatements()));
+            response.getHeaders().set("X-Sql-Time-Ms", String.valueOf(stats.getMillis()));
+        }
+        if (strict && stats.getStatements() > maxStatements && stats.markBudgetReported()) {
+            throw new StatementBudgetExceededException(request.getMethod() + " " + request.getURI().getPath()
+                    + " executed " + stats.getStatements() + " SQL statements, budget is " + maxStatements);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,37 @@
+package com.expensetracker.outbox;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One change to an expense, as read back from the outbox. The payload holds the
+ * expense after the change (CREATED, UPDATED) or before it (DELETED); an UPDATED
+ * payload also has "previous" with the category, date and base amount it replaced.
+ * RESYNC events have no expense id and only a "reason" in the payload.
+ */
+public class ExpenseEvent {
+    
+    private final long id;
+    private final Long userId;
+    private final Long expenseId;
+    private final ExpenseEventType type;
+    private final Map<String, Object> payload;
+    private final Instant createdAt;
+    
+    public ExpenseEvent(long id, Long userId, Long expenseId, ExpenseEventType type,
+                        Map<String, Object> payload, Instant createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.expenseId = expenseId;
+        this.type = type;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+    
+    public long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public Long getExpenseId() { return expenseId; }
+    public ExpenseEventType getType() { return type; }
+    public Map<String, Object> getPayload() { return payload; }
+    public Instant getCreatedAt() { return createdAt; }
+}
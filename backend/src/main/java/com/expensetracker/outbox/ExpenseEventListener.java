@@ -0,0 +1,17 @@
+package com.expensetracker.outbox;
+
+import java.util.List;
+
+/**
+ * Receives committed expense changes from the OutboxRelay. Any bean implementing
+ * this is registered.
+ *
+ * Delivery is at least once: if a listener throws, or the node stops before the
+ * batch is acknowledged, the whole batch is delivered again, to every listener.
+ * A user's events always arrive in the order their transactions committed, so
+ * listeners must tolerate repeats but never see a user's changes reordered.
+ */
+public interface ExpenseEventListener {
+    
+    void onEvents(List<ExpenseEvent> events);
+}
@@ -0,0 +1,9 @@
+package com.expensetracker.outbox;
+
+public enum ExpenseEventType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // The user's expenses changed in bulk; rebuild from the table. Has no expense id.
+    RESYNC
+}
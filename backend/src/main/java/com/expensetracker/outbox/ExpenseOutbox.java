@@ -0,0 +1,137 @@
+package com.expensetracker.outbox;
+
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes expense changes to the expense_events outbox. Must be called inside the
+ * transaction making the change, so that the event commits or rolls back with it.
+ */
+@Component
+public class ExpenseOutbox {
+    
+    // The per-user advisory lock is held until commit, so a user's events commit in id
+    // order and the relay, which reads by id, cannot pass over one that commits late
+    private static final String INSERT_SQL =
+            "WITH locked AS (SELECT pg_advisory_xact_lock(hashtext('expense_events'), (?::bigint % 2147483647)::int)) " +
+            "INSERT INTO expense_events (user_id, expense_id, event_type, payload) " +
+            "SELECT ?, ?::bigint, ?, ?::jsonb FROM locked";
+    
+    // Same, for many rows: every user's lock is taken, in user id order, before any row is inserted
+    private static final String INSERT_BATCH_SQL =
+            "WITH locked AS (SELECT count(*) FROM (" +
+            "  SELECT pg_advisory_xact_lock(hashtext('expense_events'), (u % 2147483647)::int) " +
+            "  FROM (SELECT DISTINCT unnest(?::bigint[]) AS u ORDER BY u) users) l) " +
+            "INSERT INTO expense_events (user_id, expense_id, event_type, payload) " +
+            "SELECT t.user_id, t.expense_id, t.event_type, t.payload::jsonb " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::text[], ?::text[]) WITH ORDINALITY " +
+            "AS t(user_id, expense_id, event_type, payload, ord), locked ORDER BY t.ord";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public void recordCreated(Expense expense) {
+        record(expense, ExpenseEventType.CREATED, stateOf(expense));
+    }
+    
+    public void recordUpdated(Expense expense, Integer previousCategoryId, LocalDate previousDate,
+                              BigDecimal previousBaseAmount) {
+        Map<String, Object> previous = new LinkedHashMap<>();
+        previous.put("categoryId", previousCategoryId);
+        previous.put("expenseDate", previousDate);
+        previous.put("baseAmount", previousBaseAmount);
+        
+        Map<String, Object> payload = stateOf(expense);
+        payload.put("previous", previous);
+        record(expense, ExpenseEventType.UPDATED, payload);
+    }
+    
+    public void recordDeleted(Expense expense) {
+        record(expense, ExpenseEventType.DELETED, stateOf(expense));
+    }
+    
+    /**
+     * Events for rows written in bulk (recurring generation, base amount recomputes),
+     * with one statement. The lists are parallel; payloads are built with stateOf.
+     */
+    public void recordBatch(ExpenseEventType type, List<Long> userIds, List<Long> expenseIds,
+                            List<Map<String, Object>> payloads) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        List<String> types = new ArrayList<>();
+        List<String> json = new ArrayList<>();
+        for (Map<String, Object> payload : payloads) {
+            types.add(type.name());
+            json.add(toJson(payload));
+        }
+        jdbcTemplate.update(INSERT_BATCH_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            Object[] users = userIds.toArray();
+            ps.setArray(1, connection.createArrayOf("int8", users));
+            ps.setArray(2, connection.createArrayOf("int8", users));
+            ps.setArray(3, connection.createArrayOf("int8", expenseIds.toArray()));
+            ps.setArray(4, connection.createArrayOf("text", types.toArray()));
+            ps.setArray(5, connection.createArrayOf("text", json.toArray()));
+        });
+    }
+    
+    /**
+     * Tells listeners that the user's expenses changed in bulk (statement import,
+     * account deletion) and any view of them has to be rebuilt from the expenses
+     * table. Cheaper than one event per row, and the only option once rows are gone.
+     */
+    public void recordResync(Long userId, String reason) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("reason", reason);
+        jdbcTemplate.update(INSERT_SQL, userId, userId, null, ExpenseEventType.RESYNC.name(), toJson(payload));
+    }
+    
+    public static Map<String, Object> stateOf(Long id, String title, BigDecimal amount, String currency,
+                                              BigDecimal baseAmount, LocalDate expenseDate, Integer categoryId,
+                                              String category) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("id", id);
+        state.put("title", title);
+        state.put("amount", amount);
+        state.put("currency", currency);
+        state.put("baseAmount", baseAmount);
+        state.put("expenseDate", expenseDate);
+        state.put("categoryId", categoryId);
+        state.put("category", category);
+        return state;
+    }
+    
+    private void record(Expense expense, ExpenseEventType type, Map<String, Object> payload) {
+        Long userId = expense.getUserId();
+        jdbcTemplate.update(INSERT_SQL, userId, userId, expense.getId(), type.name(), toJson(payload));
+    }
+    
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize expense event", e);
+        }
+    }
+    
+    private static Map<String, Object> stateOf(Expense expense) {
+        return stateOf(expense.getId(), expense.getTitle(), expense.getAmount(), expense.getCurrency(),
+                expense.getBaseAmount(), expense.getExpenseDate(), expense.getCategoryId(), expense.getCategory());
+    }
+}
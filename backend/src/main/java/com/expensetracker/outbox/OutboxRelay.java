@@ -0,0 +1,222 @@
+package com.expensetracker.outbox;
+
+import com.expensetracker.datasource.ShardContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the expense_events outbox and hands batches to every ExpenseEventListener.
+ *
+ * A batch is claimed with FOR UPDATE SKIP LOCKED, so relays on several nodes share
+ * the work without waiting on each other, and deleted in the same transaction once
+ * every listener has accepted it. If a user's oldest event is claimed by another
+ * relay, that user's later events are left for the next poll, which keeps each
+ * user's events in order across nodes.
+ */
+@Component
+public class OutboxRelay {
+    
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    
+    private static final String CLAIM_SQL =
+            "SELECT id, user_id, expense_id, event_type, payload::text, created_at FROM expense_events " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    
+    private static final String OLDEST_PER_USER_SQL =
+            "SELECT user_id, min(id) FROM expense_events WHERE user_id = ANY(?) GROUP BY user_id";
+    
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired(required = false)
+    private List<ExpenseEventListener> listeners = new ArrayList<>();
+    
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+    
+    // Batches per shard and poll, so a backlog on one shard can't starve the others
+    @Value("${app.outbox.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+    
+    private TransactionTemplate transactionTemplate;
+    private Counter dispatched;
+    private Counter failedBatches;
+    private Timer batchTimer;
+    private DistributionSummary eventLag;
+    
+    // Age of the oldest undelivered event per shard ("" without sharding), in milliseconds
+    private final Map<String, Long> oldestPendingAge = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        dispatched = Counter.builder("outbox.events.dispatched")
+                .description("Expense events handed to the listeners")
+                .register(meterRegistry);
+        failedBatches = Counter.builder("outbox.batches.failed")
+                .description("Batches rolled back because a listener failed; they are delivered again")
+                .register(meterRegistry);
+        batchTimer = Timer.builder("outbox.batch.duration")
+                .description("Claiming, dispatching and acknowledging one batch")
+                .register(meterRegistry);
+        eventLag = DistributionSummary.builder("outbox.event.lag")
+                .description("Time from the change to its delivery")
+                .baseUnit("milliseconds")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("outbox.lag", oldestPendingAge,
+                        ages -> ages.values().stream().mapToLong(Long::longValue).max().orElse(0) / 1000.0)
+                .description("Age of the oldest event not yet delivered")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+    
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void poll() {
+        ShardContext.forEachShard(shard -> {
+            boolean drained = false;
+            try {
+                for (int i = 0; i < maxBatchesPerPoll && !drained; i++) {
+                    drained = relayBatch() < batchSize;
+                }
+            } catch (RuntimeException e) {
+                drained = false;
+                failedBatches.increment();
+                log.warn("Expense event batch failed and will be delivered again", e);
+            }
+            oldestPendingAge.put(shard != null ? shard : "", drained ? 0 : oldestPendingAge());
+        });
+    }
+    
+    /**
+     * Dispatches one batch and returns the number of events delivered; fewer than
+     * batch-size means nothing more can be delivered right now.
+     */
+    int relayBatch() {
+        long started = System.nanoTime();
+        Integer delivered = transactionTemplate.execute(status -> {
+            List<ExpenseEvent> batch = claim();
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<ExpenseEvent> ready = inUserOrder(batch);
+            if (ready.isEmpty()) {
+                return 0;
+            }
+            for (ExpenseEventListener listener : listeners) {
+                listener.onEvents(Collections.unmodifiableList(ready));
+            }
+            acknowledge(ready);
+            return ready.size();
+        });
+        if (delivered > 0) {
+            batchTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        return delivered;
+    }
+    
+    private List<ExpenseEvent> claim() {
+        List<ExpenseEvent> batch = new ArrayList<>();
+        jdbcTemplate.query(CLAIM_SQL, (RowCallbackHandler) rs -> batch.add(new ExpenseEvent(
+                rs.getLong(1), rs.getLong(2), rs.getObject(3, Long.class), ExpenseEventType.valueOf(rs.getString(4)),
+                parse(rs.getString(5)), rs.getTimestamp(6).toInstant())), batchSize);
+        return batch;
+    }
+    
+    // Drops the events of users whose earlier events are claimed by another relay
+    private List<ExpenseEvent> inUserOrder(List<ExpenseEvent> batch) {
+        Map<Long, Long> firstClaimed = new HashMap<>();
+        for (ExpenseEvent event : batch) {
+            firstClaimed.putIfAbsent(event.getUserId(), event.getId());
+        }
+        Set<Long> blocked = new HashSet<>();
+        jdbcTemplate.query(OLDEST_PER_USER_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8", firstClaimed.keySet().toArray()));
+        }, (RowCallbackHandler) rs -> {
+            if (rs.getLong(2) < firstClaimed.get(rs.getLong(1))) {
+                blocked.add(rs.getLong(1));
+            }
+        });
+        if (blocked.isEmpty()) {
+            return batch;
+        }
+        List<ExpenseEvent> ready = new ArrayList<>();
+        for (ExpenseEvent event : batch) {
+            if (!blocked.contains(event.getUserId())) {
+                ready.add(event);
+            }
+        }
+        return ready;
+    }
+    
+    private void acknowledge(List<ExpenseEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Long[] ids = new Long[events.size()];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = events.get(i).getId();
+            eventLag.record(now - events.get(i).getCreatedAt().toEpochMilli());
+        }
+        jdbcTemplate.update("DELETE FROM expense_events WHERE id = ANY(?)", ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("int8", ids));
+        });
+        dispatched.increment(ids.length);
+    }
+    
+    private long oldestPendingAge() {
+        List<Timestamp> oldest = jdbcTemplate.queryForList(
+                "SELECT created_at FROM expense_events ORDER BY id LIMIT 1", Timestamp.class);
+        if (oldest.isEmpty()) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(oldest.get(0).toInstant(), Instant.now()).toMillis());
+    }
+    
+    private Map<String, Object> parse(String payload) {
+        try {
+            return objectMapper.readValue(payload, PAYLOAD_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable expense event payload", e);
+        }
+    }
+}
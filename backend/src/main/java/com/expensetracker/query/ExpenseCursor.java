@@ -0,0 +1,60 @@
+package com.expensetracker.query;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Where a page ended: the sort value and id of its last row. Opaque to clients,
+ * and only valid with the sort it was issued for.
+ */
+class ExpenseCursor {
+    
+    private final ExpenseSortKey sortKey;
+    private final boolean descending;
+    private final String value;
+    private final long id;
+    
+    ExpenseCursor(ExpenseSortKey sortKey, boolean descending, String value, long id) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.value = value;
+        this.id = id;
+    }
+    
+    static ExpenseCursor decode(String encoded, ExpenseSortKey sortKey, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(sortKey.name()) || !parts[1].equals(descending ? "desc" : "asc")) {
+            throw new IllegalArgumentException("The cursor belongs to a different sort");
+        }
+        try {
+            ExpenseCursor cursor = new ExpenseCursor(sortKey, descending, parts[2], Long.parseLong(parts[3]));
+            cursor.sortValue();
+            return cursor;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    String encode() {
+        String raw = sortKey.name() + "|" + (descending ? "desc" : "asc") + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /** The sort value as a JDBC parameter. */
+    Object sortValue() {
+        return sortKey == ExpenseSortKey.DATE ? Date.valueOf(LocalDate.parse(value)) : new BigDecimal(value);
+    }
+    
+    long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,54 @@
+package com.expensetracker.query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The filters, sort and page of one GET /api/expenses/query request, as sent by the client. */
+public class ExpenseQuery {
+    
+    private List<String> categories = new ArrayList<>();
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    // In the base currency, like the totals
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    
+    // Matched case-insensitively anywhere in the title or description
+    private String text;
+    
+    // "<key>,<asc|desc>", e.g. "amount,desc"
+    private String sort = "date,desc";
+    
+    private String cursor;
+    private Integer limit;
+    
+    public List<String> getCategories() { return categories; }
+    public void setCategories(List<String> categories) { this.categories = categories; }
+    
+    public LocalDate getStartDate() { return startDate; }
+    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+    
+    public LocalDate getEndDate() { return endDate; }
+    public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+    
+    public BigDecimal getMinAmount() { return minAmount; }
+    public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+    
+    public BigDecimal getMaxAmount() { return maxAmount; }
+    public void setMaxAmount(BigDecimal maxAmount) { this.maxAmount = maxAmount; }
+    
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+    
+    public String getSort() { return sort; }
+    public void setSort(String sort) { this.sort = sort; }
+    
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+    
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+}
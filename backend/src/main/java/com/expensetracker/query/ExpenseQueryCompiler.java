@@ -0,0 +1,173 @@
+package com.expensetracker.query;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns an ExpenseQuery into one parameterized SQL statement.
+ *
+ * The sort key picks the index the query pages along, (user_id, sort column, id).
+ * A range on the sort column, the keyset cursor and, for date sorts, a single
+ * category (via the (user_id, category_id, expense_date) index) narrow that index
+ * scan. Every other filter - the other range, several categories, text - can't use
+ * it and is applied to at most maxScanRows rows of the scan; when a page stops at
+ * that cap it may be short, and its cursor continues after the last row examined.
+ */
+class ExpenseQueryCompiler {
+    
+    static final int MAX_TEXT_LENGTH = 100;
+    
+    static final String COLUMNS =
+            "id, title, description, amount, currency, base_amount, expense_date, category_id, created_at, updated_at";
+    
+    private final int maxScanRows;
+    
+    ExpenseQueryCompiler(int maxScanRows) {
+        this.maxScanRows = maxScanRows;
+    }
+    
+    CompiledQuery compile(Long userId, ExpenseQuery query, List<Integer> categoryIds, int pageSize) {
+        String[] sort = (query.getSort() != null ? query.getSort() : "date,desc").toLowerCase(Locale.ROOT).split(",");
+        ExpenseSortKey sortKey = parseSortKey(sort[0].trim());
+        boolean descending = sort.length < 2 || parseDirection(sort[1].trim());
+        validate(query);
+        
+        CompiledQuery compiled = new CompiledQuery(sortKey, descending);
+        String direction = descending ? "DESC" : "ASC";
+        String order = sortKey.getColumn() + " " + direction + ", id " + direction;
+        
+        List<String> access = new ArrayList<>();
+        List<Object> accessArgs = new ArrayList<>();
+        List<String> residual = new ArrayList<>();
+        List<Object> residualArgs = new ArrayList<>();
+        access.add("user_id = ?");
+        accessArgs.add(userId);
+        
+        boolean byDate = sortKey == ExpenseSortKey.DATE;
+        addRange(byDate ? access : residual, byDate ? accessArgs : residualArgs, "expense_date",
+                toDate(query.getStartDate()), toDate(query.getEndDate()));
+        addRange(byDate ? residual : access, byDate ? residualArgs : accessArgs, "base_amount",
+                query.getMinAmount(), query.getMaxAmount());
+        
+        if (categoryIds.size() == 1 && byDate) {
+            access.add("category_id = ?");
+            accessArgs.add(categoryIds.get(0));
+        } else if (!categoryIds.isEmpty()) {
+            residual.add("category_id IN (" + String.join(", ", Collections.nCopies(categoryIds.size(), "?")) + ")");
+            residualArgs.addAll(categoryIds);
+        }
+        
+        if (query.getText() != null && !query.getText().isBlank()) {
+            String pattern = "%" + escapeLike(query.getText().trim()) + "%";
+            residual.add("(title ILIKE ? OR description ILIKE ?)");
+            residualArgs.add(pattern);
+            residualArgs.add(pattern);
+        }
+        
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            ExpenseCursor cursor = ExpenseCursor.decode(query.getCursor(), sortKey, descending);
+            access.add("(" + sortKey.getColumn() + ", id) " + (descending ? "<" : ">") + " (?, ?)");
+            accessArgs.add(cursor.sortValue());
+            accessArgs.add(cursor.getId());
+        }
+        
+        String scan = "SELECT " + COLUMNS + " FROM expenses WHERE " + String.join(" AND ", access)
+                + " ORDER BY " + order + " LIMIT ?";
+        if (residual.isEmpty()) {
+            compiled.sql = scan;
+            compiled.args.addAll(accessArgs);
+            compiled.args.add(pageSize + 1);
+            return compiled;
+        }
+        
+        // The extra row flagged scan_boundary is the last one examined, returned only when the cap was hit
+        String reverse = sortKey.getColumn() + " " + (descending ? "ASC" : "DESC") + ", id " + (descending ? "ASC" : "DESC");
+        compiled.sql = "WITH scanned AS (" + scan + ") " +
+                "SELECT * FROM (" +
+                "(SELECT " + COLUMNS + ", false AS scan_boundary FROM scanned WHERE " + String.join(" AND ", residual)
+                + " ORDER BY " + order + " LIMIT ?) " +
+                "UNION ALL " +
+                "(SELECT " + COLUMNS + ", true FROM scanned WHERE (SELECT count(*) FROM scanned) = ?"
+                + " ORDER BY " + reverse + " LIMIT 1)" +
+                ") page ORDER BY scan_boundary, " + order;
+        compiled.scanCapped = true;
+        compiled.args.addAll(accessArgs);
+        compiled.args.add(maxScanRows);
+        compiled.args.addAll(residualArgs);
+        compiled.args.add(pageSize + 1);
+        compiled.args.add(maxScanRows);
+        return compiled;
+    }
+    
+    private static void validate(ExpenseQuery query) {
+        if (query.getStartDate() != null && query.getEndDate() != null
+                && query.getStartDate().isAfter(query.getEndDate())) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        if (query.getMinAmount() != null && query.getMaxAmount() != null
+                && query.getMinAmount().compareTo(query.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("minAmount must not be greater than maxAmount");
+        }
+        if (query.getText() != null && query.getText().length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("text cannot exceed " + MAX_TEXT_LENGTH + " characters");
+        }
+    }
+    
+    private static ExpenseSortKey parseSortKey(String key) {
+        for (ExpenseSortKey sortKey : ExpenseSortKey.values()) {
+            if (sortKey.name().equalsIgnoreCase(key)) {
+                return sortKey;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + key);
+    }
+    
+    private static boolean parseDirection(String direction) {
+        switch (direction) {
+            case "desc":
+                return true;
+            case "asc":
+                return false;
+            default:
+                throw new IllegalArgumentException("Unsupported sort direction: " + direction);
+        }
+    }
+    
+    private static void addRange(List<String> predicates, List<Object> args, String column, Object from, Object to) {
+        if (from != null) {
+            predicates.add(column + " >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            predicates.add(column + " <= ?");
+            args.add(to);
+        }
+    }
+    
+    private static Date toDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+    
+    // ILIKE's default escape character is the backslash
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    static class CompiledQuery {
+        
+        final ExpenseSortKey sortKey;
+        final boolean descending;
+        final List<Object> args = new ArrayList<>();
+        String sql;
+        boolean scanCapped;
+        
+        CompiledQuery(ExpenseSortKey sortKey, boolean descending) {
+            this.sortKey = sortKey;
+            this.descending = descending;
+        }
+    }
+}
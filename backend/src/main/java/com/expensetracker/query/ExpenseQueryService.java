@@ -0,0 +1,125 @@
+package com.expensetracker.query;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.dto.ExpensePage;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class ExpenseQueryService {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${app.query.default-page-size:50}")
+    private int defaultPageSize;
+    
+    @Value("${app.query.max-page-size:200}")
+    private int maxPageSize;
+    
+    // Rows one page may examine for filters the index can't apply
+    @Value("${app.query.max-scan-rows:2000}")
+    private int maxScanRows;
+    
+    @Value("${app.query.max-categories:20}")
+    private int maxCategories;
+    
+    /** One page of the user's expenses matching the query; invalid queries fail with IllegalArgumentException. */
+    @Transactional(readOnly = true)
+    public ExpensePage query(Long userId, ExpenseQuery query) {
+        int pageSize = query.getLimit() != null ? query.getLimit() : defaultPageSize;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        pageSize = Math.min(pageSize, maxPageSize);
+        
+        List<Integer> categoryIds = new ArrayList<>();
+        if (query.getCategories() != null && !query.getCategories().isEmpty()) {
+            if (query.getCategories().size() > maxCategories) {
+                throw new IllegalArgumentException("At most " + maxCategories + " categories can be combined");
+            }
+            Set<Integer> resolved = new LinkedHashSet<>();
+            for (String name : query.getCategories()) {
+                Integer categoryId = categoryDictionary.find(userId, name);
+                if (categoryId != null) {
+                    resolved.add(categoryId);
+                }
+            }
+            // Only categories the user never used were asked for
+            if (resolved.isEmpty()) {
+                return new ExpensePage(new ArrayList<>(), null);
+            }
+            categoryIds.addAll(resolved);
+        }
+        
+        ExpenseQueryCompiler.CompiledQuery compiled =
+                new ExpenseQueryCompiler(maxScanRows).compile(userId, query, categoryIds, pageSize);
+        User user = userRepository.getReferenceById(userId);
+        List<Expense> matched = new ArrayList<>();
+        Expense[] boundary = {null};
+        jdbcTemplate.query(compiled.sql, (RowCallbackHandler) rs -> {
+            Expense expense = toExpense(rs, userId, user);
+            if (compiled.scanCapped && rs.getBoolean("scan_boundary")) {
+                boundary[0] = expense;
+            } else {
+                matched.add(expense);
+            }
+        }, compiled.args.toArray());
+        
+        if (matched.size() > pageSize) {
+            List<Expense> page = new ArrayList<>(matched.subList(0, pageSize));
+            return new ExpensePage(page, cursorAfter(page.get(pageSize - 1), compiled));
+        }
+        return new ExpensePage(matched, boundary[0] != null ? cursorAfter(boundary[0], compiled) : null);
+    }
+    
+    private Expense toExpense(ResultSet rs, Long userId, User user) throws SQLException {
+        Expense expense = new Expense();
+        expense.setId(rs.getLong("id"));
+        expense.setTitle(rs.getString("title"));
+        expense.setDescription(rs.getString("description"));
+        expense.setAmount(rs.getBigDecimal("amount"));
+        expense.setCurrency(rs.getString("currency"));
+        expense.setBaseAmount(rs.getBigDecimal("base_amount"));
+        expense.setExpenseDate(rs.getDate("expense_date").toLocalDate());
+        expense.setCategoryId(rs.getInt("category_id"));
+        expense.setCategory(categoryDictionary.nameOf(userId, expense.getCategoryId()));
+        expense.setUser(user);
+        expense.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+        expense.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at")));
+        return expense;
+    }
+    
+    private static String cursorAfter(Expense expense, ExpenseQueryCompiler.CompiledQuery compiled) {
+        String value = compiled.sortKey == ExpenseSortKey.DATE
+                ? expense.getExpenseDate().toString()
+                : expense.getBaseAmount().toPlainString();
+        return new ExpenseCursor(compiled.sortKey, compiled.descending, value, expense.getId()).encode();
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
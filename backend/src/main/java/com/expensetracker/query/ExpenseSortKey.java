@@ -0,0 +1,17 @@
+package com.expensetracker.query;
+
+/** Sort keys of GET /api/expenses/query; each has a (user_id, column, id) index to page along. */
+public enum ExpenseSortKey {
+    DATE("expense_date"),
+    AMOUNT("base_amount");
+    
+    private final String column;
+    
+    ExpenseSortKey(String column) {
+        this.column = column;
+    }
+    
+    public String getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,14 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.AccountDeletionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AccountDeletionJobRepository extends JpaRepository<AccountDeletionJob, UUID> {
+    
+    Optional<AccountDeletionJob> findFirstByUserIdOrderByCreatedAtDesc(Long userId);
+}
@@ -0,0 +1,14 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.BudgetAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BudgetAlertRepository extends JpaRepository<BudgetAlert, Long> {
+    
+    List<BudgetAlert> findByUserIdAndPeriodOrderByCreatedAtDesc(Long userId, LocalDate period);
+}
@@ -0,0 +1,23 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Budget;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BudgetRepository extends JpaRepository<Budget, Long> {
+    
+    @Query("SELECT b FROM Budget b WHERE b.user.id = :userId")
+    List<Budget> findByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT b FROM Budget b WHERE b.id = :id AND b.user.id = :userId")
+    Optional<Budget> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+    
+    @Query("SELECT b FROM Budget b WHERE b.user.id = :userId AND b.categoryId = :categoryId")
+    Optional<Budget> findByUserIdAndCategoryId(@Param("userId") Long userId, @Param("categoryId") Integer categoryId);
+}
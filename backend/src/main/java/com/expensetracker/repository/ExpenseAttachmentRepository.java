@@ -0,0 +1,18 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.ExpenseAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ExpenseAttachmentRepository extends JpaRepository<ExpenseAttachment, Long> {
+    
+    List<ExpenseAttachment> findByExpenseIdAndUserIdOrderByIdAsc(Long expenseId, Long userId);
+    
+    Optional<ExpenseAttachment> findByIdAndExpenseIdAndUserId(Long id, Long expenseId, Long userId);
+    
+    long countByExpenseId(Long expenseId);
+}
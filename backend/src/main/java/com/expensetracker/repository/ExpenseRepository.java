@@ -1,7 +1,9 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.model.Expense;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -20,28 +22,33 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     @Query("SELECT e FROM Expense e WHERE e.id = :id AND e.user.id = :userId")
     Optional<Expense> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
     
-    @Query("SELECT e FROM Expense e WHERE e.user.id = :userId AND e.category = :category ORDER BY e.expenseDate DESC")
-    List<Expense> findByUserIdAndCategoryOrderByExpenseDateDesc(@Param("userId") Long userId, @Param("category") String category);
+    // Row lock so concurrent edits of the same expense apply their spend deltas one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Expense e WHERE e.id = :id AND e.user.id = :userId")
+    Optional<Expense> findByIdAndUserIdForUpdate(@Param("id") Long id, @Param("userId") Long userId);
+    
+    @Query("SELECT e FROM Expense e WHERE e.user.id = :userId AND e.categoryId = :categoryId ORDER BY e.expenseDate DESC")
+    List<Expense> findByUserIdAndCategoryIdOrderByExpenseDateDesc(@Param("userId") Long userId, @Param("categoryId") Integer categoryId);
     
     @Query("SELECT e FROM Expense e WHERE e.user.id = :userId AND e.expenseDate BETWEEN :startDate AND :endDate ORDER BY e.expenseDate DESC")
     List<Expense> findByUserIdAndExpenseDateBetweenOrderByExpenseDateDesc(
             @Param("userId") Long userId, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
     
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user.id = :userId")
+    @Query("SELECT SUM(e.baseAmount) FROM Expense e WHERE e.user.id = :userId")
     BigDecimal getTotalExpensesByUserId(@Param("userId") Long userId);
     
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user.id = :userId " +
+    @Query("SELECT SUM(e.baseAmount) FROM Expense e WHERE e.user.id = :userId " +
            "AND e.expenseDate BETWEEN :startDate AND :endDate")
     BigDecimal getTotalExpensesByUserIdAndDateRange(
             @Param("userId") Long userId, 
             @Param("startDate") LocalDate startDate, 
             @Param("endDate") LocalDate endDate);
     
-   @Query("SELECT e.category, SUM(e.amount) FROM Expense e WHERE e.user.id = :userId " +
-           "GROUP BY e.category ORDER BY SUM(e.amount) DESC")
+   @Query("SELECT e.categoryId, SUM(e.baseAmount) FROM Expense e WHERE e.user.id = :userId " +
+           "GROUP BY e.categoryId ORDER BY SUM(e.baseAmount) DESC")
     List<Object[]> getExpensesByCategoryForUser(@Param("userId") Long userId);
     
-    @Query("SELECT YEAR(e.expenseDate), MONTH(e.expenseDate), SUM(e.amount) " +
+    @Query("SELECT YEAR(e.expenseDate), MONTH(e.expenseDate), SUM(e.baseAmount) " +
            "FROM Expense e WHERE e.user.id = :userId " +
            "GROUP BY YEAR(e.expenseDate), MONTH(e.expenseDate) " +
            "ORDER BY YEAR(e.expenseDate), MONTH(e.expenseDate)")
@@ -49,4 +56,8 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     
     @Query("SELECT COUNT(e) FROM Expense e WHERE e.user.id = :userId")
     long countByUserId(@Param("userId") Long userId);
+    
+    // Only the columns the in-memory analytics engine keeps
+    @Query("SELECT e.id, e.baseAmount, e.expenseDate, e.categoryId FROM Expense e WHERE e.user.id = :userId")
+    List<Object[]> findColumnarRowsByUserId(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+    
+    Optional<ImportJob> findByIdAndUserId(Long id, Long userId);
+    
+    List<ImportJob> findTop20ByUserIdOrderByCreatedAtDesc(Long userId);
+}
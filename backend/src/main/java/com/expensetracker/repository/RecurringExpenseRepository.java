@@ -0,0 +1,20 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.RecurringExpense;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long> {
+    
+    @Query("SELECT r FROM RecurringExpense r WHERE r.user.id = :userId ORDER BY r.nextRunDate")
+    List<RecurringExpense> findByUserIdOrderByNextRunDate(@Param("userId") Long userId);
+    
+    @Query("SELECT r FROM RecurringExpense r WHERE r.id = :id AND r.user.id = :userId")
+    Optional<RecurringExpense> findByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+}
@@ -0,0 +1,65 @@
+package com.expensetracker.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Time-limited leases on (job, partition) rows in the job_leases table, so that
+ * several application nodes can share a scheduled job without two of them working
+ * on the same partition. Lease expiry is judged by the database clock.
+ */
+@Component
+public class JobLeaseManager {
+    
+    private static final String ACQUIRE_SQL =
+            "INSERT INTO job_leases (job_name, partition_no, owner, lease_until) " +
+            "VALUES (?, ?, ?, now() + make_interval(secs => ?)) " +
+            "ON CONFLICT (job_name, partition_no) DO UPDATE " +
+            "SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until " +
+            "WHERE job_leases.lease_until < now() OR job_leases.owner = EXCLUDED.owner";
+    
+    private static final String RENEW_SQL =
+            "UPDATE job_leases SET lease_until = now() + make_interval(secs => ?) " +
+            "WHERE job_name = ? AND partition_no = ? AND owner = ?";
+    
+    private static final String RELEASE_SQL =
+            "UPDATE job_leases SET lease_until = now() " +
+            "WHERE job_name = ? AND partition_no = ? AND owner = ?";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final String owner = hostName() + "-" + UUID.randomUUID();
+    
+    public boolean tryAcquire(String jobName, int partition, Duration lease) {
+        return jdbcTemplate.update(ACQUIRE_SQL, jobName, partition, owner, lease.getSeconds()) == 1;
+    }
+    
+    /** Extends a lease this node holds; false means it expired and another node may own it now. */
+    public boolean renew(String jobName, int partition, Duration lease) {
+        return jdbcTemplate.update(RENEW_SQL, lease.getSeconds(), jobName, partition, owner) == 1;
+    }
+    
+    public void release(String jobName, int partition) {
+        jdbcTemplate.update(RELEASE_SQL, jobName, partition, owner);
+    }
+    
+    /** This node's name in job_leases, also used by jobs that claim their own rows. */
+    public String getOwner() {
+        return owner;
+    }
+    
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
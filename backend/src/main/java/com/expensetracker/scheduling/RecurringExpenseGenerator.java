@@ -0,0 +1,386 @@
+package com.expensetracker.scheduling;
+
+import com.expensetracker.analytics.AmountSketchEngine;
+import com.expensetracker.analytics.ColumnarAnalyticsEngine;
+import com.expensetracker.cache.ExpenseRangeCache;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.currency.ExchangeRateService;
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.datasource.ShardDirectory;
+import com.expensetracker.model.RecurrenceFrequency;
+import com.expensetracker.outbox.ExpenseEventType;
+import com.expensetracker.outbox.ExpenseOutbox;
+import com.expensetracker.service.BudgetService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Turns due recurring-expense rules into expenses.
+ *
+ * Rules are split into user ID ranges; each range is claimed through a database
+ * lease, so any number of nodes can run the job at once, and processed by a pool
+ * of worker threads. Within a range, due rules are read in keyset-paged chunks and
+ * every chunk is written with one multi-row INSERT and one multi-row UPDATE in a
+ * single transaction. The (recurring_rule_id, recurring_period) unique key makes
+ * re-running a chunk after a crash or a lost lease harmless.
+ */
+@Component
+public class RecurringExpenseGenerator {
+    
+    private static final Logger log = LoggerFactory.getLogger(RecurringExpenseGenerator.class);
+    
+    private static final String JOB_NAME = "recurring-expenses";
+    
+    private static final String SELECT_DUE_SQL =
+            "SELECT id, user_id, title, description, amount, currency, category_id, frequency, " +
+            "start_date, end_date, next_run_date FROM recurring_expenses " +
+            "WHERE active AND next_run_date <= ? AND user_id >= ? AND user_id < ? AND id > ? " +
+            "ORDER BY id LIMIT ?";
+    
+    private static final String INSERT_OCCURRENCES_SQL =
+            "INSERT INTO expenses (title, description, amount, currency, base_amount, expense_date, category_id, " +
+            "user_id, recurring_rule_id, recurring_period, created_at, updated_at) " +
+            "SELECT t.title, t.description, t.amount, t.currency, t.base_amount, t.period, t.category_id, " +
+            "t.user_id, t.rule_id, t.period, now(), now() " +
+            "FROM unnest(?::text[], ?::text[], ?::numeric[], ?::text[], ?::numeric[], ?::date[], ?::int[], " +
+            "?::bigint[], ?::bigint[]) " +
+            "AS t(title, description, amount, currency, base_amount, period, category_id, user_id, rule_id) " +
+            "ON CONFLICT (recurring_rule_id, recurring_period) DO NOTHING " +
+            "RETURNING id, user_id, title, amount, currency, category_id, expense_date, base_amount";
+    
+    private static final String ADVANCE_RULES_SQL =
+            "UPDATE recurring_expenses r SET next_run_date = t.next_run_date, active = t.active, updated_at = now() " +
+            "FROM unnest(?::bigint[], ?::date[], ?::boolean[]) AS t(id, next_run_date, active) " +
+            "WHERE r.id = t.id";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private JobLeaseManager leaseManager;
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    @Autowired
+    private ColumnarAnalyticsEngine analyticsEngine;
+    
+    @Autowired
+    private AmountSketchEngine sketchEngine;
+    
+    @Autowired
+    private ExpenseRangeCache rangeCache;
+    
+    @Autowired
+    private ExpenseOutbox expenseOutbox;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    // Only present when sharding is enabled
+    @Autowired(required = false)
+    private ShardDirectory shardDirectory;
+    
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+    
+    @Value("${app.recurring.partitions:16}")
+    private int partitions;
+    
+    @Value("${app.recurring.worker-threads:4}")
+    private int workerThreads;
+    
+    @Value("${app.recurring.chunk-size:500}")
+    private int chunkSize;
+    
+    @Value("${app.recurring.lease-seconds:300}")
+    private long leaseSeconds;
+    
+    private ExecutorService workers;
+    private TransactionTemplate transactionTemplate;
+    
+    // Shard and partition of every partition submitted and not yet finished on this node
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "recurring-expenses-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+    
+    // Only submits the partitions: the scheduler's threads are shared with every other job
+    @Scheduled(cron = "${app.recurring.cron:0 */15 * * * *}")
+    public void run() {
+        LocalDate today = LocalDate.now();
+        ShardContext.forEachShard(shard -> submitPartitions(shard, today));
+    }
+    
+    /** Generates every occurrence due on or before {@code today} and waits; returns how many expenses were created. */
+    public int generateDue(LocalDate today) {
+        List<Future<Integer>> results = new ArrayList<>();
+        ShardContext.forEachShard(shard -> results.addAll(submitPartitions(shard, today)));
+        
+        int generated = 0;
+        for (Future<Integer> result : results) {
+            try {
+                generated += result.get();
+            } catch (ExecutionException e) {
+                // Already logged by the partition
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return generated;
+    }
+    
+    // Partitions and their leases are per shard, since each shard has its own job_leases table
+    private List<Future<Integer>> submitPartitions(String shard, LocalDate today) {
+        Long maxUserId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(user_id), 0) FROM recurring_expenses", Long.class);
+        long rangeWidth = maxUserId / partitions + 1;
+        
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            int p = partition;
+            long fromUserId = p * rangeWidth;
+            long toUserId = fromUserId + rangeWidth;
+            // The lease is re-entrant for this node, so a partition still running from the last run is skipped here
+            String key = shard + "/" + p;
+            if (!inFlight.add(key)) {
+                continue;
+            }
+            results.add(workers.submit(() -> {
+                try {
+                    int generated = ShardContext.callOnShard(shard, () -> runPartition(p, fromUserId, toUserId, today));
+                    if (generated > 0) {
+                        log.info("Generated {} recurring expenses due by {} in partition {}", generated, today, p);
+                    }
+                    return generated;
+                } catch (RuntimeException e) {
+                    log.error("Recurring expense partition {} failed", p, e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key);
+                }
+            }));
+        }
+        return results;
+    }
+    
+    private int runPartition(int partition, long fromUserId, long toUserId, LocalDate today) {
+        Duration lease = Duration.ofSeconds(leaseSeconds);
+        if (!leaseManager.tryAcquire(JOB_NAME, partition, lease)) {
+            // Another node is working on this range
+            return 0;
+        }
+        
+        int generated = 0;
+        try {
+            long afterId = 0;
+            while (true) {
+                List<Rule> rules = jdbcTemplate.query(SELECT_DUE_SQL, (rs, rowNum) -> new Rule(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        rs.getString("title"),
+                        rs.getString("description"),
+                        rs.getBigDecimal("amount"),
+                        rs.getString("currency"),
+                        rs.getInt("category_id"),
+                        RecurrenceFrequency.valueOf(rs.getString("frequency")),
+                        rs.getDate("start_date").toLocalDate(),
+                        rs.getDate("end_date") != null ? rs.getDate("end_date").toLocalDate() : null,
+                        rs.getDate("next_run_date").toLocalDate()),
+                        Date.valueOf(today), fromUserId, toUserId, afterId, chunkSize);
+                if (rules.isEmpty()) {
+                    break;
+                }
+                
+                afterId = rules.get(rules.size() - 1).id;
+                // Users being moved to another shard are left for the next run
+                if (shardDirectory != null) {
+                    rules.removeIf(rule -> shardDirectory.isMoving(rule.userId));
+                }
+                
+                if (!rules.isEmpty()) {
+                    Set<Long> touchedUsers = new HashSet<>();
+                    generated += transactionTemplate.execute(status -> generateChunk(rules, today, touchedUsers));
+                    touchedUsers.forEach(analyticsEngine::evict);
+                }
+                
+                if (!leaseManager.renew(JOB_NAME, partition, lease)) {
+                    log.warn("Lost lease on recurring expense partition {}, stopping", partition);
+                    break;
+                }
+            }
+        } finally {
+            leaseManager.release(JOB_NAME, partition);
+        }
+        return generated;
+    }
+    
+    private int generateChunk(List<Rule> rules, LocalDate today, Set<Long> touchedUsers) {
+        List<String> titles = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        List<String> currencies = new ArrayList<>();
+        List<BigDecimal> baseAmounts = new ArrayList<>();
+        List<Date> periods = new ArrayList<>();
+        List<Integer> categoryIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        List<Long> ruleIds = new ArrayList<>();
+        
+        List<Long> advancedIds = new ArrayList<>();
+        List<Date> nextRunDates = new ArrayList<>();
+        List<Boolean> stillActive = new ArrayList<>();
+        
+        for (Rule rule : rules) {
+            List<LocalDate> occurrences = new ArrayList<>();
+            List<BigDecimal> converted = new ArrayList<>();
+            LocalDate occurrence = rule.nextRunDate;
+            try {
+                while (!occurrence.isAfter(today) && (rule.endDate == null || !occurrence.isAfter(rule.endDate))) {
+                    converted.add(exchangeRateService.toBase(rule.amount, rule.currency, occurrence));
+                    occurrences.add(occurrence);
+                    occurrence = rule.frequency.nextAfter(rule.startDate, occurrence);
+                }
+            } catch (RuntimeException e) {
+                // Leave the rule where it is and retry on a later run, once the rate is published
+                log.warn("Skipping recurring expense {}: {}", rule.id, e.getMessage());
+                continue;
+            }
+            
+            for (int i = 0; i < occurrences.size(); i++) {
+                titles.add(rule.title);
+                descriptions.add(rule.description);
+                amounts.add(rule.amount);
+                currencies.add(rule.currency);
+                baseAmounts.add(converted.get(i));
+                periods.add(Date.valueOf(occurrences.get(i)));
+                categoryIds.add(rule.categoryId);
+                userIds.add(rule.userId);
+                ruleIds.add(rule.id);
+            }
+            advancedIds.add(rule.id);
+            nextRunDates.add(Date.valueOf(occurrence));
+            stillActive.add(rule.endDate == null || !occurrence.isAfter(rule.endDate));
+        }
+        
+        // Only rows that were actually inserted come back, so counters never double-count a re-run
+        Map<List<Object>, BigDecimal> spendDeltas = new HashMap<>();
+        Map<List<Object>, Integer> sketchDeltas = new HashMap<>();
+        List<Long> eventUserIds = new ArrayList<>();
+        List<Long> eventExpenseIds = new ArrayList<>();
+        List<Map<String, Object>> eventPayloads = new ArrayList<>();
+        int[] inserted = {0};
+        if (!ruleIds.isEmpty()) {
+            jdbcTemplate.query(INSERT_OCCURRENCES_SQL, ps -> {
+                Connection connection = ps.getConnection();
+                ps.setArray(1, connection.createArrayOf("text", titles.toArray()));
+                ps.setArray(2, connection.createArrayOf("text", descriptions.toArray()));
+                ps.setArray(3, connection.createArrayOf("numeric", amounts.toArray()));
+                ps.setArray(4, connection.createArrayOf("text", currencies.toArray()));
+                ps.setArray(5, connection.createArrayOf("numeric", baseAmounts.toArray()));
+                ps.setArray(6, connection.createArrayOf("date", periods.toArray()));
+                ps.setArray(7, connection.createArrayOf("int4", categoryIds.toArray()));
+                ps.setArray(8, connection.createArrayOf("int8", userIds.toArray()));
+                ps.setArray(9, connection.createArrayOf("int8", ruleIds.toArray()));
+            }, (RowCallbackHandler) rs -> {
+                long userId = rs.getLong("user_id");
+                LocalDate date = rs.getDate("expense_date").toLocalDate();
+                List<Object> key = List.of(userId, rs.getInt("category_id"), date.withDayOfMonth(1));
+                spendDeltas.merge(key, rs.getBigDecimal("base_amount"), BigDecimal::add);
+                sketchDeltas.merge(List.of(userId, rs.getInt("category_id"), rs.getBigDecimal("base_amount")),
+                        1, Integer::sum);
+                eventUserIds.add(userId);
+                eventExpenseIds.add(rs.getLong("id"));
+                eventPayloads.add(ExpenseOutbox.stateOf(rs.getLong("id"), rs.getString("title"),
+                        rs.getBigDecimal("amount"), rs.getString("currency"), rs.getBigDecimal("base_amount"), date,
+                        rs.getInt("category_id"), categoryDictionary.nameOf(userId, rs.getInt("category_id"))));
+                touchedUsers.add(userId);
+                inserted[0]++;
+            });
+        }
+        expenseOutbox.recordBatch(ExpenseEventType.CREATED, eventUserIds, eventExpenseIds, eventPayloads);
+        
+        spendDeltas.forEach((key, delta) ->
+                budgetService.recordSpend((Long) key.get(0), (Integer) key.get(1), (LocalDate) key.get(2), delta));
+        sketchEngine.recordAmounts(sketchDeltas);
+        spendDeltas.keySet().forEach(key -> rangeCache.invalidate((Long) key.get(0), (LocalDate) key.get(2)));
+        
+        if (!advancedIds.isEmpty()) {
+            jdbcTemplate.update(ADVANCE_RULES_SQL, ps -> {
+                Connection connection = ps.getConnection();
+                ps.setArray(1, connection.createArrayOf("int8", advancedIds.toArray()));
+                ps.setArray(2, connection.createArrayOf("date", nextRunDates.toArray()));
+                ps.setArray(3, connection.createArrayOf("bool", stillActive.toArray()));
+            });
+        }
+        
+        return inserted[0];
+    }
+    
+    private static class Rule {
+        final long id;
+        final long userId;
+        final String title;
+        final String description;
+        final BigDecimal amount;
+        final String currency;
+        final int categoryId;
+        final RecurrenceFrequency frequency;
+        final LocalDate startDate;
+        final LocalDate endDate;
+        final LocalDate nextRunDate;
+        
+        Rule(long id, long userId, String title, String description, BigDecimal amount, String currency,
+             int categoryId, RecurrenceFrequency frequency, LocalDate startDate, LocalDate endDate,
+             LocalDate nextRunDate) {
+            this.id = id;
+            this.userId = userId;
+            this.title = title;
+            this.description = description;
+            this.amount = amount;
+            this.currency = currency;
+            this.categoryId = categoryId;
+            this.frequency = frequency;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.nextRunDate = nextRunDate;
+        }
+    }
+}
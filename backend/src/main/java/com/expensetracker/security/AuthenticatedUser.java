@@ -0,0 +1,30 @@
+package com.expensetracker.security;
+
+import com.expensetracker.model.User;
+
+import java.util.ArrayList;
+
+/**
+ * Principal returned by CustomUserDetailsService. Keeps the id and email of the
+ * row it was loaded from, so callers of authentication don't look the user up again.
+ */
+public class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+    
+    private final Long id;
+    private final String email;
+    
+    public AuthenticatedUser(User user) {
+        super(user.getUsername(), user.getPassword(), user.getDeletionRequestedAt() == null,
+                true, true, true, new ArrayList<>());
+        this.id = user.getId();
+        this.email = user.getEmail();
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+}
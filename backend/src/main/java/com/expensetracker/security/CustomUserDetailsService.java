@@ -1,5 +1,7 @@
 package com.expensetracker.security;
 
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.datasource.ShardDirectory;
 import com.expensetracker.model.User;
 import com.expensetracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,7 +10,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Optional;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -16,23 +18,48 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
     
+    // Only present when sharding is enabled
+    @Autowired(required = false)
+    private ShardDirectory shardDirectory;
+    
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
         // Find user by username or email
-        User user = userRepository.findByUsernameOrEmail(usernameOrEmail)
+        User user = findUser(usernameOrEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + usernameOrEmail));
         
-        // Return Spring Security UserDetails object
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPassword(),
-                new ArrayList<>() // No roles for now, can add later
-        );
+        // No roles for now, can add later
+        return new AuthenticatedUser(user);
     }
     
     // Helper method to get User entity by username
     public User getUserByUsername(String username) {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        Optional<User> user = shardDirectory == null
+                ? userRepository.findByUsername(username)
+                : findUser(username).filter(found -> found.getUsername().equals(username));
+        return user.orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+    }
+    
+    private Optional<User> findUser(String usernameOrEmail) {
+        if (shardDirectory == null) {
+            return userRepository.findByUsernameOrEmail(usernameOrEmail);
+        }
+        
+        // The directory says which shard to look on; a cached login can be stale if
+        // another instance deleted the user or changed their email, so check and retry once
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Long userId = shardDirectory.findUserId(usernameOrEmail);
+            if (userId == null) {
+                return Optional.empty();
+            }
+            Optional<User> user = ShardContext.callForUser(userId, () -> userRepository.findById(userId))
+                    .filter(found -> usernameOrEmail.equals(found.getUsername())
+                            || usernameOrEmail.equals(found.getEmail()));
+            if (user.isPresent()) {
+                return user;
+            }
+            shardDirectory.forgetLogin(usernameOrEmail);
+        }
+        return Optional.empty();
     }
 }
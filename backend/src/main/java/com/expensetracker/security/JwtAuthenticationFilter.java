@@ -31,7 +31,6 @@ protected void doFilterInternal(HttpServletRequest request,
     String path = request.getRequestURI();
     if (path.contains("/api/auth")) {
         filterChain.doFilter(request, response);
-        System.out.println("Path = " + path);
         return;
     }
 
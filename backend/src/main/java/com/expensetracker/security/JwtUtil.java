@@ -2,6 +2,7 @@ package com.expensetracker.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -10,6 +11,7 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -21,6 +23,9 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private int jwtExpiration;
     
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+    
     private Key getSigningKey() {
         return Keys.hmacShaKeyFor(secret.getBytes());
     }
@@ -33,6 +38,10 @@ public class JwtUtil {
         return extractClaim(token, Claims::getExpiration);
     }
     
+    public String extractTokenId(String token) {
+        return extractClaim(token, Claims::getId);
+    }
+    
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
@@ -46,8 +55,12 @@ public class JwtUtil {
                 .getBody();
     }
     
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
+    }
+    
+    private Boolean isTokenRevoked(Claims claims) {
+        return revocationRegistry.isRevoked(claims.getSubject(), claims.getId(), claims.getIssuedAt());
     }
     
     public String generateToken(UserDetails userDetails) {
@@ -62,6 +75,7 @@ public class JwtUtil {
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
@@ -70,14 +84,15 @@ public class JwtUtil {
     }
     
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = extractAllClaims(token);
+        return (claims.getSubject().equals(userDetails.getUsername())
+                && userDetails.isEnabled() && !isTokenExpired(claims) && !isTokenRevoked(claims));
     }
     
     public Boolean validateToken(String token) {
         try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
+            Claims claims = extractAllClaims(token);
+            return !isTokenExpired(claims) && !isTokenRevoked(claims);
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
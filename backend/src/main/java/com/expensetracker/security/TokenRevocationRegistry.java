@@ -0,0 +1,172 @@
+package com.expensetracker.security;
+
+import com.expensetracker.datasource.ShardContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of revoked_tokens and token_watermarks, so a request can be
+ * checked against them without a query.
+ *
+ * Revocations made by this instance apply immediately; those made elsewhere are
+ * picked up by an incremental sync every app.auth.revocation-sync-interval-ms.
+ * Entries are dropped once every token they could match has expired, which keeps
+ * both maps bounded by the revocations of the last jwt.expiration.
+ *
+ * The first sync runs once the application is ready rather than during refresh,
+ * so that the CDS training run (which exits after refresh) needs no database.
+ * Until it has completed every token is treated as revoked.
+ */
+@Component
+public class TokenRevocationRegistry {
+    
+    private static final String REVOKE_SQL =
+            "INSERT INTO revoked_tokens (jti, user_id, expires_at) VALUES (?, ?, ?) " +
+            "ON CONFLICT (jti) DO NOTHING";
+    
+    private static final String WATERMARK_SQL =
+            "INSERT INTO token_watermarks (user_id, not_before) VALUES (?, ?) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "not_before = GREATEST(token_watermarks.not_before, EXCLUDED.not_before), updated_at = now()";
+    
+    private static final String SYNC_REVOKED_SQL =
+            "SELECT jti, expires_at, revoked_at FROM revoked_tokens " +
+            "WHERE revoked_at >= ? AND expires_at > now()";
+    
+    private static final String SYNC_WATERMARKS_SQL =
+            "SELECT u.username, w.not_before, w.updated_at FROM token_watermarks w " +
+            "JOIN users u ON u.id = w.user_id WHERE w.updated_at >= ?";
+    
+    // Rows are stamped with their transaction's start time, so one that commits late
+    // can carry a timestamp older than the cursor. Re-reading a window covers that.
+    private static final long SYNC_OVERLAP_MS = 60000;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${jwt.expiration}")
+    private int jwtExpiration;
+    
+    // jti -> expiry (epoch millis) of the revoked token
+    private final ConcurrentHashMap<UUID, Long> revokedTokens = new ConcurrentHashMap<>();
+    
+    // username -> tokens issued before this instant (epoch millis) are rejected
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+    
+    // {revoked_tokens cursor, token_watermarks cursor} per shard; "" without sharding
+    private final ConcurrentHashMap<String, long[]> cursors = new ConcurrentHashMap<>();
+    
+    private volatile boolean synced;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        sync();
+    }
+    
+    public boolean isRevoked(String username, String tokenId, Date issuedAt) {
+        if (!synced) {
+            return true;
+        }
+        Long watermark = notBefore.get(username);
+        if (watermark != null && (issuedAt == null || issuedAt.getTime() < watermark)) {
+            return true;
+        }
+        UUID jti = parseTokenId(tokenId);
+        return jti != null && revokedTokens.containsKey(jti);
+    }
+    
+    public void revokeToken(Long userId, String tokenId, Date expiresAt) {
+        UUID jti = parseTokenId(tokenId);
+        if (jti == null) {
+            throw new RuntimeException("Token has no id and cannot be revoked!");
+        }
+        jdbcTemplate.update(REVOKE_SQL, jti.toString(), userId, new Timestamp(expiresAt.getTime()));
+        afterCommit(() -> revokedTokens.put(jti, expiresAt.getTime()));
+    }
+    
+    /**
+     * Rejects every token the user holds that was issued before now. iat only has
+     * second precision, so the watermark is rounded up to the next second; a token
+     * issued in the same second as the revocation is rejected as well.
+     */
+    public void revokeAllIssuedBefore(Long userId, String username, Instant instant) {
+        Instant watermark = instant.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        jdbcTemplate.update(WATERMARK_SQL, userId, Timestamp.from(watermark));
+        afterCommit(() -> notBefore.merge(username, watermark.toEpochMilli(), Math::max));
+    }
+    
+    @Scheduled(fixedDelayString = "${app.auth.revocation-sync-interval-ms:5000}",
+            initialDelayString = "${app.auth.revocation-sync-interval-ms:5000}")
+    public void sync() {
+        long now = System.currentTimeMillis();
+        ShardContext.forEachShard(shard -> syncShard(cursors.computeIfAbsent(shard != null ? shard : "",
+                key -> new long[2])));
+        
+        revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+        notBefore.values().removeIf(watermark -> watermark < now - jwtExpiration);
+        synced = true;
+    }
+    
+    private void syncShard(long[] cursor) {
+        long[] latestRevoked = {cursor[0]};
+        jdbcTemplate.query(SYNC_REVOKED_SQL, rs -> {
+            revokedTokens.put(UUID.fromString(rs.getString(1)), rs.getTimestamp(2).getTime());
+            latestRevoked[0] = Math.max(latestRevoked[0], rs.getTimestamp(3).getTime());
+        }, new Timestamp(cursor[0] - SYNC_OVERLAP_MS));
+        cursor[0] = latestRevoked[0];
+        
+        long[] latestWatermark = {cursor[1]};
+        jdbcTemplate.query(SYNC_WATERMARKS_SQL, rs -> {
+            notBefore.merge(rs.getString(1), rs.getTimestamp(2).getTime(), Math::max);
+            latestWatermark[0] = Math.max(latestWatermark[0], rs.getTimestamp(3).getTime());
+        }, new Timestamp(cursor[1] - SYNC_OVERLAP_MS));
+        cursor[1] = latestWatermark[0];
+    }
+    
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        ShardContext.forEachShard(shard -> {
+            jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at < now()");
+            jdbcTemplate.update("DELETE FROM token_watermarks WHERE not_before < now() - make_interval(secs => ?)",
+                    jwtExpiration / 1000.0);
+        });
+    }
+    
+    private static UUID parseTokenId(String tokenId) {
+        if (tokenId == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(tokenId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,293 @@
+package com.expensetracker.service;
+
+import com.expensetracker.analytics.AmountSketchEngine;
+import com.expensetracker.analytics.ColumnarAnalyticsEngine;
+import com.expensetracker.analytics.SpendingTrendEngine;
+import com.expensetracker.cache.ExpenseRangeCache;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.datasource.ShardDirectory;
+import com.expensetracker.model.AccountDeletionJob;
+import com.expensetracker.model.AccountDeletionStatus;
+import com.expensetracker.model.User;
+import com.expensetracker.outbox.ExpenseOutbox;
+import com.expensetracker.repository.AccountDeletionJobRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.scheduling.JobLeaseManager;
+import com.expensetracker.security.TokenRevocationRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Deletes accounts in the background. The request only marks the user as being
+ * deleted, which blocks sign-in and revokes their tokens; a worker then removes
+ * expenses in chunks of app.account-deletion.chunk-size, each in its own short
+ * transaction, and finally deletes the user row so ON DELETE CASCADE clears the
+ * small per-user tables. Nothing is loaded into memory, and every step can be
+ * repeated, so jobs interrupted by a restart are simply run again.
+ *
+ * With several instances a job runs on one node at a time: the worker claims it
+ * by setting claimed_by, renews heartbeat_at with every chunk, and stops as soon
+ * as the claim is no longer its own. Queued jobs and jobs whose heartbeat is
+ * older than app.account-deletion.lease-seconds are picked up by any node on
+ * start and every app.account-deletion.resume-interval-ms.
+ */
+@Service
+public class AccountDeletionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AccountDeletionService.class);
+    
+    private static final String CLAIM_SQL =
+            "UPDATE account_deletion_jobs SET status = ?, claimed_by = ?, heartbeat_at = now() " +
+            "WHERE id = ? AND (status = ? OR (status = ? AND " +
+            "(heartbeat_at IS NULL OR heartbeat_at < now() - make_interval(secs => ?))))";
+    
+    // Also locks the job row, so a node whose claim was taken over cannot commit another chunk
+    private static final String HEARTBEAT_SQL =
+            "UPDATE account_deletion_jobs SET heartbeat_at = now() WHERE id = ? AND claimed_by = ? AND status = ?";
+    
+    private static final String RESUMABLE_SQL =
+            "SELECT id, user_id FROM account_deletion_jobs WHERE status = ? OR (status = ? AND " +
+            "(heartbeat_at IS NULL OR heartbeat_at < now() - make_interval(secs => ?)))";
+    
+    private static final String DELETE_EXPENSES_SQL =
+            "DELETE FROM expenses WHERE id IN (" +
+            "  SELECT id FROM expenses WHERE user_id = ? ORDER BY id LIMIT ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private AccountDeletionJobRepository jobRepository;
+    
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private ColumnarAnalyticsEngine analyticsEngine;
+    
+    @Autowired
+    private SpendingTrendEngine trendEngine;
+    
+    @Autowired
+    private AmountSketchEngine sketchEngine;
+    
+    @Autowired
+    private ExpenseRangeCache rangeCache;
+    
+    @Autowired
+    private JobLeaseManager leaseManager;
+    
+    @Autowired
+    private ExpenseOutbox expenseOutbox;
+    
+    // Only present when sharding is enabled
+    @Autowired(required = false)
+    private ShardDirectory shardDirectory;
+    
+    @Value("${app.account-deletion.chunk-size:5000}")
+    private int chunkSize;
+    
+    @Value("${app.account-deletion.worker-threads:1}")
+    private int workerThreads;
+    
+    @Value("${app.account-deletion.lease-seconds:120}")
+    private long leaseSeconds;
+    
+    private ExecutorService workers;
+    private TransactionTemplate transactionTemplate;
+    
+    // Jobs queued or running on this node, so the resume poll doesn't queue them twice
+    private final Set<UUID> submitted = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    public void init() {
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "account-deletion-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // Not during refresh: the CDS training run starts the context without a database
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStart() {
+        resumeJobs();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.account-deletion.resume-interval-ms:60000}",
+            initialDelayString = "${app.account-deletion.resume-interval-ms:60000}")
+    public void resumeJobs() {
+        ShardContext.forEachShard(shard -> jdbcTemplate.query(RESUMABLE_SQL, rs -> {
+            UUID jobId = rs.getObject("id", UUID.class);
+            if (!submitted.contains(jobId)) {
+                log.info("Resuming account deletion job {}", jobId);
+                submit(jobId, rs.getLong("user_id"));
+            }
+        }, AccountDeletionStatus.QUEUED.name(), AccountDeletionStatus.DELETING.name(), leaseSeconds));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+    
+    /**
+     * Queues the user's account for deletion. Asking again returns the job already
+     * queued, and restarts it if it failed.
+     */
+    public AccountDeletionJob requestDeletion(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found!"));
+        
+        UUID newJobId = UUID.randomUUID();
+        boolean queued = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update("UPDATE users SET deletion_requested_at = now() " +
+                    "WHERE id = ? AND deletion_requested_at IS NULL", userId) == 0) {
+                return false;
+            }
+            jdbcTemplate.update("INSERT INTO account_deletion_jobs (id, user_id, status) VALUES (?, ?, ?)",
+                    newJobId, userId, AccountDeletionStatus.QUEUED.name());
+            revocationRegistry.revokeAllIssuedBefore(userId, user.getUsername(), Instant.now());
+            return true;
+        });
+        
+        UUID jobId = newJobId;
+        if (!queued) {
+            AccountDeletionJob existing = jobRepository.findFirstByUserIdOrderByCreatedAtDesc(userId)
+                    .orElseThrow(() -> new RuntimeException("Account deletion is already in progress!"));
+            if (existing.getStatus() != AccountDeletionStatus.FAILED) {
+                return existing;
+            }
+            jobId = existing.getId();
+            jdbcTemplate.update("UPDATE account_deletion_jobs SET status = ?, message = NULL, finished_at = NULL " +
+                    "WHERE id = ?", AccountDeletionStatus.QUEUED.name(), jobId);
+        }
+        submit(jobId, userId);
+        return jobRepository.findById(jobId).orElseThrow();
+    }
+    
+    // Polled without signing in, so with sharding the job has to be looked for on every shard
+    public Optional<AccountDeletionJob> getJob(UUID jobId) {
+        List<AccountDeletionJob> found = new ArrayList<>();
+        ShardContext.forEachShard(shard -> jobRepository.findById(jobId).ifPresent(found::add));
+        return found.stream().findFirst();
+    }
+    
+    private void submit(UUID jobId, Long userId) {
+        if (!submitted.add(jobId)) {
+            return;
+        }
+        try {
+            workers.submit(() -> {
+                try {
+                    ShardContext.runForUser(userId, () -> runDeletion(jobId, userId));
+                } finally {
+                    submitted.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Left QUEUED; picked up again by another node or on the next start
+            submitted.remove(jobId);
+            log.warn("Account deletion job {} not started, the worker pool is shutting down", jobId);
+        }
+    }
+    
+    private void runDeletion(UUID jobId, Long userId) {
+        long started = System.nanoTime();
+        String owner = leaseManager.getOwner();
+        if (jdbcTemplate.update(CLAIM_SQL, AccountDeletionStatus.DELETING.name(), owner, jobId,
+                AccountDeletionStatus.QUEUED.name(), AccountDeletionStatus.DELETING.name(), leaseSeconds) == 0) {
+            return;
+        }
+        try {
+            long deleted;
+            long total = 0;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    if (jdbcTemplate.update(HEARTBEAT_SQL, jobId, owner, AccountDeletionStatus.DELETING.name()) == 0) {
+                        return -1L;
+                    }
+                    int rows = jdbcTemplate.update(DELETE_EXPENSES_SQL, userId, chunkSize);
+                    jdbcTemplate.update(
+                            "UPDATE account_deletion_jobs SET expenses_deleted = expenses_deleted + ? WHERE id = ?",
+                            rows, jobId);
+                    if (rows > 0) {
+                        expenseOutbox.recordResync(userId, "account-deletion");
+                    }
+                    return (long) rows;
+                });
+                if (deleted < 0) {
+                    log.warn("Account deletion job {} was taken over by another node", jobId);
+                    return;
+                }
+                total += deleted;
+            } while (deleted == chunkSize && !Thread.currentThread().isInterrupted());
+            
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            
+            boolean completed = transactionTemplate.execute(status -> {
+                if (jdbcTemplate.update(HEARTBEAT_SQL, jobId, owner, AccountDeletionStatus.DELETING.name()) == 0) {
+                    return false;
+                }
+                jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+                jdbcTemplate.update("UPDATE account_deletion_jobs SET status = ?, finished_at = now() WHERE id = ?",
+                        AccountDeletionStatus.COMPLETED.name(), jobId);
+                return true;
+            });
+            if (!completed) {
+                log.warn("Account deletion job {} was taken over by another node", jobId);
+                return;
+            }
+            if (shardDirectory != null) {
+                shardDirectory.unregister(userId);
+            }
+            categoryDictionary.evict(userId);
+            analyticsEngine.evict(userId);
+            trendEngine.evict(userId);
+            sketchEngine.evict(userId);
+            rangeCache.evict(userId);
+            
+            log.info("Account deletion job {} finished: {} expenses deleted in {}s",
+                    jobId, total, String.format("%.2f", (System.nanoTime() - started) / 1_000_000_000.0));
+        } catch (Exception e) {
+            log.warn("Account deletion job {} failed", jobId, e);
+            jdbcTemplate.update("UPDATE account_deletion_jobs SET status = ?, message = ?, finished_at = now() " +
+                    "WHERE id = ? AND claimed_by = ?", AccountDeletionStatus.FAILED.name(), e.getMessage(), jobId, owner);
+        }
+    }
+}
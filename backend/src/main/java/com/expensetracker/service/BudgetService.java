@@ -0,0 +1,169 @@
+package com.expensetracker.service;
+
+import com.expensetracker.analytics.SpendingTrendEngine;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.BudgetAlert;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.BudgetAlertRepository;
+import com.expensetracker.repository.BudgetRepository;
+import com.expensetracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+@Service
+public class BudgetService {
+    
+    private static final int[] ALERT_THRESHOLDS = {80, 100};
+    
+    // Adds to the running per-month spend and returns the new total together with
+    // the budget for that category, if any, in one round trip. The upsert's row lock
+    // serializes concurrent writers for the same user, category and month.
+    private static final String RECORD_SPEND_SQL =
+            "WITH spend AS (" +
+            "  INSERT INTO category_month_spend (user_id, category_id, period, spent) VALUES (?, ?, ?, ?)" +
+            "  ON CONFLICT (user_id, category_id, period)" +
+            "  DO UPDATE SET spent = category_month_spend.spent + EXCLUDED.spent" +
+            "  RETURNING spent" +
+            ") " +
+            "SELECT spend.spent, b.monthly_limit FROM spend " +
+            "LEFT JOIN budgets b ON b.user_id = ? AND b.category_id = ?";
+    
+    private static final String INSERT_ALERT_SQL =
+            "INSERT INTO budget_alerts (user_id, category_id, period, threshold, spent, monthly_limit) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (user_id, category_id, period, threshold) DO NOTHING";
+    
+    @Autowired
+    private BudgetRepository budgetRepository;
+    
+    @Autowired
+    private BudgetAlertRepository budgetAlertRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private SpendingTrendEngine trendEngine;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Creates the budget for the category, or replaces its limit if one exists
+    @Transactional
+    public Budget saveBudget(Long userId, Budget budget) {
+        Optional<User> userOpt = userRepository.findById(userId);
+        
+        if (userOpt.isEmpty()) {
+            throw new RuntimeException("User not found!");
+        }
+        
+        String category = CategoryDictionary.normalize(budget.getCategory());
+        Integer categoryId = categoryDictionary.resolve(userId, category);
+        
+        Budget saved = budgetRepository.findByUserIdAndCategoryId(userId, categoryId).orElseGet(Budget::new);
+        saved.setUser(userOpt.get());
+        saved.setCategoryId(categoryId);
+        saved.setMonthlyLimit(budget.getMonthlyLimit());
+        saved = budgetRepository.save(saved);
+        saved.setCategory(category);
+        return saved;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Budget> getBudgets(Long userId) {
+        List<Budget> budgets = budgetRepository.findByUserId(userId);
+        budgets.forEach(budget -> budget.setCategory(categoryDictionary.nameOf(userId, budget.getCategoryId())));
+        return budgets;
+    }
+    
+    @Transactional
+    public void deleteBudget(Long budgetId, Long userId) {
+        Optional<Budget> budgetOpt = budgetRepository.findByIdAndUserId(budgetId, userId);
+        
+        if (budgetOpt.isEmpty()) {
+            throw new RuntimeException("Budget not found or access denied!");
+        }
+        
+        budgetRepository.delete(budgetOpt.get());
+    }
+    
+    // Current month's spend against every budget, plus the alerts raised this month
+    @Transactional(readOnly = true)
+    public Map<String, Object> getBudgetStatus(Long userId) {
+        LocalDate period = YearMonth.now().atDay(1);
+        
+        Map<Integer, BigDecimal> spentByCategory = new HashMap<>();
+        jdbcTemplate.query("SELECT category_id, spent FROM category_month_spend WHERE user_id = ? AND period = ?",
+                (RowCallbackHandler) rs -> spentByCategory.put(rs.getInt(1), rs.getBigDecimal(2)),
+                userId, period);
+        
+        List<Map<String, Object>> budgets = new ArrayList<>();
+        for (Budget budget : getBudgets(userId)) {
+            BigDecimal spent = spentByCategory.getOrDefault(budget.getCategoryId(), BigDecimal.ZERO);
+            BigDecimal percentUsed = spent.multiply(BigDecimal.valueOf(100))
+                    .divide(budget.getMonthlyLimit(), 1, RoundingMode.HALF_UP);
+            
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("budgetId", budget.getId());
+            status.put("category", budget.getCategory());
+            status.put("monthlyLimit", budget.getMonthlyLimit());
+            status.put("spent", spent);
+            status.put("percentUsed", percentUsed);
+            status.put("status", percentUsed.compareTo(BigDecimal.valueOf(100)) >= 0 ? "EXCEEDED"
+                    : percentUsed.compareTo(BigDecimal.valueOf(80)) >= 0 ? "WARNING" : "OK");
+            budgets.add(status);
+        }
+        
+        List<BudgetAlert> alerts = budgetAlertRepository.findByUserIdAndPeriodOrderByCreatedAtDesc(userId, period);
+        alerts.forEach(alert -> alert.setCategory(categoryDictionary.nameOf(userId, alert.getCategoryId())));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("period", YearMonth.from(period).toString());
+        response.put("budgets", budgets);
+        response.put("alerts", alerts);
+        return response;
+    }
+    
+    /**
+     * Applies an expense change to the running monthly spend of its category and
+     * raises an alert for every threshold the change crosses. Must be called inside
+     * the transaction that writes the expense, so the counter commits or rolls back with it.
+     */
+    public void recordSpend(Long userId, Integer categoryId, LocalDate expenseDate, BigDecimal delta) {
+        if (delta.signum() == 0) {
+            return;
+        }
+        
+        LocalDate period = expenseDate.withDayOfMonth(1);
+        Map<String, Object> row = jdbcTemplate.queryForMap(RECORD_SPEND_SQL,
+                userId, categoryId, period, delta, userId, categoryId);
+        
+        BigDecimal spent = (BigDecimal) row.get("spent");
+        trendEngine.recordSpend(userId, categoryId, period, delta, spent);
+        
+        BigDecimal limit = (BigDecimal) row.get("monthly_limit");
+        if (limit == null || delta.signum() < 0) {
+            return;
+        }
+        
+        BigDecimal previous = spent.subtract(delta);
+        for (int threshold : ALERT_THRESHOLDS) {
+            BigDecimal mark = limit.multiply(BigDecimal.valueOf(threshold)).divide(BigDecimal.valueOf(100));
+            if (previous.compareTo(mark) < 0 && spent.compareTo(mark) >= 0) {
+                jdbcTemplate.update(INSERT_ALERT_SQL, userId, categoryId, period, threshold, spent, limit);
+            }
+        }
+    }
+}
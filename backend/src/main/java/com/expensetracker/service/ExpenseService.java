@@ -1,11 +1,22 @@
 package com.expensetracker.service;
 
+import com.expensetracker.analytics.AmountSketchEngine;
+import com.expensetracker.analytics.AnalyticsGroupBy;
+import com.expensetracker.analytics.ColumnarAnalyticsEngine;
+import com.expensetracker.analytics.SpendingTrendEngine;
+import com.expensetracker.cache.ExpenseRangeCache;
+import com.expensetracker.cache.RequestCoalescer;
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.currency.ExchangeRateService;
+import com.expensetracker.dto.AnalyticsBucket;
 import com.expensetracker.model.Expense;
 import com.expensetracker.model.User;
+import com.expensetracker.outbox.ExpenseOutbox;
 import com.expensetracker.repository.ExpenseRepository;
 import com.expensetracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -21,7 +32,35 @@ public class ExpenseService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ColumnarAnalyticsEngine analyticsEngine;
+    
+    @Autowired
+    private SpendingTrendEngine trendEngine;
+    
+    @Autowired
+    private AmountSketchEngine sketchEngine;
+    
+    @Autowired
+    private ExpenseRangeCache rangeCache;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+    
+    @Autowired
+    private ExpenseOutbox expenseOutbox;
+    
    
+    @Transactional
     public Expense createExpense(Expense expense, Long userId) {
         Optional<User> userOpt = userRepository.findById(userId);
         
@@ -30,61 +69,125 @@ public class ExpenseService {
         }
         
         expense.setUser(userOpt.get());
-        return expenseRepository.save(expense);
+        expense.setCategory(CategoryDictionary.normalize(expense.getCategory()));
+        expense.setCategoryId(categoryDictionary.resolve(userId, expense.getCategory()));
+        expense.setCurrency(exchangeRateService.normalize(expense.getCurrency()));
+        expense.setBaseAmount(exchangeRateService.toBase(
+                expense.getAmount(), expense.getCurrency(), expense.getExpenseDate()));
+        Expense savedExpense = expenseRepository.save(expense);
+        budgetService.recordSpend(userId, savedExpense.getCategoryId(),
+                savedExpense.getExpenseDate(), savedExpense.getBaseAmount());
+        sketchEngine.recordAmount(userId, savedExpense.getCategoryId(), savedExpense.getBaseAmount(), 1);
+        expenseOutbox.recordCreated(savedExpense);
+        rangeCache.invalidate(userId, savedExpense.getExpenseDate());
+        requestCoalescer.forget(userId);
+        analyticsEngine.recordSaved(savedExpense);
+        return savedExpense;
     }
     
     
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesByUserId(Long userId) {
         return expenseRepository.findByUserIdOrderByExpenseDateDesc(userId);
     }
     
     
+    @Transactional(readOnly = true)
     public Optional<Expense> getExpenseByIdAndUserId(Long expenseId, Long userId) {
         return expenseRepository.findByIdAndUserId(expenseId, userId);
     }
     
    
+    @Transactional
     public Expense updateExpense(Long expenseId, Expense updatedExpense, Long userId) {
-        Optional<Expense> existingExpenseOpt = expenseRepository.findByIdAndUserId(expenseId, userId);
+        Optional<Expense> existingExpenseOpt = expenseRepository.findByIdAndUserIdForUpdate(expenseId, userId);
         
         if (existingExpenseOpt.isEmpty()) {
             throw new RuntimeException("Expense not found or access denied!");
         }
         
         Expense existingExpense = existingExpenseOpt.get();
-        
+        Integer previousCategoryId = existingExpense.getCategoryId();
+        LocalDate previousDate = existingExpense.getExpenseDate();
+        BigDecimal previousBaseAmount = existingExpense.getBaseAmount();
         
         existingExpense.setTitle(updatedExpense.getTitle());
         existingExpense.setDescription(updatedExpense.getDescription());
         existingExpense.setAmount(updatedExpense.getAmount());
         existingExpense.setExpenseDate(updatedExpense.getExpenseDate());
-        existingExpense.setCategory(updatedExpense.getCategory());
+        existingExpense.setCategory(CategoryDictionary.normalize(updatedExpense.getCategory()));
+        existingExpense.setCategoryId(categoryDictionary.resolve(userId, existingExpense.getCategory()));
+        existingExpense.setCurrency(exchangeRateService.normalize(updatedExpense.getCurrency()));
+        existingExpense.setBaseAmount(exchangeRateService.toBase(
+                existingExpense.getAmount(), existingExpense.getCurrency(), existingExpense.getExpenseDate()));
+        
+        Expense savedExpense = expenseRepository.save(existingExpense);
         
-        return expenseRepository.save(existingExpense);
+        if (previousCategoryId.equals(savedExpense.getCategoryId())
+                && YearMonth.from(previousDate).equals(YearMonth.from(savedExpense.getExpenseDate()))) {
+            budgetService.recordSpend(userId, previousCategoryId, previousDate,
+                    savedExpense.getBaseAmount().subtract(previousBaseAmount));
+        } else {
+            budgetService.recordSpend(userId, previousCategoryId, previousDate, previousBaseAmount.negate());
+            budgetService.recordSpend(userId, savedExpense.getCategoryId(),
+                    savedExpense.getExpenseDate(), savedExpense.getBaseAmount());
+        }
+        if (!previousCategoryId.equals(savedExpense.getCategoryId())
+                || previousBaseAmount.compareTo(savedExpense.getBaseAmount()) != 0) {
+            Map<List<Object>, Integer> sketchDeltas = new HashMap<>();
+            sketchDeltas.merge(List.of(userId, previousCategoryId, previousBaseAmount), -1, Integer::sum);
+            sketchDeltas.merge(List.of(userId, savedExpense.getCategoryId(), savedExpense.getBaseAmount()),
+                    1, Integer::sum);
+            sketchEngine.recordAmounts(sketchDeltas);
+        }
+        expenseOutbox.recordUpdated(savedExpense, previousCategoryId, previousDate, previousBaseAmount);
+        rangeCache.invalidate(userId, previousDate);
+        rangeCache.invalidate(userId, savedExpense.getExpenseDate());
+        requestCoalescer.forget(userId);
+        analyticsEngine.recordSaved(savedExpense);
+        return savedExpense;
     }
     
     
+    @Transactional
     public void deleteExpense(Long expenseId, Long userId) {
-        Optional<Expense> expenseOpt = expenseRepository.findByIdAndUserId(expenseId, userId);
+        Optional<Expense> expenseOpt = expenseRepository.findByIdAndUserIdForUpdate(expenseId, userId);
         
         if (expenseOpt.isEmpty()) {
             throw new RuntimeException("Expense not found or access denied!");
         }
         
+        Expense expense = expenseOpt.get();
         expenseRepository.deleteById(expenseId);
+        budgetService.recordSpend(userId, expense.getCategoryId(), expense.getExpenseDate(), expense.getBaseAmount().negate());
+        sketchEngine.recordAmount(userId, expense.getCategoryId(), expense.getBaseAmount(), -1);
+        expenseOutbox.recordDeleted(expense);
+        rangeCache.invalidate(userId, expense.getExpenseDate());
+        requestCoalescer.forget(userId);
+        analyticsEngine.recordDeleted(userId, expenseId);
     }
     
     
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesByCategory(Long userId, String category) {
-        return expenseRepository.findByUserIdAndCategoryOrderByExpenseDateDesc(userId, category);
+        Integer categoryId = categoryDictionary.find(userId, category);
+        if (categoryId == null) {
+            return new ArrayList<>();
+        }
+        return expenseRepository.findByUserIdAndCategoryIdOrderByExpenseDateDesc(userId, categoryId);
     }
     
   
+    @Transactional(readOnly = true)
     public List<Expense> getExpensesByDateRange(Long userId, LocalDate startDate, LocalDate endDate) {
+        if (rangeCache.isCacheable(startDate, endDate)) {
+            return rangeCache.findByDateRange(userId, userRepository.getReferenceById(userId), startDate, endDate);
+        }
         return expenseRepository.findByUserIdAndExpenseDateBetweenOrderByExpenseDateDesc(
                 userId, startDate, endDate);
     }
    
+    @Transactional(readOnly = true)
     public List<Expense> getCurrentMonthExpenses(Long userId) {
         YearMonth currentMonth = YearMonth.now();
         LocalDate startDate = currentMonth.atDay(1);
@@ -94,12 +197,14 @@ public class ExpenseService {
     }
     
    
+    @Transactional(readOnly = true)
     public BigDecimal getTotalExpenses(Long userId) {
         BigDecimal total = expenseRepository.getTotalExpensesByUserId(userId);
         return total != null ? total : BigDecimal.ZERO;
     }
     
    
+    @Transactional(readOnly = true)
     public BigDecimal getCurrentMonthTotal(Long userId) {
         YearMonth currentMonth = YearMonth.now();
         LocalDate startDate = currentMonth.atDay(1);
@@ -111,6 +216,7 @@ public class ExpenseService {
     }
     
     
+    @Transactional(readOnly = true)
     public Map<String, Object> getExpenseStatistics(Long userId) {
         Map<String, Object> stats = new HashMap<>();
         
@@ -131,17 +237,23 @@ public class ExpenseService {
                 totalExpenses.divide(BigDecimal.valueOf(totalCount), 2, BigDecimal.ROUND_HALF_UP) : 
                 BigDecimal.ZERO;
         stats.put("averageExpense", averageExpense);
+        stats.put("baseCurrency", exchangeRateService.getBaseCurrency());
+        
+        // Percentiles and outlier thresholds come from the amount sketches, not from sorting expenses
+        stats.put("amountPercentiles", sketchEngine.getPercentiles(userId));
+        stats.put("categoryPercentiles", sketchEngine.getCategoryPercentiles(userId));
         
         return stats;
     }
     
    
+    @Transactional(readOnly = true)
     public Map<String, BigDecimal> getExpensesByCategory(Long userId) {
         List<Object[]> results = expenseRepository.getExpensesByCategoryForUser(userId);
         Map<String, BigDecimal> categoryExpenses = new HashMap<>();
         
         for (Object[] result : results) {
-            String category = (String) result[0];
+            String category = categoryDictionary.nameOf(userId, (Integer) result[0]);
             BigDecimal amount = (BigDecimal) result[1];
             categoryExpenses.put(category, amount);
         }
@@ -150,6 +262,7 @@ public class ExpenseService {
     }
     
     // Get monthly expenses (for charts)
+    @Transactional(readOnly = true)
     public Map<String, BigDecimal> getMonthlyExpenses(Long userId) {
         List<Object[]> results = expenseRepository.getMonthlyExpensesForUser(userId);
         Map<String, BigDecimal> monthlyExpenses = new LinkedHashMap<>();
@@ -165,4 +278,27 @@ public class ExpenseService {
         
         return monthlyExpenses;
     }
+    
+    // Arbitrary group-by / time-bucket analytics, served from in-memory columns
+    public List<AnalyticsBucket> getAnalytics(Long userId, AnalyticsGroupBy groupBy,
+                                              LocalDate startDate, LocalDate endDate, String category) {
+        return analyticsEngine.query(userId, groupBy, startDate, endDate, category);
+    }
+    
+    // Percentile of the expense among the user's expenses and within its category, and whether it is an outlier
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Object>> getExpenseRank(Long expenseId, Long userId) {
+        return expenseRepository.findByIdAndUserId(expenseId, userId).map(expense -> {
+            Map<String, Object> rank = new LinkedHashMap<>();
+            rank.put("expenseId", expense.getId());
+            rank.put("baseAmount", expense.getBaseAmount());
+            rank.putAll(sketchEngine.rank(userId, expense.getCategoryId(), expense.getBaseAmount()));
+            return rank;
+        });
+    }
+    
+    // Moving averages, month-over-month change and month-end projection per category
+    public Map<String, Object> getSpendingTrends(Long userId) {
+        return trendEngine.getTrends(userId);
+    }
 }
@@ -0,0 +1,183 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.model.Expense;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Makes POST /api/expenses safe to retry with an Idempotency-Key header.
+ *
+ * The key is claimed by inserting it into idempotency_keys in the same transaction
+ * as the expense. A concurrent duplicate blocks on that insert until the first
+ * request commits and then replays its stored response, so only one expense is
+ * ever written per key. Recent responses are also kept in a byte-bounded LRU so
+ * most replays never reach the database.
+ */
+@Service
+public class IdempotencyService {
+    
+    private static final String CLAIM_SQL =
+            "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash) VALUES (?, ?, ?) " +
+            "ON CONFLICT (user_id, idempotency_key) DO NOTHING";
+    
+    private static final String STORE_RESPONSE_SQL =
+            "UPDATE idempotency_keys SET expense_id = ?, response_body = ? " +
+            "WHERE user_id = ? AND idempotency_key = ?";
+    
+    private static final String FIND_SQL =
+            "SELECT request_hash, response_body FROM idempotency_keys " +
+            "WHERE user_id = ? AND idempotency_key = ?";
+    
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${app.idempotency.cache-max-bytes:8388608}")
+    private long cacheMaxBytes;
+    
+    @Value("${app.idempotency.retention-hours:24}")
+    private long retentionHours;
+    
+    // Access-ordered, so iteration starts at the least recently used key
+    private final LinkedHashMap<String, StoredResponse> recent = new LinkedHashMap<>(256, 0.75f, true);
+    private long recentBytes;
+    
+    public StoredResponse createExpense(Long userId, String idempotencyKey, Expense expense) {
+        String cacheKey = userId + ":" + idempotencyKey;
+        String requestHash = requestHash(expense);
+        
+        StoredResponse cached = getRecent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+        
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(CLAIM_SQL, userId, idempotencyKey, requestHash) == 0) {
+                StoredResponse stored = jdbcTemplate.queryForObject(FIND_SQL,
+                        (rs, rowNum) -> new StoredResponse(rs.getString(1), rs.getString(2), false),
+                        userId, idempotencyKey);
+                return replay(stored, requestHash);
+            }
+            
+            Expense savedExpense = expenseService.createExpense(expense, userId);
+            String body = toJson(savedExpense);
+            jdbcTemplate.update(STORE_RESPONSE_SQL, savedExpense.getId(), body, userId, idempotencyKey);
+            
+            StoredResponse response = new StoredResponse(requestHash, body, false);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putRecent(cacheKey, response);
+                }
+            });
+            return response;
+        });
+    }
+    
+    @Scheduled(fixedDelay = 3600000)
+    public void purgeExpired() {
+        ShardContext.forEachShard(shard -> jdbcTemplate.update(
+                "DELETE FROM idempotency_keys WHERE created_at < now() - make_interval(hours => ?)",
+                (int) retentionHours));
+    }
+    
+    private StoredResponse replay(StoredResponse stored, String requestHash) {
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new KeyReusedException("Idempotency-Key was already used for a different request!");
+        }
+        return new StoredResponse(stored.getRequestHash(), stored.getBody(), true);
+    }
+    
+    private synchronized StoredResponse getRecent(String cacheKey) {
+        return recent.get(cacheKey);
+    }
+    
+    private synchronized void putRecent(String cacheKey, StoredResponse response) {
+        StoredResponse previous = recent.put(cacheKey, response);
+        if (previous != null) {
+            recentBytes -= previous.sizeInBytes();
+        }
+        recentBytes += response.sizeInBytes();
+        
+        Iterator<StoredResponse> eldest = recent.values().iterator();
+        while (recentBytes > cacheMaxBytes && eldest.hasNext()) {
+            recentBytes -= eldest.next().sizeInBytes();
+            eldest.remove();
+        }
+    }
+    
+    private String toJson(Expense expense) {
+        try {
+            return objectMapper.writeValueAsString(expense);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize expense", e);
+        }
+    }
+    
+    private static String requestHash(Expense expense) {
+        String canonical = expense.getTitle() + '\u0000' + expense.getDescription() + '\u0000'
+                + (expense.getAmount() != null ? expense.getAmount().stripTrailingZeros().toPlainString() : null) + '\u0000'
+                + expense.getCurrency() + '\u0000' + expense.getExpenseDate() + '\u0000' + expense.getCategory();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    public static class StoredResponse {
+        private final String requestHash;
+        private final String body;
+        private final boolean replayed;
+        
+        StoredResponse(String requestHash, String body, boolean replayed) {
+            this.requestHash = requestHash;
+            this.body = body;
+            this.replayed = replayed;
+        }
+        
+        public String getRequestHash() { return requestHash; }
+        public String getBody() { return body; }
+        public boolean isReplayed() { return replayed; }
+        
+        long sizeInBytes() {
+            return ENTRY_OVERHEAD_BYTES + 2L * (requestHash.length() + body.length());
+        }
+    }
+    
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.expensetracker.service;
+
+import com.expensetracker.category.CategoryDictionary;
+import com.expensetracker.currency.ExchangeRateService;
+import com.expensetracker.model.RecurringExpense;
+import com.expensetracker.model.User;
+import com.expensetracker.repository.RecurringExpenseRepository;
+import com.expensetracker.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class RecurringExpenseService {
+    
+    @Autowired
+    private RecurringExpenseRepository recurringExpenseRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+    
+    @Autowired
+    private ExchangeRateService exchangeRateService;
+    
+    // Occurrences between the start date and today are generated on the scheduler's next run
+    @Transactional
+    public RecurringExpense createRule(RecurringExpense rule, Long userId) {
+        Optional<User> userOpt = userRepository.findById(userId);
+        
+        if (userOpt.isEmpty()) {
+            throw new RuntimeException("User not found!");
+        }
+        validateDates(rule);
+        
+        rule.setUser(userOpt.get());
+        rule.setCategory(CategoryDictionary.normalize(rule.getCategory()));
+        rule.setCategoryId(categoryDictionary.resolve(userId, rule.getCategory()));
+        rule.setCurrency(exchangeRateService.normalize(rule.getCurrency()));
+        rule.setNextRunDate(rule.getStartDate());
+        rule.setActive(true);
+        return recurringExpenseRepository.save(rule);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<RecurringExpense> getRules(Long userId) {
+        List<RecurringExpense> rules = recurringExpenseRepository.findByUserIdOrderByNextRunDate(userId);
+        rules.forEach(rule -> rule.setCategory(categoryDictionary.nameOf(userId, rule.getCategoryId())));
+        return rules;
+    }
+    
+    @Transactional
+    public RecurringExpense updateRule(Long ruleId, RecurringExpense updatedRule, Long userId) {
+        Optional<RecurringExpense> existingRuleOpt = recurringExpenseRepository.findByIdAndUserId(ruleId, userId);
+        
+        if (existingRuleOpt.isEmpty()) {
+            throw new RuntimeException("Recurring expense not found or access denied!");
+        }
+        validateDates(updatedRule);
+        
+        RecurringExpense rule = existingRuleOpt.get();
+        boolean scheduleChanged = rule.getFrequency() != updatedRule.getFrequency()
+                || !rule.getStartDate().equals(updatedRule.getStartDate());
+        
+        rule.setTitle(updatedRule.getTitle());
+        rule.setDescription(updatedRule.getDescription());
+        rule.setAmount(updatedRule.getAmount());
+        rule.setCurrency(exchangeRateService.normalize(updatedRule.getCurrency()));
+        rule.setCategory(CategoryDictionary.normalize(updatedRule.getCategory()));
+        rule.setCategoryId(categoryDictionary.resolve(userId, rule.getCategory()));
+        rule.setFrequency(updatedRule.getFrequency());
+        rule.setStartDate(updatedRule.getStartDate());
+        rule.setEndDate(updatedRule.getEndDate());
+        rule.setActive(updatedRule.isActive());
+        
+        // A new schedule only applies from today on; past occurrences are not backfilled
+        if (scheduleChanged) {
+            LocalDate from = rule.getStartDate().isAfter(LocalDate.now()) ? rule.getStartDate() : LocalDate.now();
+            rule.setNextRunDate(rule.getFrequency().firstOnOrAfter(rule.getStartDate(), from));
+        }
+        
+        return recurringExpenseRepository.save(rule);
+    }
+    
+    // Expenses already generated by the rule are kept
+    @Transactional
+    public void deleteRule(Long ruleId, Long userId) {
+        Optional<RecurringExpense> ruleOpt = recurringExpenseRepository.findByIdAndUserId(ruleId, userId);
+        
+        if (ruleOpt.isEmpty()) {
+            throw new RuntimeException("Recurring expense not found or access denied!");
+        }
+        
+        recurringExpenseRepository.delete(ruleOpt.get());
+    }
+    
+    private void validateDates(RecurringExpense rule) {
+        if (rule.getEndDate() != null && rule.getEndDate().isBefore(rule.getStartDate())) {
+            throw new RuntimeException("End date cannot be before start date!");
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package com.expensetracker.service;
 
+import com.expensetracker.datasource.ShardContext;
+import com.expensetracker.datasource.ShardDirectory;
+import com.expensetracker.model.AccountDeletionJob;
 import com.expensetracker.model.User;
 import com.expensetracker.repository.UserRepository;
+import com.expensetracker.security.TokenRevocationRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 @Service
@@ -18,18 +30,57 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+    
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Only present when sharding is enabled
+    @Autowired(required = false)
+    private ShardDirectory shardDirectory;
+    
+    // A single insert; taken usernames and emails surface as unique constraint violations
     public User registerUser(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
-            throw new RuntimeException("Username already exists!");
+        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        if (shardDirectory != null) {
+            return registerOnShard(user);
         }
         
-        if (userRepository.existsByEmail(user.getEmail())) {
-            throw new RuntimeException("Email already exists!");
+        try {
+            return userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUser(e);
+        }
+    }
+    
+    // The directory checks uniqueness across shards and issues the id; the row then goes to the user's shard
+    private User registerOnShard(User user) {
+        Long userId;
+        try {
+            userId = shardDirectory.register(user.getUsername(), user.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateUser(e);
         }
         
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        
-        return userRepository.save(user);
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            ShardContext.runForUser(userId, () -> jdbcTemplate.update(
+                    "INSERT INTO users (id, username, email, password, first_name, last_name, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    userId, user.getUsername(), user.getEmail(), user.getPassword(), user.getFirstName(),
+                    user.getLastName(), Timestamp.valueOf(now), Timestamp.valueOf(now)));
+        } catch (RuntimeException e) {
+            shardDirectory.unregister(userId);
+            throw e;
+        }
+        user.setId(userId);
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+        return user;
     }
     
     public Optional<User> findByUsernameOrEmail(String usernameOrEmail) {
@@ -73,9 +124,16 @@ public class UserService {
         }
         if (updatedUser.getEmail() != null && !updatedUser.getEmail().equals(user.getEmail())) {
           
-            if (userRepository.existsByEmail(updatedUser.getEmail())) {
+            if (!isEmailAvailable(updatedUser.getEmail())) {
                 throw new RuntimeException("Email already exists!");
             }
+            if (shardDirectory != null) {
+                try {
+                    shardDirectory.updateEmail(userId, updatedUser.getEmail());
+                } catch (DataIntegrityViolationException e) {
+                    throw new RuntimeException("Email already exists!");
+                }
+            }
             user.setEmail(updatedUser.getEmail());
         }
         
@@ -83,6 +141,7 @@ public class UserService {
     }
     
    
+    @Transactional
     public void updatePassword(Long userId, String currentPassword, String newPassword) {
         Optional<User> userOpt = userRepository.findById(userId);
         
@@ -100,24 +159,57 @@ public class UserService {
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        
+        // Sign out every existing session, including the one making this request
+        revocationRegistry.revokeAllIssuedBefore(user.getId(), user.getUsername(), Instant.now());
     }
     
    
-    public void deleteUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new RuntimeException("User not found!");
-        }
-        userRepository.deleteById(userId);
+    // Runs in the background; poll the returned job for progress
+    public AccountDeletionJob deleteUser(Long userId) {
+        return accountDeletionService.requestDeletion(userId);
     }
     
     
     public boolean isUsernameAvailable(String username) {
+        if (shardDirectory != null) {
+            return !shardDirectory.isUsernameTaken(username);
+        }
         return !userRepository.existsByUsername(username);
     }
     
     
     public boolean isEmailAvailable(String email) {
+        if (shardDirectory != null) {
+            return !shardDirectory.isEmailTaken(email);
+        }
         return !userRepository.existsByEmail(email);
     }
+    
+    private RuntimeException duplicateUser(DataIntegrityViolationException e) {
+        // PostgreSQL reports e.g. 'unique constraint "users_email_key" ... Key (email)=(...) already exists'
+        String constraint = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName() : null;
+        String detail = (constraint + " " + e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        
+        if (detail.contains("users_username_key") || detail.contains("key (username)")) {
+            return new DuplicateUserException("username", "Username already exists!");
+        }
+        if (detail.contains("users_email_key") || detail.contains("key (email)")) {
+            return new DuplicateUserException("email", "Email already exists!");
+        }
+        return e;
+    }
+    
+    public static class DuplicateUserException extends RuntimeException {
+        private final String field;
+        
+        public DuplicateUserException(String field, String message) {
+            super(message);
+            this.field = field;
+        }
+        
+        public String getField() { return field; }
+    }
 }
 
@@ -0,0 +1,21 @@
+-- Storage and group-by cost of the expenses table.
+-- Pass the grouping column: -v groupcol=category (before migration 001) or -v groupcol=category_id (after)
+
+-- Average on-disk row width
+SELECT COUNT(*) AS rows, ROUND(AVG(pg_column_size(e.*)), 1) AS avg_row_bytes
+FROM expenses e;
+
+-- Table and index sizes
+SELECT pg_size_pretty(pg_relation_size('expenses')) AS table_size,
+       pg_size_pretty(pg_indexes_size('expenses')) AS all_indexes_size;
+
+SELECT indexrelname AS index_name, pg_size_pretty(pg_relation_size(indexrelid)) AS index_size
+FROM pg_stat_user_indexes
+WHERE relname = 'expenses'
+ORDER BY indexrelname;
+
+-- Group-by latency for the category chart, across all users
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT user_id, :groupcol, SUM(amount)
+FROM expenses
+GROUP BY user_id, :groupcol;
@@ -0,0 +1,45 @@
+-- Moves expenses.category (free text on every row) into a per-user categories
+-- table referenced by a small integer key. Safe to re-run.
+--
+-- Measure first:  psql -d expense_tracker_db -v groupcol=category -f ../measure_category_storage.sql
+-- Then run this:  psql -d expense_tracker_db -f 001_normalize_categories.sql
+-- Measure again:  psql -d expense_tracker_db -v groupcol=category_id -f ../measure_category_storage.sql
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS categories (
+    id SERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    name VARCHAR(100) NOT NULL,
+    UNIQUE (user_id, name)
+);
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS category_id INTEGER REFERENCES categories(id);
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'expenses' AND column_name = 'category') THEN
+        INSERT INTO categories (user_id, name)
+        SELECT DISTINCT user_id, COALESCE(NULLIF(TRIM(category), ''), 'General')
+        FROM expenses
+        ON CONFLICT (user_id, name) DO NOTHING;
+
+        UPDATE expenses e
+        SET category_id = c.id
+        FROM categories c
+        WHERE c.user_id = e.user_id
+          AND c.name = COALESCE(NULLIF(TRIM(e.category), ''), 'General');
+
+        ALTER TABLE expenses DROP COLUMN category;
+    END IF;
+END $$;
+
+ALTER TABLE expenses ALTER COLUMN category_id SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_expenses_user_category ON expenses(user_id, category_id, expense_date DESC);
+
+COMMIT;
+
+-- DROP COLUMN only hides the old text; rewrite the table so row width actually shrinks
+VACUUM FULL ANALYZE expenses;
@@ -0,0 +1,44 @@
+-- Budgets, their alert log and the running monthly spend counters.
+-- Counters are seeded from existing expenses; afterwards the application keeps them current.
+-- Run while the application is stopped so no write slips between the seed and startup.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS budgets (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    monthly_limit DECIMAL(10,2) NOT NULL CHECK (monthly_limit > 0),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (user_id, category_id)
+);
+
+CREATE TABLE IF NOT EXISTS category_month_spend (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    period DATE NOT NULL,
+    spent DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id, period)
+);
+
+CREATE TABLE IF NOT EXISTS budget_alerts (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    period DATE NOT NULL,
+    threshold INTEGER NOT NULL,
+    spent DECIMAL(14,2) NOT NULL,
+    monthly_limit DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (user_id, category_id, period, threshold)
+);
+CREATE INDEX IF NOT EXISTS idx_budget_alerts_user_period ON budget_alerts(user_id, period);
+
+INSERT INTO category_month_spend (user_id, category_id, period, spent)
+SELECT user_id, category_id, date_trunc('month', expense_date)::date, SUM(amount)
+FROM expenses
+GROUP BY user_id, category_id, date_trunc('month', expense_date)::date
+ON CONFLICT (user_id, category_id, period) DO UPDATE SET spent = EXCLUDED.spent;
+
+COMMIT;
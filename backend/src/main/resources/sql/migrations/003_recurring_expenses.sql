@@ -0,0 +1,42 @@
+-- Recurring expense rules, the idempotency key on generated expenses and the job lease table.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS recurring_expenses (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    amount DECIMAL(10,2) NOT NULL CHECK (amount > 0),
+    category_id INTEGER NOT NULL REFERENCES categories(id),
+    frequency VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE,
+    next_run_date DATE NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_recurring_expenses_user_id ON recurring_expenses(user_id);
+CREATE INDEX IF NOT EXISTS idx_recurring_expenses_due ON recurring_expenses(next_run_date, user_id) WHERE active;
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS recurring_rule_id BIGINT REFERENCES recurring_expenses(id) ON DELETE SET NULL;
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS recurring_period DATE;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'expenses_recurring_rule_id_recurring_period_key') THEN
+        ALTER TABLE expenses ADD CONSTRAINT expenses_recurring_rule_id_recurring_period_key
+            UNIQUE (recurring_rule_id, recurring_period);
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(100) NOT NULL,
+    partition_no INTEGER NOT NULL,
+    owner VARCHAR(255),
+    lease_until TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (job_name, partition_no)
+);
+
+COMMIT;
@@ -0,0 +1,14 @@
+-- Adds per-expense currencies. Existing rows are in the base currency, so their
+-- base amount equals the stored amount and the budget counters stay valid.
+-- Pass the deployment's base currency (app.currency.base), which the existing
+-- rows are backfilled with:
+--   psql -d expense_tracker_db -v base_currency=<ISO code> -f 005_multi_currency.sql
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT :'base_currency';
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS base_amount DECIMAL(14,2);
+UPDATE expenses SET base_amount = amount WHERE base_amount IS NULL;
+ALTER TABLE expenses ALTER COLUMN base_amount SET NOT NULL;
+
+ALTER TABLE recurring_expenses ADD COLUMN IF NOT EXISTS currency VARCHAR(3) NOT NULL DEFAULT :'base_currency';
+
+CREATE INDEX IF NOT EXISTS idx_expenses_currency_date ON expenses(currency, expense_date);
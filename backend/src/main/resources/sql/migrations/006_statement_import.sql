@@ -0,0 +1,47 @@
+-- Bank statement import: job tracking, the COPY staging table and the fingerprint
+-- used to skip transactions that were imported before.
+
+BEGIN;
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS import_fingerprint VARCHAR(32);
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'expenses_user_id_import_fingerprint_key') THEN
+        ALTER TABLE expenses ADD CONSTRAINT expenses_user_id_import_fingerprint_key
+            UNIQUE (user_id, import_fingerprint);
+    END IF;
+END $$;
+
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    file_name VARCHAR(255),
+    format VARCHAR(10) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    rows_duplicate BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    rows_skipped BIGINT NOT NULL DEFAULT 0,
+    message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_import_jobs_user ON import_jobs(user_id, created_at DESC);
+
+CREATE UNLOGGED TABLE IF NOT EXISTS import_staging (
+    job_id BIGINT NOT NULL,
+    row_no BIGINT NOT NULL,
+    external_id VARCHAR(255),
+    title TEXT,
+    description TEXT,
+    amount NUMERIC,
+    currency VARCHAR(3),
+    base_amount NUMERIC(14,2),
+    expense_date DATE,
+    category TEXT
+);
+CREATE INDEX IF NOT EXISTS idx_import_staging_job ON import_staging(job_id);
+
+COMMIT;
@@ -0,0 +1,19 @@
+-- Account deletion as a background job: users being deleted are flagged, and the
+-- job table has no foreign key so it survives the user row.
+
+BEGIN;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deletion_requested_at TIMESTAMP;
+
+CREATE TABLE IF NOT EXISTS account_deletion_jobs (
+    id UUID PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    expenses_deleted BIGINT NOT NULL DEFAULT 0,
+    message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_account_deletion_jobs_user ON account_deletion_jobs(user_id, created_at DESC);
+
+COMMIT;
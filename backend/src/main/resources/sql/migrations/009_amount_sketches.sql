@@ -0,0 +1,26 @@
+-- Amount sketches for the percentile statistics, seeded from existing expenses.
+-- Run while the application is stopped so no write slips between the seed and startup.
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION expense_amount_bucket(amount NUMERIC) RETURNS SMALLINT
+LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+    SELECT CASE WHEN amount < 0.01 THEN 0
+                ELSE ceil(ln(amount * 100) / ln(1.02))::smallint + 1 END::smallint
+$$;
+
+CREATE TABLE IF NOT EXISTS amount_sketch_buckets (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    bucket SMALLINT NOT NULL,
+    count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, category_id, bucket)
+);
+
+INSERT INTO amount_sketch_buckets (user_id, category_id, bucket, count)
+SELECT user_id, category_id, expense_amount_bucket(base_amount), count(*)
+FROM expenses
+GROUP BY 1, 2, 3
+ON CONFLICT (user_id, category_id, bucket) DO UPDATE SET count = EXCLUDED.count;
+
+COMMIT;
@@ -0,0 +1,21 @@
+-- Transactional outbox for expense changes. Events are deleted after delivery,
+-- so the table only holds what the relay has not dispatched yet.
+--
+-- On a sharded deployment, re-run sql/sharding/shard_sequences.sql on each shard
+-- afterwards, with that shard's -v shard_index: the new expense_events_id_seq
+-- starts at 1 on every shard otherwise, and event ids collide when a user's
+-- pending events are moved by the rebalancer.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS expense_events (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    expense_id BIGINT NOT NULL,
+    event_type VARCHAR(16) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_expense_events_user ON expense_events(user_id, id);
+
+COMMIT;
@@ -0,0 +1,7 @@
+-- Indexes that GET /api/expenses/query pages along, one per sort key.
+-- Built CONCURRENTLY so writes to expenses continue during the build, which
+-- rules out wrapping this file in a transaction. If a build is interrupted,
+-- drop the INVALID index it leaves behind before running the file again.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_user_date_id ON expenses(user_id, expense_date, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_user_base_amount_id ON expenses(user_id, base_amount, id);
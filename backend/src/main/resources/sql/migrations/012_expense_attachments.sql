@@ -0,0 +1,19 @@
+-- Receipt attachments. Only metadata is stored here; the files are kept in the
+-- receipt store (app.attachments.dir) under their SHA-256.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS expense_attachments (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    expense_id BIGINT NOT NULL REFERENCES expenses(id) ON DELETE CASCADE,
+    sha256 VARCHAR(64) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_expense_attachments_expense ON expense_attachments(expense_id);
+CREATE INDEX IF NOT EXISTS idx_expense_attachments_sha256 ON expense_attachments(sha256);
+
+COMMIT;
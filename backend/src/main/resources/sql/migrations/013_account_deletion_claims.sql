@@ -0,0 +1,9 @@
+-- Account deletion jobs are claimed by one node at a time, which keeps the claim
+-- alive with a heartbeat; jobs with a stale heartbeat are taken over by another node.
+
+BEGIN;
+
+ALTER TABLE account_deletion_jobs ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(255);
+ALTER TABLE account_deletion_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
+
+COMMIT;
@@ -0,0 +1,10 @@
+-- Bulk writers (statement import, account deletion) emit one RESYNC event per user
+-- instead of one per row, which has no expense id. Events are no longer removed
+-- with their user, so an account deletion's events are still delivered.
+
+BEGIN;
+
+ALTER TABLE expense_events ALTER COLUMN expense_id DROP NOT NULL;
+ALTER TABLE expense_events DROP CONSTRAINT IF EXISTS expense_events_user_id_fkey;
+
+COMMIT;
@@ -0,0 +1,15 @@
+-- The exchange rates stored base amounts were last recomputed with, so that a node
+-- starting after the rate files changed still recomputes. The table starts empty,
+-- which makes the first start after this migration check every converted expense
+-- once; only rows whose base amount actually differs are written.
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS applied_exchange_rates (
+    currency VARCHAR(3) NOT NULL,
+    rate_date DATE NOT NULL,
+    rate NUMERIC NOT NULL,
+    PRIMARY KEY (currency, rate_date)
+);
+
+COMMIT;
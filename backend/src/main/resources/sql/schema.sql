@@ -7,6 +7,33 @@ CREATE TABLE IF NOT EXISTS users (
     first_name VARCHAR(50),
     last_name VARCHAR(50),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    deletion_requested_at TIMESTAMP
+);
+
+-- Create categories table (one row per user and category name)
+CREATE TABLE IF NOT EXISTS categories (
+    id SERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    name VARCHAR(100) NOT NULL,
+    UNIQUE (user_id, name)
+);
+
+-- Recurring expense rules, materialized into expenses by the scheduler
+CREATE TABLE IF NOT EXISTS recurring_expenses (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    amount DECIMAL(10,2) NOT NULL CHECK (amount > 0),
+    currency VARCHAR(3) NOT NULL DEFAULT 'USD',
+    category_id INTEGER NOT NULL REFERENCES categories(id),
+    frequency VARCHAR(20) NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE,
+    next_run_date DATE NOT NULL,
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -16,13 +43,206 @@ CREATE TABLE IF NOT EXISTS expenses (
     title VARCHAR(255) NOT NULL,
     description TEXT,
     amount DECIMAL(10,2) NOT NULL CHECK (amount >= 0),
+    currency VARCHAR(3) NOT NULL DEFAULT 'USD',
+    -- amount converted to the base currency at the expense date's rate
+    base_amount DECIMAL(14,2) NOT NULL,
     expense_date DATE NOT NULL,
-    category VARCHAR(100) DEFAULT 'General',
+    category_id INTEGER NOT NULL REFERENCES categories(id),
     user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    recurring_rule_id BIGINT REFERENCES recurring_expenses(id) ON DELETE SET NULL,
+    recurring_period DATE,
+    -- Identifies a transaction imported from a bank statement, for duplicate detection
+    import_fingerprint VARCHAR(32),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Idempotency key: one expense per rule and occurrence
+    UNIQUE (recurring_rule_id, recurring_period),
+    UNIQUE (user_id, import_fingerprint)
 );
 
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_expenses_user_id ON expenses(user_id);
 CREATE INDEX IF NOT EXISTS idx_expenses_date ON expenses(expense_date);
+CREATE INDEX IF NOT EXISTS idx_expenses_user_category ON expenses(user_id, category_id, expense_date DESC);
+CREATE INDEX IF NOT EXISTS idx_expenses_currency_date ON expenses(currency, expense_date);
+-- Keyset pagination of GET /api/expenses/query by date and by amount
+CREATE INDEX IF NOT EXISTS idx_expenses_user_date_id ON expenses(user_id, expense_date, id);
+CREATE INDEX IF NOT EXISTS idx_expenses_user_base_amount_id ON expenses(user_id, base_amount, id);
+
+-- The exchange rates stored base amounts were last recomputed with, compared with the
+-- rate files at startup and on every change
+CREATE TABLE IF NOT EXISTS applied_exchange_rates (
+    currency VARCHAR(3) NOT NULL,
+    rate_date DATE NOT NULL,
+    rate NUMERIC NOT NULL,
+    PRIMARY KEY (currency, rate_date)
+);
+
+-- Monthly budgets per user and category
+CREATE TABLE IF NOT EXISTS budgets (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    monthly_limit DECIMAL(10,2) NOT NULL CHECK (monthly_limit > 0),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (user_id, category_id)
+);
+
+-- Running spend per user, category and month, maintained on every expense write
+CREATE TABLE IF NOT EXISTS category_month_spend (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    period DATE NOT NULL,
+    spent DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, category_id, period)
+);
+
+-- One row per budget, month and crossed threshold (80 / 100 percent)
+CREATE TABLE IF NOT EXISTS budget_alerts (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    period DATE NOT NULL,
+    threshold INTEGER NOT NULL,
+    spent DECIMAL(14,2) NOT NULL,
+    monthly_limit DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (user_id, category_id, period, threshold)
+);
+CREATE INDEX IF NOT EXISTS idx_budget_alerts_user_period ON budget_alerts(user_id, period);
+
+CREATE INDEX IF NOT EXISTS idx_recurring_expenses_user_id ON recurring_expenses(user_id);
+CREATE INDEX IF NOT EXISTS idx_recurring_expenses_due ON recurring_expenses(next_run_date, user_id) WHERE active;
+
+-- Leases that let several application nodes share scheduled jobs
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(100) NOT NULL,
+    partition_no INTEGER NOT NULL,
+    owner VARCHAR(255),
+    lease_until TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (job_name, partition_no)
+);
+
+-- Idempotency keys for expense creation; the stored response is replayed on retries
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    expense_id BIGINT,
+    response_body TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys(created_at);
+
+-- Statement uploads (POST /api/expenses/import) and their progress
+CREATE TABLE IF NOT EXISTS import_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    file_name VARCHAR(255),
+    format VARCHAR(10) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    rows_read BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    rows_duplicate BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    rows_skipped BIGINT NOT NULL DEFAULT 0,
+    message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_import_jobs_user ON import_jobs(user_id, created_at DESC);
+
+-- COPY target for uploads; rows live only until their job is merged, so WAL is skipped
+CREATE UNLOGGED TABLE IF NOT EXISTS import_staging (
+    job_id BIGINT NOT NULL,
+    row_no BIGINT NOT NULL,
+    external_id VARCHAR(255),
+    title TEXT,
+    description TEXT,
+    amount NUMERIC,
+    currency VARCHAR(3),
+    base_amount NUMERIC(14,2),
+    expense_date DATE,
+    category TEXT
+);
+CREATE INDEX IF NOT EXISTS idx_import_staging_job ON import_staging(job_id);
+
+-- Tokens revoked by logout, kept until they would have expired anyway
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti VARCHAR(36) PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+
+-- Tokens issued before not_before are rejected (set on password change)
+CREATE TABLE IF NOT EXISTS token_watermarks (
+    user_id BIGINT PRIMARY KEY REFERENCES users(id) ON DELETE CASCADE,
+    not_before TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_token_watermarks_updated_at ON token_watermarks(updated_at);
+
+-- Background account deletions; kept after the user row is gone so the job can still be polled
+CREATE TABLE IF NOT EXISTS account_deletion_jobs (
+    id UUID PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    expenses_deleted BIGINT NOT NULL DEFAULT 0,
+    message TEXT,
+    -- Node running the job and its last sign of life; a stale heartbeat lets another node take over
+    claimed_by VARCHAR(255),
+    heartbeat_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_account_deletion_jobs_user ON account_deletion_jobs(user_id, created_at DESC);
+
+-- Log bucket of an expense amount for the amount sketches: bucket b holds
+-- (1.02^(b-2), 1.02^(b-1)] cents, amounts under a cent go to bucket 0
+CREATE OR REPLACE FUNCTION expense_amount_bucket(amount NUMERIC) RETURNS SMALLINT
+LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+    SELECT CASE WHEN amount < 0.01 THEN 0
+                ELSE ceil(ln(amount * 100) / ln(1.02))::smallint + 1 END::smallint
+$$;
+
+-- Histogram of expense base amounts per user and category, kept current by every expense write
+CREATE TABLE IF NOT EXISTS amount_sketch_buckets (
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE CASCADE,
+    bucket SMALLINT NOT NULL,
+    count BIGINT NOT NULL,
+    PRIMARY KEY (user_id, category_id, bucket)
+);
+
+-- Outbox of expense changes, written in the same transaction as the change and
+-- removed once the relay has handed it to every listener. user_id has no foreign
+-- key so that the events of a deleted account are still delivered; RESYNC events
+-- have no expense_id
+CREATE TABLE IF NOT EXISTS expense_events (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    expense_id BIGINT,
+    event_type VARCHAR(16) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_expense_events_user ON expense_events(user_id, id);
+
+-- Receipts attached to expenses. The files live in the receipt store under their
+-- SHA-256, so rows of identical receipts share one file
+CREATE TABLE IF NOT EXISTS expense_attachments (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    expense_id BIGINT NOT NULL REFERENCES expenses(id) ON DELETE CASCADE,
+    sha256 VARCHAR(64) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_expense_attachments_expense ON expense_attachments(expense_id);
+CREATE INDEX IF NOT EXISTS idx_expense_attachments_sha256 ON expense_attachments(sha256);
@@ -0,0 +1,30 @@
+-- Catalog of a sharded deployment: which shard holds each user. Run on the first
+-- shard only. Users already in this database are registered as living here; the
+-- rebalancer later moves those the hash ring places elsewhere.
+--   psql -d expense_tracker_db -f catalog.sql   (add -v catalog_shard=<name> if the first shard is not shard-0)
+
+\if :{?catalog_shard}
+\else
+\set catalog_shard shard-0
+\endif
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS user_directory (
+    user_id BIGSERIAL PRIMARY KEY,
+    username VARCHAR(50) NOT NULL UNIQUE,
+    email VARCHAR(100) NOT NULL UNIQUE,
+    shard VARCHAR(50) NOT NULL,
+    moving BOOLEAN NOT NULL DEFAULT false,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_user_directory_updated_at ON user_directory(updated_at);
+
+INSERT INTO user_directory (user_id, username, email, shard)
+SELECT id, username, email, :'catalog_shard' FROM users
+ON CONFLICT (user_id) DO NOTHING;
+
+SELECT setval('user_directory_user_id_seq',
+              GREATEST((SELECT COALESCE(MAX(user_id), 0) FROM user_directory), 1));
+
+COMMIT;
@@ -0,0 +1,31 @@
+-- Interleaves this shard's id sequences with the other shards' so that ids are unique
+-- across all of them and a user's rows keep their ids when moved. Shard i hands out
+-- ids i + 1, i + 1 + 64, i + 1 + 128, ... Run once on every shard:
+--   psql -d expense_tracker_db -v shard_index=<0..63> -f shard_sequences.sql
+
+BEGIN;
+
+SELECT set_config('app.shard_index', :'shard_index', true);
+
+DO $$
+DECLARE
+    stride CONSTANT INTEGER := 64;
+    shard INTEGER := current_setting('app.shard_index')::INTEGER;
+    seq RECORD;
+    last_id BIGINT;
+BEGIN
+    IF shard < 0 OR shard >= stride THEN
+        RAISE EXCEPTION 'shard_index must be between 0 and %', stride - 1;
+    END IF;
+    -- user ids come from the catalog, which numbers users for every shard
+    FOR seq IN
+        SELECT c.oid::regclass AS name FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+        WHERE c.relkind = 'S' AND n.nspname = current_schema() AND c.relname <> 'user_directory_user_id_seq'
+    LOOP
+        EXECUTE format('SELECT last_value FROM %s', seq.name) INTO last_id;
+        EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s', seq.name, stride);
+        PERFORM setval(seq.name, (last_id / stride + 1) * stride + shard + 1, false);
+    END LOOP;
+END $$;
+
+COMMIT;
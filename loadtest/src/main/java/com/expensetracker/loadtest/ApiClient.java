@@ -0,0 +1,145 @@
+package com.expensetracker.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Thin asynchronous client for the endpoints exercised by the load test. Every
+ * call returns the raw response; callers decide what counts as a failure.
+ */
+public class ApiClient {
+    
+    private static final String[] CATEGORIES = {
+            "Food", "Transportation", "Entertainment", "Utilities", "Healthcare", "Shopping", "Travel", "General"
+    };
+    
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    
+    public ApiClient(String baseUrl, Duration requestTimeout) {
+        this.baseUrl = baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+    }
+    
+    public CompletableFuture<HttpResponse<String>> register(SyntheticUser user) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("username", user.getUsername());
+        body.put("email", user.getUsername() + "@loadtest.local");
+        body.put("password", user.getPassword());
+        body.put("firstName", "Load");
+        body.put("lastName", "Test");
+        return send(post("/api/auth/register", null, body));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> login(SyntheticUser user) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("usernameOrEmail", user.getUsername());
+        body.put("password", user.getPassword());
+        return send(post("/api/auth/login", null, body));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> listExpenses(SyntheticUser user) {
+        return send(get("/api/expenses", user));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> createExpense(SyntheticUser user) {
+        return send(post("/api/expenses", user, randomExpense()));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> updateExpense(SyntheticUser user, long id) {
+        return send(request("/api/expenses/" + id, user)
+                .PUT(HttpRequest.BodyPublishers.ofString(toJson(randomExpense())))
+                .build());
+    }
+    
+    public CompletableFuture<HttpResponse<String>> deleteExpense(SyntheticUser user, long id) {
+        return send(request("/api/expenses/" + id, user).DELETE().build());
+    }
+    
+    public CompletableFuture<HttpResponse<String>> statistics(SyntheticUser user) {
+        return send(get("/api/expenses/statistics", user));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> categoryChart(SyntheticUser user) {
+        return send(get("/api/expenses/chart/category", user));
+    }
+    
+    public CompletableFuture<HttpResponse<String>> monthlyChart(SyntheticUser user) {
+        return send(get("/api/expenses/chart/monthly", user));
+    }
+    
+    /** Reads a field from a JSON response body, or null if it is absent. */
+    public JsonNode field(HttpResponse<String> response, String name) {
+        try {
+            JsonNode node = objectMapper.readTree(response.body()).get(name);
+            return node == null || node.isNull() ? null : node;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+    
+    private Map<String, Object> randomExpense() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> expense = new LinkedHashMap<>();
+        expense.put("title", "Load test expense " + random.nextInt(100000));
+        expense.put("description", random.nextInt(4) == 0 ? "Generated by the load test" : null);
+        expense.put("amount", BigDecimal.valueOf(random.nextDouble(1, 500)).setScale(2, RoundingMode.HALF_UP));
+        // Spread over the last two years so monthly charts and statistics have real work to do
+        expense.put("expenseDate", LocalDate.now().minusDays(random.nextInt(730)).toString());
+        expense.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        return expense;
+    }
+    
+    private HttpRequest get(String path, SyntheticUser user) {
+        return request(path, user).GET().build();
+    }
+    
+    private HttpRequest post(String path, SyntheticUser user, Map<String, Object> body) {
+        return request(path, user).POST(HttpRequest.BodyPublishers.ofString(toJson(body))).build();
+    }
+    
+    private HttpRequest.Builder request(String path, SyntheticUser user) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+        if (user != null && user.getToken() != null) {
+            builder.header("Authorization", "Bearer " + user.getToken());
+        }
+        return builder;
+    }
+    
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.expensetracker.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Calls register and login one at a time and reports the SQL statements each call
+ * ran on the backend, taken from the X-Sql-Statements response header, next to its
+ * latency. Each statement is one database round trip, so this shows what the auth
+ * endpoints cost beyond BCrypt.
+ *
+ * The backend has to send the header: start it with the loadtest profile, or with
+ * SQL_STATS_HEADERS=true.
+ */
+public class AuthRoundTripBenchmark {
+    
+    private static final double MICROS_PER_MILLI = 1000.0;
+    
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load(args);
+        ApiClient client = new ApiClient(config.getBaseUrl(), config.getRequestTimeout());
+        int calls = config.getAuthBenchmarkCalls();
+        
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<SyntheticUser> users = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            users.add(new SyntheticUser("ab_" + runId + "_" + i, "benchmark-" + runId));
+        }
+        
+        System.out.printf("Running %d sequential calls per endpoint against %s%n", calls, config.getBaseUrl());
+        List<Result> results = new ArrayList<>();
+        results.add(measure("POST /api/auth/register", 200, users, client::register));
+        results.add(measure("POST /api/auth/register (taken)", 400, users, client::register));
+        results.add(measure("POST /api/auth/login", 200, users, client::login));
+        
+        System.out.printf("%n%-34s %6s %7s %9s %9s %9s %9s%n",
+                "endpoint", "ok", "errors", "sql avg", "sql max", "p50 ms", "p99 ms");
+        for (Result result : results) {
+            result.print();
+        }
+        System.exit(0);
+    }
+    
+    private static Result measure(String label, int expectedStatus, List<SyntheticUser> users,
+                                  Function<SyntheticUser, CompletableFuture<HttpResponse<String>>> call)
+            throws Exception {
+        Result result = new Result(label);
+        for (SyntheticUser user : users) {
+            long start = System.nanoTime();
+            HttpResponse<String> response = call.apply(user).get();
+            long micros = (System.nanoTime() - start) / 1000;
+            
+            if (response.statusCode() != expectedStatus) {
+                result.errors++;
+                continue;
+            }
+            String statements = response.headers().firstValue("X-Sql-Statements").orElse(null);
+            if (statements == null) {
+                throw new IllegalStateException("No X-Sql-Statements header on " + label
+                        + "; start the backend with SQL_STATS_HEADERS=true");
+            }
+            result.record(micros, Long.parseLong(statements));
+        }
+        return result;
+    }
+    
+    private static class Result {
+        private final String label;
+        private final Histogram latency = new Histogram(3);
+        private long statements;
+        private long maxStatements;
+        private long errors;
+        
+        Result(String label) {
+            this.label = label;
+        }
+        
+        void record(long micros, long callStatements) {
+            latency.recordValue(micros);
+            statements += callStatements;
+            maxStatements = Math.max(maxStatements, callStatements);
+        }
+        
+        void print() {
+            long ok = latency.getTotalCount();
+            System.out.printf("%-34s %6d %7d %9.2f %9d %9.2f %9.2f%n",
+                    label,
+                    ok,
+                    errors,
+                    ok == 0 ? 0.0 : (double) statements / ok,
+                    maxStatements,
+                    latency.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    latency.getValueAtPercentile(99) / MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.expensetracker.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Prints per-endpoint throughput and percentiles for each stage and writes the
+ * full HdrHistogram percentile distributions (.hgrm, in milliseconds) so runs
+ * can be compared or plotted afterwards.
+ */
+public class LatencyReport {
+    
+    private static final double MICROS_PER_MILLI = 1000.0;
+    
+    public static void write(List<StageStats> stages, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        try (PrintStream summary = new PrintStream(Files.newOutputStream(outputDir.resolve("summary.txt")))) {
+            for (StageStats stage : stages) {
+                printStage(stage, System.out);
+                printStage(stage, summary);
+                writeDistributions(stage, outputDir.resolve(stage.getName()));
+            }
+        }
+        System.out.printf("Histograms written to %s%n", outputDir.toAbsolutePath());
+    }
+    
+    private static void printStage(StageStats stage, PrintStream out) {
+        double seconds = stage.getDurationNanos() / 1_000_000_000.0;
+        out.printf("%n== %s (offered %.1f req/s over %.0fs) ==%n", stage.getName(), stage.getOfferedRate(), seconds);
+        out.printf("%-34s %8s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "ok", "errors", "dropped", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = stage.getHistogram(operation);
+            long errors = stage.getErrors(operation);
+            long dropped = stage.getDropped(operation);
+            if (histogram.getTotalCount() == 0 && errors == 0 && dropped == 0) {
+                continue;
+            }
+            printRow(out, operation.getEndpoint(), histogram, errors, dropped, seconds);
+        }
+        long errors = 0;
+        long dropped = 0;
+        for (Operation operation : Operation.values()) {
+            errors += stage.getErrors(operation);
+            dropped += stage.getDropped(operation);
+        }
+        printRow(out, "all", stage.getCombinedHistogram(), errors, dropped, seconds);
+    }
+    
+    private static void printRow(PrintStream out, String label, Histogram histogram, long errors, long dropped,
+                                 double seconds) {
+        out.printf("%-34s %8d %7d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                label,
+                histogram.getTotalCount(),
+                errors,
+                dropped,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(95) / MICROS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+    
+    private static void writeDistributions(StageStats stage, Path stageDir) throws IOException {
+        Files.createDirectories(stageDir);
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = stage.getHistogram(operation);
+            if (histogram.getTotalCount() > 0) {
+                writeDistribution(histogram, stageDir.resolve(operation.getKey() + ".hgrm"));
+            }
+        }
+        writeDistribution(stage.getCombinedHistogram(), stageDir.resolve("all.hgrm"));
+    }
+    
+    private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.expensetracker.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings come from loadtest.properties on the classpath, then an optional
+ * properties file given as the first argument, then -D system properties.
+ */
+public class LoadTestConfig {
+    
+    private final Properties properties;
+    
+    private LoadTestConfig(Properties properties) {
+        this.properties = properties;
+    }
+    
+    public static LoadTestConfig load(String[] args) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream defaults = LoadTestConfig.class.getResourceAsStream("/loadtest.properties")) {
+            if (defaults != null) {
+                properties.load(defaults);
+            }
+        }
+        if (args.length > 0) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+                properties.load(reader);
+            }
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String override = System.getProperty(name);
+            if (override != null) {
+                properties.setProperty(name, override);
+            }
+        }
+        return new LoadTestConfig(properties);
+    }
+    
+    public String getBaseUrl() {
+        String baseUrl = require("base-url");
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+    
+    public int getUsers() {
+        return Integer.parseInt(require("users"));
+    }
+    
+    public int getExpensesPerUser() {
+        return Integer.parseInt(require("expenses-per-user"));
+    }
+    
+    public int getSeedConcurrency() {
+        return Integer.parseInt(require("seed-concurrency"));
+    }
+    
+    public List<Double> getRates() {
+        List<Double> rates = new ArrayList<>();
+        for (String rate : require("rates").split(",")) {
+            rates.add(Double.parseDouble(rate.trim()));
+        }
+        return rates;
+    }
+    
+    public Duration getStageDuration() {
+        return Duration.ofSeconds(Long.parseLong(require("stage-seconds")));
+    }
+    
+    public Duration getWarmupDuration() {
+        return Duration.ofSeconds(Long.parseLong(require("warmup-seconds")));
+    }
+    
+    public int getMaxInFlight() {
+        return Integer.parseInt(require("max-in-flight"));
+    }
+    
+    public Duration getRequestTimeout() {
+        return Duration.ofMillis(Long.parseLong(require("request-timeout-ms")));
+    }
+    
+    public Map<Operation, Integer> getMix() {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : require("mix").split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries must look like operation:weight, got " + entry);
+            }
+            mix.put(Operation.fromKey(parts[0]), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+    
+    public int getAuthBenchmarkCalls() {
+        return Integer.parseInt(require("auth-benchmark-calls"));
+    }
+    
+    /** name -> base URL of each stack SlowClientBenchmark compares, in order. */
+    public Map<String, String> getSlowClientTargets() {
+        Map<String, String> targets = new LinkedHashMap<>();
+        for (String entry : require("slow-client-targets").split(",")) {
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Targets must look like name=url, got " + entry);
+            }
+            String url = parts[1].trim();
+            targets.put(parts[0].trim(), url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+        }
+        return targets;
+    }
+    
+    public int getSlowClients() {
+        return Integer.parseInt(require("slow-clients"));
+    }
+    
+    public Duration getSlowClientChunkDelay() {
+        return Duration.ofMillis(Long.parseLong(require("slow-client-chunk-delay-ms")));
+    }
+    
+    public Duration getSlowClientDuration() {
+        return Duration.ofSeconds(Long.parseLong(require("slow-client-seconds")));
+    }
+    
+    public int getSlowClientProbeConcurrency() {
+        return Integer.parseInt(require("slow-client-probe-concurrency"));
+    }
+    
+    /** Optional target name -> server process id, for sampling resident memory. */
+    public Map<String, Long> getSlowClientPids() {
+        Map<String, Long> pids = new HashMap<>();
+        String value = properties.getProperty("slow-client-pids", "").trim();
+        if (!value.isEmpty()) {
+            for (String entry : value.split(",")) {
+                String[] parts = entry.split(":");
+                pids.put(parts[0].trim(), Long.parseLong(parts[1].trim()));
+            }
+        }
+        return pids;
+    }
+    
+    public Path getOutputDir() {
+        return Paths.get(require("output-dir"));
+    }
+    
+    private String require(String name) {
+        String value = properties.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing load test setting: " + name);
+        }
+        return value.trim();
+    }
+}
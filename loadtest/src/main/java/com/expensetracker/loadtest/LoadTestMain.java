@@ -0,0 +1,23 @@
+package com.expensetracker.loadtest;
+
+import java.util.List;
+
+public class LoadTestMain {
+    
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load(args);
+        ApiClient client = new ApiClient(config.getBaseUrl(), config.getRequestTimeout());
+        
+        System.out.printf("Seeding %d users with %d expenses each against %s%n",
+                config.getUsers(), config.getExpensesPerUser(), config.getBaseUrl());
+        List<SyntheticUser> users = new Seeder(client, config.getSeedConcurrency())
+                .seed(config.getUsers(), config.getExpensesPerUser());
+        
+        OpenLoopDriver driver = new OpenLoopDriver(client, users, new TrafficMix(config.getMix()),
+                config.getMaxInFlight());
+        List<StageStats> stages = driver.run(config.getRates(), config.getStageDuration(), config.getWarmupDuration());
+        
+        LatencyReport.write(stages, config.getOutputDir());
+        System.exit(0);
+    }
+}
@@ -0,0 +1,157 @@
+package com.expensetracker.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Issues requests on a Poisson arrival schedule that does not wait for earlier
+ * responses, stepping through the configured rates. A slow backend therefore
+ * builds up outstanding requests, as it would under real traffic, instead of
+ * throttling the generator.
+ */
+public class OpenLoopDriver {
+    
+    private final ApiClient client;
+    private final List<SyntheticUser> users;
+    private final TrafficMix mix;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    public OpenLoopDriver(ApiClient client, List<SyntheticUser> users, TrafficMix mix, int maxInFlight) {
+        this.client = client;
+        this.users = users;
+        this.mix = mix;
+        this.maxInFlight = maxInFlight;
+    }
+    
+    public List<StageStats> run(List<Double> rates, Duration stageDuration, Duration warmup) throws InterruptedException {
+        if (!warmup.isZero()) {
+            System.out.printf("Warming up at %.1f req/s for %ds%n", rates.get(0), warmup.getSeconds());
+            runStage(new StageStats("warmup", rates.get(0)), rates.get(0), warmup);
+        }
+        
+        List<StageStats> stages = new ArrayList<>();
+        for (int i = 0; i < rates.size(); i++) {
+            double rate = rates.get(i);
+            StageStats stats = new StageStats(String.format("stage-%02d-%.0frps", i + 1, rate), rate);
+            System.out.printf("Running %s for %ds%n", stats.getName(), stageDuration.getSeconds());
+            runStage(stats, rate, stageDuration);
+            stages.add(stats);
+        }
+        
+        // Let the last stage's outstanding requests finish so they are counted
+        long drainDeadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        return stages;
+    }
+    
+    private void runStage(StageStats stats, double rate, Duration duration) throws InterruptedException {
+        long stageStart = System.nanoTime();
+        long stageEnd = stageStart + duration.toNanos();
+        long intended = stageStart;
+        
+        while (intended < stageEnd) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            fire(stats, intended);
+            double gapSeconds = -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) / rate;
+            intended += (long) (gapSeconds * 1_000_000_000L);
+        }
+        stats.setDurationNanos(System.nanoTime() - stageStart);
+    }
+    
+    private void fire(StageStats stats, long intendedNanos) {
+        SyntheticUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+        Operation operation = mix.next();
+        Long expenseId = null;
+        if (operation == Operation.UPDATE) {
+            expenseId = user.pickExpense();
+        } else if (operation == Operation.DELETE) {
+            expenseId = user.takeExpense();
+        }
+        if ((operation == Operation.UPDATE || operation == Operation.DELETE) && expenseId == null) {
+            operation = Operation.CREATE;
+        }
+        
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            stats.recordDropped(operation);
+            if (operation == Operation.DELETE) {
+                user.addExpense(expenseId);
+            }
+            return;
+        }
+        
+        Operation issued = operation;
+        CompletableFuture<HttpResponse<String>> call;
+        try {
+            call = dispatch(issued, user, expenseId);
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            stats.recordError(issued);
+            return;
+        }
+        call.whenComplete((response, error) -> {
+            long latency = System.nanoTime() - intendedNanos;
+            if (error == null && response.statusCode() / 100 == 2) {
+                stats.recordSuccess(issued, latency);
+                afterSuccess(issued, user, response);
+            } else {
+                stats.recordError(issued);
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+    
+    private CompletableFuture<HttpResponse<String>> dispatch(Operation operation, SyntheticUser user, Long expenseId) {
+        switch (operation) {
+            case LOGIN:
+                return client.login(user);
+            case LIST:
+                return client.listExpenses(user);
+            case CREATE:
+                return client.createExpense(user);
+            case UPDATE:
+                return client.updateExpense(user, expenseId);
+            case DELETE:
+                return client.deleteExpense(user, expenseId);
+            case STATISTICS:
+                return client.statistics(user);
+            case CHART_CATEGORY:
+                return client.categoryChart(user);
+            case CHART_MONTHLY:
+                return client.monthlyChart(user);
+            default:
+                throw new IllegalArgumentException("Unhandled operation " + operation);
+        }
+    }
+    
+    private void afterSuccess(Operation operation, SyntheticUser user, HttpResponse<String> response) {
+        if (operation == Operation.LOGIN) {
+            JsonNode token = client.field(response, "token");
+            if (token != null) {
+                user.setToken(token.asText());
+            }
+        } else if (operation == Operation.CREATE) {
+            JsonNode id = client.field(response, "id");
+            if (id != null) {
+                user.addExpense(id.asLong());
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.expensetracker.loadtest;
+
+public enum Operation {
+    LOGIN("login", "POST /api/auth/login"),
+    LIST("list", "GET /api/expenses"),
+    CREATE("create", "POST /api/expenses"),
+    UPDATE("update", "PUT /api/expenses/{id}"),
+    DELETE("delete", "DELETE /api/expenses/{id}"),
+    STATISTICS("statistics", "GET /api/expenses/statistics"),
+    CHART_CATEGORY("chart-category", "GET /api/expenses/chart/category"),
+    CHART_MONTHLY("chart-monthly", "GET /api/expenses/chart/monthly");
+    
+    private final String key;
+    private final String endpoint;
+    
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    public static Operation fromKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equalsIgnoreCase(key.trim())) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation in mix: " + key);
+    }
+}
@@ -0,0 +1,84 @@
+package com.expensetracker.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registers the synthetic users and gives each of them a history of expenses.
+ * Requests are issued with bounded concurrency; seeding is not measured.
+ */
+public class Seeder {
+    
+    private final ApiClient client;
+    private final int concurrency;
+    
+    public Seeder(ApiClient client, int concurrency) {
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+    
+    public List<SyntheticUser> seed(int userCount, int expensesPerUser) throws InterruptedException {
+        // Unique per run, so the harness can be pointed at the same database repeatedly
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<SyntheticUser> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            users.add(new SyntheticUser("lt_" + runId + "_" + i, "loadtest-" + runId));
+        }
+        
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicInteger failures = new AtomicInteger();
+        
+        for (SyntheticUser user : users) {
+            permits.acquire();
+            client.register(user).whenComplete((response, error) -> {
+                JsonNode token = error == null && response.statusCode() == 200 ? client.field(response, "token") : null;
+                if (token != null) {
+                    user.setToken(token.asText());
+                } else {
+                    failures.incrementAndGet();
+                }
+                permits.release();
+            });
+        }
+        permits.acquire(concurrency);
+        permits.release(concurrency);
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " synthetic users could not be registered");
+        }
+        System.out.printf("Registered %d users%n", users.size());
+        
+        int total = 0;
+        for (int i = 0; i < expensesPerUser; i++) {
+            for (SyntheticUser user : users) {
+                permits.acquire();
+                client.createExpense(user).whenComplete((response, error) -> {
+                    recordCreated(user, response, error, failures);
+                    permits.release();
+                });
+                total++;
+            }
+            if ((i + 1) % 50 == 0) {
+                System.out.printf("Seeded %d expenses%n", total);
+            }
+        }
+        permits.acquire(concurrency);
+        permits.release(concurrency);
+        System.out.printf("Seeded %d expenses (%d failed)%n", total, failures.get());
+        return users;
+    }
+    
+    private void recordCreated(SyntheticUser user, HttpResponse<String> response, Throwable error,
+                               AtomicInteger failures) {
+        JsonNode id = error == null && response.statusCode() == 200 ? client.field(response, "id") : null;
+        if (id != null) {
+            user.addExpense(id.asLong());
+        } else {
+            failures.incrementAndGet();
+        }
+    }
+}
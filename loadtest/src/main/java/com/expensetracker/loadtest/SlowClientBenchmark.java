@@ -0,0 +1,233 @@
+package com.expensetracker.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the servlet backend with the reactive read module under many slow
+ * clients. For each target, slow-clients connections keep downloading the
+ * expense list while pausing slow-client-chunk-delay-ms between chunks, so the
+ * server can only send as fast as they read. Alongside them a few fast clients
+ * call /statistics back to back; their throughput and latency show what the slow
+ * ones cost everybody else. With slow-client-pids, the server's resident memory is
+ * sampled at the end of the stage while all slow connections are still open.
+ *
+ * Users are seeded through base-url, which must be the servlet backend. Bigger
+ * lists (expenses-per-user) make each slow download last longer.
+ */
+public class SlowClientBenchmark {
+    
+    private static final double MICROS_PER_MILLI = 1000.0;
+    
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.load(args);
+        ApiClient client = new ApiClient(config.getBaseUrl(), config.getRequestTimeout());
+        
+        System.out.printf("Seeding %d users with %d expenses each against %s%n",
+                config.getUsers(), config.getExpensesPerUser(), config.getBaseUrl());
+        List<SyntheticUser> users = new Seeder(client, config.getSeedConcurrency())
+                .seed(config.getUsers(), config.getExpensesPerUser());
+        
+        Map<String, Long> pids = config.getSlowClientPids();
+        System.out.printf("%n%-10s %8s %7s %9s %9s %7s %9s %9s %9s %9s %10s%n",
+                "target", "slow ok", "errors", "slow MB", "probe ok", "errors", "req/s", "p50 ms", "p99 ms",
+                "rss MB", "KB/client");
+        for (Map.Entry<String, String> target : config.getSlowClientTargets().entrySet()) {
+            Stage stage = new Stage(target.getValue(), users, config);
+            stage.run(pids.get(target.getKey()));
+            stage.print(target.getKey(), config.getSlowClients());
+        }
+        System.exit(0);
+    }
+    
+    private static class Stage {
+        private final String baseUrl;
+        private final List<SyntheticUser> users;
+        private final LoadTestConfig config;
+        private final HttpClient httpClient;
+        private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        
+        private final AtomicLong slowCompleted = new AtomicLong();
+        private final AtomicLong slowErrors = new AtomicLong();
+        private final AtomicLong slowBytes = new AtomicLong();
+        private final Histogram probeLatency = new ConcurrentHistogram(3);
+        private final AtomicLong probeErrors = new AtomicLong();
+        private volatile boolean stopped;
+        private long rssKilobytes = -1;
+        private double seconds;
+        
+        Stage(String baseUrl, List<SyntheticUser> users, LoadTestConfig config) {
+            this.baseUrl = baseUrl;
+            this.users = users;
+            this.config = config;
+            this.httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                    .build();
+        }
+        
+        void run(Long pid) throws Exception {
+            for (int i = 0; i < config.getSlowClients(); i++) {
+                startSlowDownload();
+            }
+            
+            CountDownLatch probesDone = new CountDownLatch(config.getSlowClientProbeConcurrency());
+            long start = System.nanoTime();
+            for (int i = 0; i < config.getSlowClientProbeConcurrency(); i++) {
+                Thread probe = new Thread(() -> {
+                    while (!stopped) {
+                        probe();
+                    }
+                    probesDone.countDown();
+                });
+                probe.setDaemon(true);
+                probe.start();
+            }
+            
+            Thread.sleep(config.getSlowClientDuration().toMillis());
+            if (pid != null) {
+                rssKilobytes = residentKilobytes(pid);
+            }
+            stopped = true;
+            probesDone.await();
+            seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            scheduler.shutdownNow();
+        }
+        
+        // Each slow client starts its next download as soon as one finishes, keeping the connection count constant
+        private void startSlowDownload() {
+            if (stopped) {
+                return;
+            }
+            SyntheticUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+            httpClient.sendAsync(request("/api/expenses", user).build(), responseInfo -> new SlowBodySubscriber())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200) {
+                            slowCompleted.incrementAndGet();
+                            slowBytes.addAndGet(response.body());
+                        } else if (!(unwrap(error) instanceof CancellationException)) {
+                            slowErrors.incrementAndGet();
+                        }
+                        startSlowDownload();
+                    });
+        }
+        
+        private void probe() {
+            SyntheticUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+            HttpRequest request = request("/api/expenses/statistics", user).timeout(config.getRequestTimeout()).build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    probeLatency.recordValue((System.nanoTime() - start) / 1000);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // counted below
+            }
+            probeErrors.incrementAndGet();
+        }
+        
+        private HttpRequest.Builder request(String path, SyntheticUser user) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Accept", "application/json")
+                    .header("Authorization", "Bearer " + user.getToken())
+                    .GET();
+        }
+        
+        void print(String name, int slowClients) {
+            long ok = probeLatency.getTotalCount();
+            System.out.printf("%-10s %8d %7d %9.1f %9d %7d %9.1f %9.2f %9.2f %9s %10s%n",
+                    name,
+                    slowCompleted.get(),
+                    slowErrors.get(),
+                    slowBytes.get() / (1024.0 * 1024.0),
+                    ok,
+                    probeErrors.get(),
+                    ok / seconds,
+                    probeLatency.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                    probeLatency.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                    rssKilobytes < 0 ? "-" : String.format("%.0f", rssKilobytes / 1024.0),
+                    rssKilobytes < 0 ? "-" : String.format("%.1f", (double) rssKilobytes / slowClients));
+        }
+        
+        /** Takes one chunk, then waits before asking for the next; stops reading at the end of the stage. */
+        private class SlowBodySubscriber implements HttpResponse.BodySubscriber<Long> {
+            private final CompletableFuture<Long> body = new CompletableFuture<>();
+            private Flow.Subscription subscription;
+            private long bytes;
+            
+            @Override
+            public CompletionStage<Long> getBody() {
+                return body;
+            }
+            
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+            
+            @Override
+            public void onNext(List<ByteBuffer> chunk) {
+                for (ByteBuffer buffer : chunk) {
+                    bytes += buffer.remaining();
+                }
+                if (stopped) {
+                    subscription.cancel();
+                    body.completeExceptionally(new CancellationException());
+                    return;
+                }
+                scheduler.schedule(() -> subscription.request(1),
+                        config.getSlowClientChunkDelay().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                body.completeExceptionally(error);
+            }
+            
+            @Override
+            public void onComplete() {
+                body.complete(bytes);
+            }
+        }
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        return error != null && error.getCause() != null ? error.getCause() : error;
+    }
+    
+    private static long residentKilobytes(long pid) throws Exception {
+        Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(pid)).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ps.getInputStream()))) {
+            String line = reader.readLine();
+            ps.waitFor();
+            return line == null ? -1 : Long.parseLong(line.trim());
+        }
+    }
+}
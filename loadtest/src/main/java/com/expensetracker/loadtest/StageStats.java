@@ -0,0 +1,83 @@
+package com.expensetracker.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and failures for one arrival-rate stage. Latency is measured from the
+ * intended send time rather than the actual one, so a backend that falls behind
+ * shows up as queueing delay instead of being hidden by a slower arrival rate.
+ */
+public class StageStats {
+    
+    private final String name;
+    private final double offeredRate;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> dropped = new EnumMap<>(Operation.class);
+    private volatile long durationNanos;
+    
+    public StageStats(String name, double offeredRate) {
+        this.name = name;
+        this.offeredRate = offeredRate;
+        for (Operation operation : Operation.values()) {
+            // Microsecond resolution, three significant digits, grows as needed
+            histograms.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new AtomicLong());
+            dropped.put(operation, new AtomicLong());
+        }
+    }
+    
+    public void recordSuccess(Operation operation, long latencyNanos) {
+        histograms.get(operation).recordValue(Math.max(1, latencyNanos / 1000));
+    }
+    
+    public void recordError(Operation operation) {
+        errors.get(operation).incrementAndGet();
+    }
+    
+    public void recordDropped(Operation operation) {
+        dropped.get(operation).incrementAndGet();
+    }
+    
+    public void setDurationNanos(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public double getOfferedRate() {
+        return offeredRate;
+    }
+    
+    public Histogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+    
+    public long getErrors(Operation operation) {
+        return errors.get(operation).get();
+    }
+    
+    public long getDropped(Operation operation) {
+        return dropped.get(operation).get();
+    }
+    
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+    
+    /** All operations merged into one histogram. */
+    public Histogram getCombinedHistogram() {
+        Histogram combined = new Histogram(3);
+        for (Histogram histogram : histograms.values()) {
+            combined.add(histogram);
+        }
+        return combined;
+    }
+}
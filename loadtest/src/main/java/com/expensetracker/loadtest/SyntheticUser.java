@@ -0,0 +1,58 @@
+package com.expensetracker.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SyntheticUser {
+    
+    private final String username;
+    private final String password;
+    private volatile String token;
+    private final List<Long> expenseIds = new ArrayList<>();
+    
+    public SyntheticUser(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    public void setToken(String token) {
+        this.token = token;
+    }
+    
+    public synchronized void addExpense(long id) {
+        expenseIds.add(id);
+    }
+    
+    /** A random expense of this user, or null if it has none. */
+    public synchronized Long pickExpense() {
+        if (expenseIds.isEmpty()) {
+            return null;
+        }
+        return expenseIds.get(ThreadLocalRandom.current().nextInt(expenseIds.size()));
+    }
+    
+    /** Removes and returns a random expense, or null if it has none. */
+    public synchronized Long takeExpense() {
+        if (expenseIds.isEmpty()) {
+            return null;
+        }
+        int index = ThreadLocalRandom.current().nextInt(expenseIds.size());
+        Long id = expenseIds.get(index);
+        expenseIds.set(index, expenseIds.get(expenseIds.size() - 1));
+        expenseIds.remove(expenseIds.size() - 1);
+        return id;
+    }
+}
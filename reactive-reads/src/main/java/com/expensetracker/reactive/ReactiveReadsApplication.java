@@ -0,0 +1,13 @@
+package com.expensetracker.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@SpringBootApplication
+@EnableScheduling
+public class ReactiveReadsApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveReadsApplication.class, args);
+    }
+}
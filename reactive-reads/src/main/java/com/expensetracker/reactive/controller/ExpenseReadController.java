@@ -0,0 +1,73 @@
+package com.expensetracker.reactive.controller;
+
+import com.expensetracker.reactive.dto.ExpenseView;
+import com.expensetracker.reactive.security.AuthenticatedUser;
+import com.expensetracker.reactive.service.ExpenseReadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The read endpoints of the backend's ExpenseController. Lists are written as a
+ * JSON array element by element as rows arrive (or one object per line with
+ * Accept: application/x-ndjson) instead of being built in memory first.
+ */
+@RestController
+@RequestMapping("/api/expenses")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class ExpenseReadController {
+    
+    @Autowired
+    private ExpenseReadService expenseReadService;
+    
+    private Mono<Long> getCurrentUserId() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(context -> ((AuthenticatedUser) context.getAuthentication().getPrincipal()).getId());
+    }
+    
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ExpenseView> getAllExpenses() {
+        return getCurrentUserId().flatMapMany(expenseReadService::getExpensesByUserId);
+    }
+    
+    @GetMapping(value = "/category/{category}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ExpenseView> getExpensesByCategory(@PathVariable String category) {
+        return getCurrentUserId().flatMapMany(userId -> expenseReadService.getExpensesByCategory(userId, category));
+    }
+    
+    @GetMapping(value = "/date-range", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ExpenseView> getExpensesByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        return getCurrentUserId().flatMapMany(userId ->
+                expenseReadService.getExpensesByDateRange(userId, startDate, endDate));
+    }
+    
+    @GetMapping(value = "/current-month", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ExpenseView> getCurrentMonthExpenses() {
+        return getCurrentUserId().flatMapMany(expenseReadService::getCurrentMonthExpenses);
+    }
+    
+    @GetMapping("/statistics")
+    public Mono<Map<String, Object>> getExpenseStatistics() {
+        return getCurrentUserId().flatMap(expenseReadService::getExpenseStatistics);
+    }
+    
+    @GetMapping("/chart/category")
+    public Mono<Map<String, BigDecimal>> getExpensesByCategory() {
+        return getCurrentUserId().flatMap(expenseReadService::getExpensesByCategory);
+    }
+    
+    @GetMapping("/chart/monthly")
+    public Mono<Map<String, BigDecimal>> getMonthlyExpenses() {
+        return getCurrentUserId().flatMap(expenseReadService::getMonthlyExpenses);
+    }
+}
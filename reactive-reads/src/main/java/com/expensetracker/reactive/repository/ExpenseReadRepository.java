@@ -0,0 +1,116 @@
+package com.expensetracker.reactive.repository;
+
+import com.expensetracker.reactive.dto.ExpenseView;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The backend's expense read queries in SQL. Lists are fetched fetch-size rows at
+ * a time and only as fast as the client takes them, so a slow reader holds one
+ * connection's worth of rows rather than the whole list.
+ */
+@Repository
+public class ExpenseReadRepository {
+    
+    private static final String SELECT_EXPENSES =
+            "SELECT e.id, e.title, e.description, e.amount, e.currency, e.base_amount, e.expense_date, " +
+            "c.name AS category, e.created_at, e.updated_at, e.user_id " +
+            "FROM expenses e JOIN categories c ON c.id = e.category_id WHERE e.user_id = $1";
+    
+    private static final String ORDER_BY_DATE = " ORDER BY e.expense_date DESC";
+    
+    @Autowired
+    private DatabaseClient databaseClient;
+    
+    @Value("${app.reads.fetch-size:256}")
+    private int fetchSize;
+    
+    public Mono<Long> findActiveUserId(String username) {
+        return databaseClient.sql("SELECT id FROM users WHERE username = $1 AND deletion_requested_at IS NULL")
+                .bind(0, username)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+    
+    public Flux<ExpenseView> findByUserId(Long userId) {
+        return streamExpenses(databaseClient.sql(SELECT_EXPENSES + ORDER_BY_DATE)
+                .bind(0, userId));
+    }
+    
+    public Flux<ExpenseView> findByUserIdAndCategory(Long userId, String category) {
+        return streamExpenses(databaseClient.sql(SELECT_EXPENSES + " AND c.name = $2" + ORDER_BY_DATE)
+                .bind(0, userId)
+                .bind(1, category));
+    }
+    
+    public Flux<ExpenseView> findByUserIdAndDateRange(Long userId, LocalDate startDate, LocalDate endDate) {
+        return streamExpenses(databaseClient.sql(SELECT_EXPENSES + " AND e.expense_date BETWEEN $2 AND $3" + ORDER_BY_DATE)
+                .bind(0, userId)
+                .bind(1, startDate)
+                .bind(2, endDate));
+    }
+    
+    /** {total, total between the dates, count} of the user's base amounts. */
+    public Mono<Object[]> getTotals(Long userId, LocalDate startDate, LocalDate endDate) {
+        return databaseClient.sql("SELECT COALESCE(SUM(base_amount), 0), " +
+                        "COALESCE(SUM(base_amount) FILTER (WHERE expense_date BETWEEN $2 AND $3), 0), COUNT(*) " +
+                        "FROM expenses WHERE user_id = $1")
+                .bind(0, userId)
+                .bind(1, startDate)
+                .bind(2, endDate)
+                .map(row -> new Object[] {
+                        row.get(0, BigDecimal.class), row.get(1, BigDecimal.class), row.get(2, Long.class)})
+                .one();
+    }
+    
+    /** {category name, total} per category, largest first. */
+    public Flux<Object[]> getTotalsByCategory(Long userId) {
+        return databaseClient.sql("SELECT c.name, SUM(e.base_amount) FROM expenses e " +
+                        "JOIN categories c ON c.id = e.category_id WHERE e.user_id = $1 " +
+                        "GROUP BY c.name ORDER BY 2 DESC")
+                .bind(0, userId)
+                .map(row -> new Object[] {row.get(0, String.class), row.get(1, BigDecimal.class)})
+                .all();
+    }
+    
+    /** {year, month, total} per month, oldest first. */
+    public Flux<Object[]> getTotalsByMonth(Long userId) {
+        return databaseClient.sql("SELECT EXTRACT(YEAR FROM expense_date)::int, EXTRACT(MONTH FROM expense_date)::int, " +
+                        "SUM(base_amount) FROM expenses WHERE user_id = $1 GROUP BY 1, 2 ORDER BY 1, 2")
+                .bind(0, userId)
+                .map(row -> new Object[] {
+                        row.get(0, Integer.class), row.get(1, Integer.class), row.get(2, BigDecimal.class)})
+                .all();
+    }
+    
+    private Flux<ExpenseView> streamExpenses(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.filter(statement -> statement.fetchSize(fetchSize))
+                .map(ExpenseReadRepository::toView)
+                .all();
+    }
+    
+    private static ExpenseView toView(Readable row) {
+        ExpenseView expense = new ExpenseView();
+        expense.setId(row.get("id", Long.class));
+        expense.setTitle(row.get("title", String.class));
+        expense.setDescription(row.get("description", String.class));
+        expense.setAmount(row.get("amount", BigDecimal.class));
+        expense.setCurrency(row.get("currency", String.class));
+        expense.setBaseAmount(row.get("base_amount", BigDecimal.class));
+        expense.setExpenseDate(row.get("expense_date", LocalDate.class));
+        expense.setCategory(row.get("category", String.class));
+        expense.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        expense.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        expense.setUserId(row.get("user_id", Long.class));
+        return expense;
+    }
+}
@@ -0,0 +1,24 @@
+package com.expensetracker.reactive.security;
+
+import java.security.Principal;
+
+/** The signed-in user a request reads data for. */
+public class AuthenticatedUser implements Principal {
+    
+    private final Long id;
+    private final String username;
+    
+    public AuthenticatedUser(Long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    @Override
+    public String getName() {
+        return username;
+    }
+}
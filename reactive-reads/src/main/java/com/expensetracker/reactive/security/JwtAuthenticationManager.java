@@ -0,0 +1,40 @@
+package com.expensetracker.reactive.security;
+
+import com.expensetracker.reactive.repository.ExpenseReadRepository;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+
+/**
+ * Turns a bearer token into an AuthenticatedUser. Like the backend, a token is
+ * only accepted while its user exists and has not requested account deletion.
+ */
+@Component
+public class JwtAuthenticationManager implements ReactiveAuthenticationManager {
+    
+    @Autowired
+    private JwtVerifier jwtVerifier;
+    
+    @Autowired
+    private ExpenseReadRepository expenseReadRepository;
+    
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String token = (String) authentication.getCredentials();
+        Claims claims = jwtVerifier.verify(token);
+        if (claims == null) {
+            return Mono.error(new BadCredentialsException("Invalid or expired token"));
+        }
+        return expenseReadRepository.findActiveUserId(claims.getSubject())
+                .switchIfEmpty(Mono.error(new BadCredentialsException("User not found")))
+                .map(userId -> UsernamePasswordAuthenticationToken.authenticated(
+                        new AuthenticatedUser(userId, claims.getSubject()), token, new ArrayList<>()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.expensetracker.reactive.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+import java.util.Date;
+
+/**
+ * Checks tokens issued by the backend's JwtUtil: same secret, same key derivation
+ * and the same expiry and revocation rules. The backend is an application rather
+ * than a library, so the rules are repeated here; change both together.
+ */
+@Component
+public class JwtVerifier {
+    
+    @Value("${jwt.secret}")
+    private String secret;
+    
+    @Autowired
+    private RevocationCache revocationCache;
+    
+    private Key getSigningKey() {
+        return Keys.hmacShaKeyFor(secret.getBytes());
+    }
+    
+    /** The token's claims if it is signed, unexpired and not revoked, otherwise null. */
+    public Claims verify(String token) {
+        try {
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(getSigningKey())
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            if (claims.getExpiration().before(new Date())
+                    || revocationCache.isRevoked(claims.getSubject(), claims.getId(), claims.getIssuedAt())) {
+                return null;
+            }
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
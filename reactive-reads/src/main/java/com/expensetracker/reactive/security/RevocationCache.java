@@ -0,0 +1,101 @@
+package com.expensetracker.reactive.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only copy of revoked_tokens and token_watermarks, synced the same way as the
+ * backend's TokenRevocationRegistry. Revocations are only ever made by the backend,
+ * so a logout there takes up to app.auth.revocation-sync-interval-ms to reach here.
+ */
+@Component
+public class RevocationCache {
+    
+    private static final String SYNC_REVOKED_SQL =
+            "SELECT jti, expires_at, revoked_at FROM revoked_tokens " +
+            "WHERE revoked_at >= $1 AND expires_at > now()";
+    
+    private static final String SYNC_WATERMARKS_SQL =
+            "SELECT u.username, w.not_before, w.updated_at FROM token_watermarks w " +
+            "JOIN users u ON u.id = w.user_id WHERE w.updated_at >= $1";
+    
+    // See TokenRevocationRegistry: late commits can carry timestamps behind the cursor
+    private static final long SYNC_OVERLAP_MS = 60000;
+    
+    @Autowired
+    private DatabaseClient databaseClient;
+    
+    @Value("${jwt.expiration}")
+    private int jwtExpiration;
+    
+    private final ConcurrentHashMap<UUID, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+    private final AtomicLong revokedCursor = new AtomicLong();
+    private final AtomicLong watermarkCursor = new AtomicLong();
+    
+    public boolean isRevoked(String username, String tokenId, Date issuedAt) {
+        Long watermark = notBefore.get(username);
+        if (watermark != null && (issuedAt == null || issuedAt.getTime() < watermark)) {
+            return true;
+        }
+        if (tokenId == null) {
+            return false;
+        }
+        try {
+            return revokedTokens.containsKey(UUID.fromString(tokenId));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    // Runs once at startup (initialDelay 0) before most requests arrive, then incrementally
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.auth.revocation-sync-interval-ms:5000}")
+    public Mono<Void> sync() {
+        long now = System.currentTimeMillis();
+        Mono<Void> revoked = databaseClient.sql(SYNC_REVOKED_SQL)
+                .bind(0, since(revokedCursor))
+                .map(row -> {
+                    revokedTokens.put(UUID.fromString(row.get(0, String.class)),
+                            millis(row.get(1, OffsetDateTime.class)));
+                    return millis(row.get(2, OffsetDateTime.class));
+                })
+                .all()
+                .doOnNext(revokedAt -> revokedCursor.accumulateAndGet(revokedAt, Math::max))
+                .then();
+        
+        Mono<Void> watermarks = databaseClient.sql(SYNC_WATERMARKS_SQL)
+                .bind(0, since(watermarkCursor))
+                .map(row -> {
+                    notBefore.merge(row.get(0, String.class), millis(row.get(1, OffsetDateTime.class)), Math::max);
+                    return millis(row.get(2, OffsetDateTime.class));
+                })
+                .all()
+                .doOnNext(updatedAt -> watermarkCursor.accumulateAndGet(updatedAt, Math::max))
+                .then();
+        
+        return revoked.then(watermarks).doOnSuccess(done -> {
+            revokedTokens.values().removeIf(expiresAt -> expiresAt < now);
+            notBefore.values().removeIf(watermark -> watermark < now - jwtExpiration);
+        });
+    }
+    
+    private static OffsetDateTime since(AtomicLong cursor) {
+        return Instant.ofEpochMilli(cursor.get() - SYNC_OVERLAP_MS).atOffset(ZoneOffset.UTC);
+    }
+    
+    private static long millis(OffsetDateTime timestamp) {
+        return timestamp.toInstant().toEpochMilli();
+    }
+}
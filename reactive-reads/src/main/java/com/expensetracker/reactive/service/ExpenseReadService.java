@@ -0,0 +1,82 @@
+package com.expensetracker.reactive.service;
+
+import com.expensetracker.reactive.dto.ExpenseView;
+import com.expensetracker.reactive.repository.ExpenseReadRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** The read half of the backend's ExpenseService, with the same response shapes. */
+@Service
+public class ExpenseReadService {
+    
+    private static final String DEFAULT_CATEGORY = "General";
+    
+    @Autowired
+    private ExpenseReadRepository expenseReadRepository;
+    
+    @Value("${app.currency.base:USD}")
+    private String baseCurrency;
+    
+    public Flux<ExpenseView> getExpensesByUserId(Long userId) {
+        return expenseReadRepository.findByUserId(userId);
+    }
+    
+    public Flux<ExpenseView> getExpensesByCategory(Long userId, String category) {
+        // Category names are stored trimmed, with blank meaning General (CategoryDictionary.normalize)
+        String name = category == null || category.trim().isEmpty() ? DEFAULT_CATEGORY : category.trim();
+        return expenseReadRepository.findByUserIdAndCategory(userId, name);
+    }
+    
+    public Flux<ExpenseView> getExpensesByDateRange(Long userId, LocalDate startDate, LocalDate endDate) {
+        return expenseReadRepository.findByUserIdAndDateRange(userId, startDate, endDate);
+    }
+    
+    public Flux<ExpenseView> getCurrentMonthExpenses(Long userId) {
+        YearMonth currentMonth = YearMonth.now();
+        return getExpensesByDateRange(userId, currentMonth.atDay(1), currentMonth.atEndOfMonth());
+    }
+    
+    /**
+     * Totals, count and average in one query. Percentiles are left out: they come
+     * from the backend's in-memory amount sketches and are served there.
+     */
+    public Mono<Map<String, Object>> getExpenseStatistics(Long userId) {
+        YearMonth currentMonth = YearMonth.now();
+        return expenseReadRepository.getTotals(userId, currentMonth.atDay(1), currentMonth.atEndOfMonth())
+                .map(totals -> {
+                    BigDecimal totalExpenses = (BigDecimal) totals[0];
+                    long totalCount = (Long) totals[2];
+                    Map<String, Object> stats = new HashMap<>();
+                    stats.put("totalExpenses", totalExpenses);
+                    stats.put("currentMonthTotal", totals[1]);
+                    stats.put("totalCount", totalCount);
+                    stats.put("averageExpense", totalCount > 0
+                            ? totalExpenses.divide(BigDecimal.valueOf(totalCount), 2, RoundingMode.HALF_UP)
+                            : BigDecimal.ZERO);
+                    stats.put("baseCurrency", baseCurrency);
+                    return stats;
+                });
+    }
+    
+    public Mono<Map<String, BigDecimal>> getExpensesByCategory(Long userId) {
+        return expenseReadRepository.getTotalsByCategory(userId)
+                .collect(LinkedHashMap::new, (totals, row) -> totals.put((String) row[0], (BigDecimal) row[1]));
+    }
+    
+    public Mono<Map<String, BigDecimal>> getMonthlyExpenses(Long userId) {
+        return expenseReadRepository.getTotalsByMonth(userId)
+                .collect(LinkedHashMap::new, (totals, row) ->
+                        totals.put(row[0] + "-" + String.format("%02d", (Integer) row[1]), (BigDecimal) row[2]));
+    }
+}